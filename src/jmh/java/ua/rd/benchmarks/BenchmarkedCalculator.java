@@ -0,0 +1,17 @@
+package ua.rd.benchmarks;
+
+import ua.rd.ioc.Benchmark;
+
+public class BenchmarkedCalculator implements Calculator {
+
+    @Override
+    @Benchmark
+    public long timed(long value) {
+        return value * 31 + 7;
+    }
+
+    @Override
+    public long plain(long value) {
+        return value * 31 + 7;
+    }
+}
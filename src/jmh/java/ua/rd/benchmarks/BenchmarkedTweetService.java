@@ -0,0 +1,19 @@
+package ua.rd.benchmarks;
+
+import ua.rd.domain.Tweet;
+import ua.rd.ioc.Benchmark;
+import ua.rd.repository.TweetRepository;
+import ua.rd.services.SimpleTweetService;
+
+public class BenchmarkedTweetService extends SimpleTweetService {
+
+    public BenchmarkedTweetService(TweetRepository tweetRepository) {
+        super(tweetRepository);
+    }
+
+    @Override
+    @Benchmark
+    public Iterable<Tweet> allTweets() {
+        return super.allTweets();
+    }
+}
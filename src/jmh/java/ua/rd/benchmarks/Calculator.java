@@ -0,0 +1,6 @@
+package ua.rd.benchmarks;
+
+public interface Calculator {
+    long timed(long value);
+    long plain(long value);
+}
@@ -0,0 +1,45 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import ua.rd.ioc.Component;
+import ua.rd.ioc.ComponentIndexConfig;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the {@link Component}s under {@code ua.rd} through the component
+ * index against Spring's class path scanning, which reads every class file
+ * in the package tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentIndexBenchmark {
+
+    @Benchmark
+    public ua.rd.ioc.BeanDefinition[] index() {
+        return new ComponentIndexConfig("ua.rd").beanDefinitions();
+    }
+
+    @Benchmark
+    public Set<BeanDefinition> classpathScan() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Component.class));
+        return scanner.findCandidateComponents("ua.rd");
+    }
+}
@@ -0,0 +1,49 @@
+package ua.rd.benchmarks;
+
+import ua.rd.domain.Tweet;
+import ua.rd.ioc.Config;
+import ua.rd.ioc.JavaMapConfig;
+import ua.rd.repository.InMemTweetRepository;
+import ua.rd.services.SimpleTweetService;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bean descriptions shared by the benchmarks.
+ */
+final class Configs {
+
+    private Configs() {
+    }
+
+    static Config plainBeans(int count) {
+        Map<String, Map<String, Object>> beanDescriptions = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            beanDescriptions.put("plainBean" + i, description(PlainBean.class, false));
+        }
+        return new JavaMapConfig(beanDescriptions);
+    }
+
+    /**
+     * The same wiring as repoContext.xml/serviceContext.xml.
+     */
+    static Config tweets(Class<? extends SimpleTweetService> serviceType) {
+        Map<String, Map<String, Object>> beanDescriptions = new HashMap<>();
+        beanDescriptions.put("tweetRepository", description(InMemTweetRepository.class, false));
+        beanDescriptions.put("tweetService", description(serviceType, false));
+        beanDescriptions.put("tweet", description(Tweet.class, true));
+        Map<String, Object> pooledTweet = description(Tweet.class, false);
+        pooledTweet.put("scope", "pooled");
+        beanDescriptions.put("pooledTweet", pooledTweet);
+        return new JavaMapConfig(beanDescriptions);
+    }
+
+    static Map<String, Object> description(Class<?> type, boolean isPrototype) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("type", type);
+        description.put("isPrototype", isPrototype);
+        return description;
+    }
+}
@@ -0,0 +1,61 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.Config;
+import ua.rd.ioc.ContextSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building an {@link ApplicationContext} for 10, 1k and 10k
+ * independent singletons described through JavaMapConfig, and of restoring
+ * it from a {@link ContextSnapshot} read back from its binary form. Class
+ * plans are cached per JVM, so this measures the per-definition work; the
+ * first start in a fresh JVM gains more.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextStartupBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int definitions;
+
+    private Config config;
+    private byte[] snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        config = Configs.plainBeans(definitions);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ContextSnapshot.of(config).write(bytes);
+        snapshot = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public ApplicationContext startup() {
+        return new ApplicationContext(config);
+    }
+
+    @Benchmark
+    public ApplicationContext restore() throws IOException {
+        return ContextSnapshot.read(new ByteArrayInputStream(snapshot)).restore();
+    }
+}
@@ -0,0 +1,75 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.services.SimpleTweetService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code getBean} throughput for singletons, prototypes and pooled beans
+ * borrowed and released again, single-threaded and with eight threads
+ * hitting the same context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetBeanBenchmark {
+
+    private ApplicationContext context;
+
+    @Setup
+    public void setUp() {
+        context = new ApplicationContext(Configs.tweets(SimpleTweetService.class));
+    }
+
+    @Benchmark
+    public Object singleton() {
+        return context.getBean("tweetService");
+    }
+
+    @Benchmark
+    public Object prototype() {
+        return context.getBean("tweet");
+    }
+
+    @Benchmark
+    public Object pooled() {
+        Object tweet = context.getBean("pooledTweet");
+        context.release("pooledTweet", tweet);
+        return tweet;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object singletonContended() {
+        return context.getBean("tweetService");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object prototypeContended() {
+        return context.getBean("tweet");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object pooledContended() {
+        Object tweet = context.getBean("pooledTweet");
+        context.release("pooledTweet", tweet);
+        return tweet;
+    }
+}
@@ -0,0 +1,13 @@
+package ua.rd.benchmarks;
+
+public class PlainBean {
+    private long counter;
+
+    public void init() {
+        counter = 1;
+    }
+
+    public long getCounter() {
+        return counter;
+    }
+}
@@ -0,0 +1,69 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.ContextOptions;
+import ua.rd.ioc.JavaMapConfig;
+import ua.rd.ioc.ProxyEngine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Call overhead of the {@link ua.rd.ioc.Benchmark} proxies: a raw call, a
+ * timed call and an untimed pass-through, for each {@link ProxyEngine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyBenchmark {
+
+    @Param({"JDK", "GENERATED"})
+    private ProxyEngine engine;
+
+    private Calculator raw;
+    private Calculator proxied;
+    private long value = 42;
+
+    @Setup
+    public void setUp() {
+        Map<String, Map<String, Object>> beanDescriptions = new HashMap<>();
+        Map<String, Object> calculator = new HashMap<>();
+        calculator.put("type", BenchmarkedCalculator.class);
+        beanDescriptions.put("calculator", calculator);
+
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                ContextOptions.builder().proxyEngine(engine).build());
+        proxied = (Calculator) context.getBean("calculator");
+        raw = new BenchmarkedCalculator();
+    }
+
+    @Benchmark
+    public long raw() {
+        return raw.timed(value);
+    }
+
+    @Benchmark
+    public long timed() {
+        return proxied.timed(value);
+    }
+
+    @Benchmark
+    public long passThrough() {
+        return proxied.plain(value);
+    }
+}
@@ -0,0 +1,69 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.rd.domain.Tweet;
+import ua.rd.repository.IndexedTweetRepository;
+import ua.rd.repository.TweetRepository;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword search over a million tweets of eight words each, drawn from a
+ * Zipf-like vocabulary: through the {@link IndexedTweetRepository} search
+ * index and through the scanning {@link TweetRepository#search} default.
+ * The queries are a rare word, two common words and an alternative.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchBenchmark {
+    private static final int TWEETS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+
+    @Param({"word49000", "word1 word2", "word30000 OR word40000 word3"})
+    private String query;
+
+    private IndexedTweetRepository indexed;
+    private TweetRepository scanned;
+
+    @Setup
+    public void setUp() {
+        indexed = new IndexedTweetRepository();
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < TWEETS; i++) {
+            text.setLength(0);
+            for (int word = 0; word < 8; word++) {
+                double zipf = Math.pow(VOCABULARY, random.nextDouble());
+                text.append("word").append((int) zipf).append(' ');
+            }
+            indexed.save(new Tweet(text.toString(), null));
+        }
+        scanned = indexed::allTweets;
+    }
+
+    @Benchmark
+    public List<Tweet> index() {
+        return indexed.search(query, 20);
+    }
+
+    @Benchmark
+    public List<Tweet> scan() {
+        return scanned.search(query, 20);
+    }
+}
@@ -0,0 +1,91 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.Config;
+import ua.rd.services.SimpleTweetService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Our container against Spring's {@link ClassPathXmlApplicationContext} on
+ * the wiring of repoContext.xml/serviceContext.xml: startup, and
+ * singleton/prototype lookups on a started context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpringBaselineBenchmark {
+
+    private Config config;
+    private ApplicationContext context;
+    private ClassPathXmlApplicationContext repoContext;
+    private ClassPathXmlApplicationContext serviceContext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = Configs.tweets(SimpleTweetService.class);
+        context = new ApplicationContext(config);
+        repoContext = new ClassPathXmlApplicationContext("repoContext.xml");
+        serviceContext = new ClassPathXmlApplicationContext(new String[]{"serviceContext.xml"}, repoContext);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serviceContext.close();
+        repoContext.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ApplicationContext startup() {
+        return new ApplicationContext(config);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object springStartup() {
+        ClassPathXmlApplicationContext repo = new ClassPathXmlApplicationContext("repoContext.xml");
+        ClassPathXmlApplicationContext service =
+                new ClassPathXmlApplicationContext(new String[]{"serviceContext.xml"}, repo);
+        Object tweetService = service.getBean("tweetService");
+        service.close();
+        repo.close();
+        return tweetService;
+    }
+
+    @Benchmark
+    public Object singleton() {
+        return context.getBean("tweetService");
+    }
+
+    @Benchmark
+    public Object springSingleton() {
+        return serviceContext.getBean("tweetService");
+    }
+
+    @Benchmark
+    public Object prototype() {
+        return context.getBean("tweet");
+    }
+
+    @Benchmark
+    public Object springPrototype() {
+        return serviceContext.getBean("tweet");
+    }
+}
@@ -0,0 +1,59 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.rd.domain.Tweet;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.ContextOptions;
+import ua.rd.ioc.ProxyEngine;
+import ua.rd.services.SimpleTweetService;
+import ua.rd.services.TweetService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TweetService.allTweets} called on the plain bean and through the
+ * {@link ua.rd.ioc.Benchmark} proxy of each {@link ProxyEngine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TweetServiceBenchmark {
+
+    @Param({"JDK", "GENERATED"})
+    private ProxyEngine engine;
+
+    private TweetService raw;
+    private TweetService proxied;
+
+    @Setup
+    public void setUp() {
+        raw = (TweetService) new ApplicationContext(Configs.tweets(SimpleTweetService.class))
+                .getBean("tweetService");
+        proxied = (TweetService) new ApplicationContext(Configs.tweets(BenchmarkedTweetService.class),
+                ContextOptions.builder().proxyEngine(engine).build())
+                .getBean("tweetService");
+    }
+
+    @Benchmark
+    public Iterable<Tweet> raw() {
+        return raw.allTweets();
+    }
+
+    @Benchmark
+    public Iterable<Tweet> proxied() {
+        return proxied.allTweets();
+    }
+}
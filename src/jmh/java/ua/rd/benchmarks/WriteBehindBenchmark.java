@@ -0,0 +1,75 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+import ua.rd.repository.MappedTweetRepository;
+import ua.rd.repository.WriteBehindTweetRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable saves into a {@link MappedTweetRepository} from four threads:
+ * flushed one by one, and grouped by a {@link WriteBehindTweetRepository}.
+ * Queued tweets are flushed at the end of every iteration, so both report
+ * the cost of a tweet that reached the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class WriteBehindBenchmark {
+    private static final User USER = new User(1, "bench");
+
+    private MappedTweetRepository direct;
+    private MappedTweetRepository store;
+    private WriteBehindTweetRepository writeBehind;
+
+    @Setup
+    public void setUp() throws IOException {
+        direct = new MappedTweetRepository(Files.createTempDirectory("direct"));
+        store = new MappedTweetRepository(Files.createTempDirectory("write-behind"));
+        writeBehind = new WriteBehindTweetRepository(store);
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        writeBehind.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writeBehind.close();
+        store.close();
+        direct.close();
+    }
+
+    @Benchmark
+    public Tweet direct() {
+        Tweet tweet = direct.save(new Tweet("benchmark tweet", USER));
+        direct.flush();
+        return tweet;
+    }
+
+    @Benchmark
+    public Tweet writeBehind() {
+        return writeBehind.save(new Tweet("benchmark tweet", USER));
+    }
+}
@@ -0,0 +1,97 @@
+package ua.rd.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.UrlResource;
+import ua.rd.ioc.BeanDefinition;
+import ua.rd.ioc.XmlConfig;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading bean definitions with {@link XmlConfig} against Spring's
+ * {@link XmlBeanDefinitionReader}, which parses to a DOM and validates
+ * against the schema: serviceContext.xml, and a generated config of
+ * {@code files} files of 500 beans each, imported by one root file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlConfigBenchmark {
+    private static final int BEANS_PER_FILE = 500;
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<beans xmlns=\"http://www.springframework.org/schema/beans\"\n"
+            + "       xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+            + "       xsi:schemaLocation=\"http://www.springframework.org/schema/beans"
+            + " http://www.springframework.org/schema/beans/spring-beans.xsd\">\n";
+
+    @Param({"1", "8"})
+    private int files;
+
+    private URL root;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("xml-config");
+        StringBuilder imports = new StringBuilder(HEADER);
+        for (int file = 0; file < files; file++) {
+            StringBuilder beans = new StringBuilder(HEADER);
+            for (int bean = 0; bean < BEANS_PER_FILE; bean++) {
+                beans.append("    <bean id=\"plain").append(file).append('_').append(bean)
+                        .append("\" class=\"ua.rd.benchmarks.PlainBean\" init-method=\"init\"/>\n");
+            }
+            beans.append("</beans>\n");
+            String fileName = "beans" + file + ".xml";
+            Files.write(directory.resolve(fileName), beans.toString().getBytes(StandardCharsets.UTF_8));
+            imports.append("    <import resource=\"").append(fileName).append("\"/>\n");
+        }
+        imports.append("</beans>\n");
+        Path rootFile = directory.resolve("root.xml");
+        Files.write(rootFile, imports.toString().getBytes(StandardCharsets.UTF_8));
+        root = rootFile.toUri().toURL();
+    }
+
+    @Benchmark
+    public BeanDefinition[] serviceContext() {
+        return new XmlConfig("serviceContext.xml").beanDefinitions();
+    }
+
+    @Benchmark
+    public DefaultListableBeanFactory serviceContextSpring() {
+        DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+        new XmlBeanDefinitionReader(factory).loadBeanDefinitions(new ClassPathResource("serviceContext.xml"));
+        return factory;
+    }
+
+    @Benchmark
+    public BeanDefinition[] generated() {
+        return new XmlConfig(root).beanDefinitions();
+    }
+
+    @Benchmark
+    public DefaultListableBeanFactory generatedSpring() {
+        DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+        new XmlBeanDefinitionReader(factory).loadBeanDefinitions(new UrlResource(root));
+        return factory;
+    }
+}
@@ -0,0 +1,28 @@
+package ua.rd;
+
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.ComponentIndexConfig;
+import ua.rd.ioc.Context;
+import ua.rd.services.TweetService;
+
+import java.util.Arrays;
+
+/**
+ * {@link IoCRunner} with the beans found through the component index
+ * instead of listed by hand.
+ */
+public class IoCComponentRunner {
+    public static void main(String[] args) {
+        Context context = new ApplicationContext(new ComponentIndexConfig("ua.rd"));
+
+        System.out.println(
+                Arrays.toString(context.getBeanDefinitionNames()));
+
+        TweetService tweetService = (TweetService) context.getBean("tweetService");
+        tweetService.streamTweets().forEach(System.out::println);
+
+        System.out.println(tweetService.getRepository() == tweetService.getRepository());
+
+        context.close();
+    }
+}
@@ -43,7 +43,7 @@ public class IoCRunner {
         TweetService tweetService = (TweetService) context.getBean("tweetService");
 
         System.out.println(tweetRepository.allTweets());
-        System.out.println(tweetService.allTweets());
+        tweetService.streamTweets().forEach(System.out::println);
 
 
         System.out.println(tweetService.getRepository() == tweetService.getRepository());
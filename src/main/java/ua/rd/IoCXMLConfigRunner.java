@@ -0,0 +1,37 @@
+package ua.rd;
+
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.XmlConfig;
+import ua.rd.services.TweetService;
+
+import java.util.Arrays;
+
+/**
+ * {@link SpringXMLConfigRunner} on our own container.
+ */
+public class IoCXMLConfigRunner {
+    public static void main(String[] args) {
+        ApplicationContext repoContext = new ApplicationContext(new XmlConfig("repoContext.xml"));
+
+        ApplicationContext serviceContext = new ApplicationContext(new XmlConfig("serviceContext.xml"), repoContext);
+
+        System.out.println(
+                Arrays.toString(repoContext.getBeanDefinitionNames()));
+
+        System.out.println(
+                Arrays.toString(serviceContext.getBeanDefinitionNames()));
+
+
+        TweetService tweetService = (TweetService) serviceContext.getBean("tweetService");
+        System.out.println(tweetService.allTweets());
+
+        System.out.println(
+                tweetService.getRepository() == tweetService.getRepository()
+        );
+
+
+        serviceContext.close();
+        repoContext.close();
+
+    }
+}
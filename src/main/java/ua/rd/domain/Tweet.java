@@ -1,5 +1,9 @@
 package ua.rd.domain;
 
+import ua.rd.ioc.Component;
+import ua.rd.ioc.Scope;
+
+@Component(value = "tweet", scope = Scope.PROTOTYPE)
 public class Tweet {
     private Long tweetId;
     private String txt;
@@ -1,198 +1,799 @@
 package ua.rd.ioc;
 
-import java.lang.reflect.*;
-import java.time.Duration;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.Period;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * A context may have a parent. Names and types it does not define itself
+ * are looked up in the parent, and its beans can depend on the parent's.
+ * A parent is {@link #freeze() frozen} when its first child is created, so
+ * any number of cheap children, one per tenant or test, share its
+ * singletons and resolved plans without ever changing it.
+ * <p>
+ * A {@link MyPostConstruct} or init method may return a
+ * {@link java.util.concurrent.CompletionStage} to finish initializing in the
+ * background, e.g. while it warms up a cache. Creating the context does not
+ * wait for it. A bean depending on such a bean is created at once, but its
+ * own {@code MyPostConstruct} and init methods run on the
+ * {@link ContextOptions#getInitExecutor() init executor} only when all of
+ * its dependencies are ready; beans that depend on nothing pending are
+ * initialized in place as before. Wait for {@link #readiness()} before
+ * using beans that may not be initialized yet. {@link #close()} waits for
+ * initializations still in progress before it destroys any bean.
+ */
 public class ApplicationContext implements Context {
-    private List<BeanDefinition> beanDefinitions;
-    private Map<String, Object> beans = new HashMap<>();
+    private final ApplicationContext parent;
+    private final List<BeanDefinition> beanDefinitions;
+    private final Map<String, BeanDefinition> beanDefinitionIndex;
+    private final String[] beanDefinitionNames;
+    private final TypeIndex typeIndex;
+    private final Map<String, BeanPlan> beanPlans = new ConcurrentHashMap<>();
+    private final SingletonRegistry singletons = new SingletonRegistry();
+    private final ContextOptions options;
+    private final Map<String, Scope> scopes;
+    private final Map<String, Supplier<Object>> scopedFactories = new ConcurrentHashMap<>();
+    private final Map<String, Map<Method, LatencyHistogram>> beanHistograms = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> benchmarks = new ConcurrentHashMap<>();
+    private final Map<String, Map<Method, MethodCache>> beanCaches = new ConcurrentHashMap<>();
+    private final Map<String, MethodCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, GeneratedProxyFactory> proxyFactories = new ConcurrentHashMap<>();
+    private final Set<String> instantiatedBeans = ConcurrentHashMap.newKeySet();
+    private final Deque<DestroyCallback> destroyCallbacks = new ConcurrentLinkedDeque<>();
+    private final Map<Object, CompletableFuture<Void>> pendingBeans =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+    private volatile CompletableFuture<Void> failedInitialization;
+    private volatile Map<String, Long> creationTimings;
+    private volatile boolean frozen;
+    private StartupReport startupReport;
 
     public ApplicationContext(Config config) {
-        beanDefinitions = Arrays.asList(config.beanDefinitions());
+        this(config, ContextOptions.defaults());
+    }
+
+    public ApplicationContext(Config config, ContextOptions options) {
+        this(config, options, null);
+    }
+
+    public ApplicationContext(Config config, ApplicationContext parent) {
+        this(config, ContextOptions.defaults(), parent);
+    }
+
+    /**
+     * @param parent frozen first, if it is not yet; may be {@code null}
+     */
+    public ApplicationContext(Config config, ContextOptions options, ApplicationContext parent) {
+        this(Arrays.asList(config.beanDefinitions()), options, parent == null ? null : parent.freeze());
         initContext(beanDefinitions);
     }
 
+    /**
+     * Restores a {@link ContextSnapshot}: every bean plan is rebuilt from
+     * its record, so no dependency is autowired and no class is scanned.
+     */
+    ApplicationContext(Map<BeanDefinition, BeanPlan.Record> records, ContextOptions options) {
+        this(new ArrayList<>(records.keySet()), options, null);
+        records.forEach((bd, record) -> beanPlans.put(bd.getBeanName(), BeanPlan.restore(bd, record)));
+        initContext(beanDefinitions);
+    }
+
+    /**
+     * The plan of every definition in {@code config}, resolved by a context
+     * that creates no beans.
+     */
+    static Map<BeanDefinition, BeanPlan.Record> resolvePlans(Config config, ContextOptions options) {
+        ApplicationContext context = new ApplicationContext(Arrays.asList(config.beanDefinitions()), options, null);
+        context.buildDependencyGraph();
+        Map<BeanDefinition, BeanPlan.Record> records = new LinkedHashMap<>();
+        for (BeanDefinition bd : context.beanDefinitions) {
+            records.put(bd, context.getBeanPlan(bd).toRecord());
+        }
+        return records;
+    }
+
+    private ApplicationContext(List<BeanDefinition> beanDefinitions, ContextOptions options,
+                               ApplicationContext parent) {
+        this.parent = parent;
+        this.beanDefinitions = beanDefinitions;
+        this.options = options;
+        this.beanDefinitionIndex = indexBeanDefinitions(beanDefinitions);
+        this.beanDefinitionNames = beanDefinitions.stream()
+                .map(BeanDefinition::getBeanName).toArray(String[]::new);
+        this.typeIndex = new TypeIndex(beanDefinitions, beanDefinitionIndex,
+                parent == null ? null : parent.typeIndex);
+        this.scopes = scopes(beanDefinitions, options);
+    }
+
+    /**
+     * The built-in scopes, overridden by the ones in {@code options}. Every
+     * definition has to name a known scope.
+     */
+    private static Map<String, Scope> scopes(List<BeanDefinition> beanDefinitions, ContextOptions options) {
+        Map<String, Scope> scopes = new HashMap<>();
+        scopes.put(Scope.THREAD, new ThreadScope());
+        scopes.put(Scope.REQUEST, new RequestScope());
+        scopes.put(Scope.POOLED, new PooledScope());
+        scopes.putAll(options.getScopes());
+        for (BeanDefinition bd : beanDefinitions) {
+            if (!bd.isSingleton() && !bd.isPrototype() && !scopes.containsKey(bd.getScope())) {
+                throw new BeanDefinitionException("Unknown scope '" + bd.getScope()
+                        + "' of bean '" + bd.getBeanName() + "'");
+            }
+        }
+        return Collections.unmodifiableMap(scopes);
+    }
+
     private void initContext(List<BeanDefinition> beanDefinitions) {
-        beanDefinitions.forEach(bd -> getBean(bd.getBeanName()));
+        Object startupEvent = LifecycleEvents.beginStartup();
+        long start = System.nanoTime();
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        creationTimings = timings;
+        DependencyGraph graph = buildDependencyGraph();
+        try {
+            if (options.isParallelStartup()) {
+                initContextInParallel(graph);
+            } else {
+                beanDefinitions.stream()
+                        .filter(this::isEagerSingleton)
+                        .forEach(bd -> getBean(bd.getBeanName()));
+            }
+        } finally {
+            creationTimings = null;
+        }
+        startupReport = new StartupReport(options.isParallelStartup(), System.nanoTime() - start,
+                graph.criticalPath(timings), timings);
+        LifecycleEvents.endStartup(startupEvent, timings.size(), startupReport);
+    }
+
+    /**
+     * Schedules every bean on a ForkJoinPool as soon as the beans its
+     * constructor needs are done, so independent subgraphs are built
+     * concurrently.
+     */
+    private void initContextInParallel(DependencyGraph graph) {
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        try {
+            Map<String, CompletableFuture<Void>> created = new HashMap<>();
+            for (String beanName : graph.topologicalOrder()) {
+                CompletableFuture<?>[] dependencies = graph.dependenciesOf(beanName).stream()
+                        .map(created::get).toArray(CompletableFuture<?>[]::new);
+                CompletableFuture<Void> dependenciesCreated = CompletableFuture.allOf(dependencies);
+                created.put(beanName, isEagerSingleton(getBeanDefinitionByName(beanName))
+                        ? dependenciesCreated.thenRunAsync(() -> getBean(beanName), pool)
+                        : dependenciesCreated);
+            }
+            CompletableFuture.allOf(created.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The graph only covers eager singletons and whatever they depend on,
+     * so lazy beans are not even resolved until they are first requested.
+     * Beans of the parent are left out; they already exist.
+     */
+    private DependencyGraph buildDependencyGraph() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        Deque<BeanDefinition> pending = new ArrayDeque<>();
+        beanDefinitions.stream().filter(this::isEagerSingleton).forEach(pending::add);
+        while (!pending.isEmpty()) {
+            BeanDefinition bd = pending.poll();
+            if (dependencies.containsKey(bd.getBeanName())) {
+                continue;
+            }
+            List<String> beanDependencies = new ArrayList<>();
+            for (String dependencyName : getBeanPlan(bd).getDependencyNames()) {
+                BeanDefinition dependency = dependencyName == null ? null : beanDefinitionIndex.get(dependencyName);
+                if (dependency == null) {
+                    continue;
+                }
+                beanDependencies.add(dependency.getBeanName());
+                pending.add(dependency);
+            }
+            dependencies.put(bd.getBeanName(), beanDependencies);
+        }
+        return new DependencyGraph(dependencies);
+    }
+
+    private boolean isEagerSingleton(BeanDefinition beanDefinition) {
+        return beanDefinition.isSingleton() && !beanDefinition.isLazy() && !options.isDefaultLazy();
     }
 
     public ApplicationContext() {
-        beanDefinitions = Arrays.asList(Config.EMPTY_BEANDEFINITION);
+        this(Arrays.asList(Config.EMPTY_BEANDEFINITION), ContextOptions.defaults(), null);
+    }
+
+    @Override
+    public ApplicationContext getParent() {
+        return parent;
+    }
+
+    /**
+     * Creates every singleton, lazy ones included, and resolves the plan of
+     * every bean, so that from now on lookups only read maps that no longer
+     * change: singletons are a lock-free hash probe and nothing is resolved
+     * any more. Prototypes and scoped beans are still created on demand.
+     * Freezing again does nothing.
+     */
+    public ApplicationContext freeze() {
+        if (!frozen) {
+            for (BeanDefinition bd : beanDefinitions) {
+                getBeanPlan(bd);
+                if (bd.isSingleton()) {
+                    getBean(bd.getBeanName());
+                } else if (isScoped(bd)) {
+                    scopedFactory(bd);
+                }
+            }
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public StartupReport getStartupReport() {
+        return startupReport;
+    }
+
+    /**
+     * Names of the beans that have not been instantiated yet, e.g. lazy
+     * singletons nobody asked for.
+     */
+    public String[] getUntouchedBeanNames() {
+        return beanDefinitions.stream()
+                .map(BeanDefinition::getBeanName)
+                .filter(name -> !instantiatedBeans.contains(name))
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Builds the immutable name/alias -> definition index once, so that
+     * every later lookup is a single hash probe instead of a list scan.
+     */
+    private static Map<String, BeanDefinition> indexBeanDefinitions(List<BeanDefinition> beanDefinitions) {
+        Map<String, BeanDefinition> index = new HashMap<>(beanDefinitions.size() * 2);
+        for (BeanDefinition bd : beanDefinitions) {
+            register(index, bd.getBeanName(), bd);
+        }
+        for (BeanDefinition bd : beanDefinitions) {
+            for (String alias : bd.getAliases()) {
+                register(index, alias, bd);
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static void register(Map<String, BeanDefinition> index, String name, BeanDefinition bd) {
+        BeanDefinition existing = index.putIfAbsent(name, bd);
+        if (existing != null) {
+            throw new BeanDefinitionException("Duplicate bean name '" + name + "' for beans '"
+                    + existing.getBeanName() + "' and '" + bd.getBeanName() + "'");
+        }
     }
 
     public Object getBean(String beanName) {
 
+        BeanDefinition beanDefinition = beanDefinitionIndex.get(beanName);
+        if (beanDefinition == null) {
+            if (parent != null) {
+                return parent.getBean(beanName);
+            }
+            LifecycleEvents.lookupMiss(beanName);
+            throw new NoSuchBeanException();
+        }
+        if (beanDefinition.isPrototype()) {
+            return createNewBean(beanDefinition);
+        }
+        if (!beanDefinition.isSingleton()) {
+            return scopes.get(beanDefinition.getScope())
+                    .get(beanDefinition.getBeanName(), scopedFactory(beanDefinition));
+        }
+        Object singleton = singletons.get(beanDefinition.getBeanName());
+        if (singleton != null) {
+            return singleton;
+        }
+        return singletons.getOrCreate(beanDefinition.getBeanName(),
+                () -> createNewBean(beanDefinition));
+    }
+
+    /**
+     * The factory handed to the scope of a bean, created once so that a
+     * scoped lookup allocates nothing.
+     */
+    private Supplier<Object> scopedFactory(BeanDefinition beanDefinition) {
+        Supplier<Object> factory = scopedFactories.get(beanDefinition.getBeanName());
+        if (factory == null) {
+            factory = scopedFactories.computeIfAbsent(beanDefinition.getBeanName(),
+                    name -> () -> createNewBean(beanDefinition));
+        }
+        return factory;
+    }
+
+    /**
+     * Hands a scoped bean back when its borrower is done with it: calls its
+     * {@link MyReset} methods and passes it to its scope, which for a
+     * {@link Scope#POOLED pooled} bean means the next {@code getBean} may
+     * return it again. The caller must not use {@code bean} afterwards.
+     *
+     * @throws IllegalArgumentException when the bean's scope does not take
+     * instances back, e.g. a singleton or a thread scoped bean, or when
+     * {@code bean} is neither of the bean's type nor a proxy of it
+     */
+    public void release(String beanName, Object bean) {
+        if (parent != null && !beanDefinitionIndex.containsKey(beanName)) {
+            parent.release(beanName, bean);
+            return;
+        }
         BeanDefinition beanDefinition = getBeanDefinitionByName(beanName);
-        return Optional
-                .ofNullable(beans.get(beanName))
-                .orElseGet(() ->
-                    createBeanByDefinition(beanDefinition)
-                );
+        Scope scope = isScoped(beanDefinition) ? scopes.get(beanDefinition.getScope()) : null;
+        if (scope == null || !scope.isReleasable()) {
+            throw new IllegalArgumentException("Bean '" + beanName + "' is a "
+                    + beanDefinition.getScope() + " and can not be released");
+        }
+        BeanPlan beanPlan = getBeanPlan(beanDefinition);
+        if (!isBeanOrProxy(beanPlan, bean)) {
+            throw new IllegalArgumentException("Can not release a "
+                    + (bean == null ? "null" : bean.getClass().getName()) + " as bean '" + beanName + "'");
+        }
+        beanPlan.callResetMethods(bean);
+        scope.release(beanDefinition.getBeanName(), bean);
     }
 
-    private Object createBeanByDefinition(BeanDefinition beanDefinition) {
-        String beanName = beanDefinition.getBeanName();
-        Object bean = createNewBean(beanDefinition);
-        if (!beanDefinition.isPrototype()) {
-            beans.put(beanName, bean);
+    /**
+     * Whether {@code bean} is of the type of {@code beanPlan}'s bean, or one
+     * of the proxies this context puts over such beans.
+     */
+    private boolean isBeanOrProxy(BeanPlan beanPlan, Object bean) {
+        BeanDefinition beanDefinition = beanPlan.getBeanDefinition();
+        if (beanDefinition.getBeanType().isInstance(bean)) {
+            return true;
         }
-        return bean;
+        Class<?>[] interfaces = beanPlan.getInterfaces();
+        if (bean == null || interfaces.length == 0 || !beanPlan.isBenchmarkProxy() && !beanPlan.isCachingProxy()) {
+            return false;
+        }
+        for (Class<?> anInterface : interfaces) {
+            if (!anInterface.isInstance(bean)) {
+                return false;
+            }
+        }
+        GeneratedProxyFactory proxyFactory = proxyFactories.get(beanDefinition.getBeanName());
+        return Proxy.isProxyClass(bean.getClass()) || proxyFactory != null && proxyFactory.isProxy(bean);
+    }
+
+    /**
+     * Counters of every {@link Scope#POOLED pooled} bean borrowed so far, by
+     * bean name; empty when the pooled scope is not a {@link PooledScope}.
+     */
+    public Map<String, PoolStats> getPoolStats() {
+        Scope pooled = scopes.get(Scope.POOLED);
+        return pooled instanceof PooledScope ? ((PooledScope) pooled).stats() : Collections.emptyMap();
+    }
+
+    /**
+     * Beans of this context come first; the parent is only asked when none
+     * of them matches.
+     */
+    @Override
+    public <T> T getBean(Class<T> type) {
+        if (typeIndex.candidates(type).isEmpty()) {
+            if (parent != null) {
+                return parent.getBean(type);
+            }
+            LifecycleEvents.lookupMiss(type.getName());
+        }
+        BeanDefinition beanDefinition = typeIndex.resolve(type);
+        return cast(beanDefinition.getBeanName(), getBean(beanDefinition.getBeanName()), type);
+    }
+
+    /**
+     * Includes the beans of the parent, listed first; a bean of this context
+     * replaces the parent's bean of the same name.
+     */
+    @Override
+    public <T> Map<String, T> getBeansOfType(Class<T> type) {
+        Map<String, T> beans = parent == null ? new LinkedHashMap<>() : parent.getBeansOfType(type);
+        for (BeanDefinition bd : typeIndex.candidates(type)) {
+            beans.put(bd.getBeanName(), cast(bd.getBeanName(), getBean(bd.getBeanName()), type));
+        }
+        return beans;
+    }
+
+    /**
+     * A JDK proxy only implements the bean's interfaces, so a benchmarked
+     * bean can not be looked up by its class.
+     */
+    private static <T> T cast(String beanName, Object bean, Class<T> type) {
+        if (!type.isInstance(bean)) {
+            throw new BeanCreationException("Bean '" + beanName + "' is proxied and is not a "
+                    + type.getName() + "; look it up by one of its interfaces");
+        }
+        return type.cast(bean);
     }
 
     private Object createNewBean(BeanDefinition beanDefinition) {
-        BeanBuilder beanBuilder = new BeanBuilder(beanDefinition);
+        BeanPlan beanPlan = getBeanPlan(beanDefinition);
+        if (beanPlan.hasResetMethods() && (beanPlan.isCachingProxy() || beanPlan.isBenchmarkProxy())) {
+            throw new BeanCreationException("Bean '" + beanDefinition.getBeanName()
+                    + "' has reset methods and can not be proxied");
+        }
+        String beanName = beanDefinition.getBeanName();
+        Object creationEvent = LifecycleEvents.beginCreation();
+        Object phaseEvent = LifecycleEvents.beginPhase();
+        BeanBuilder beanBuilder = new BeanBuilder(beanPlan);
+        beanBuilder.resolveDependencies();
+        phaseEvent = LifecycleEvents.nextPhase(phaseEvent, beanName, LifecycleEvents.RESOLVE);
+        long start = System.nanoTime();
         beanBuilder.createNewBeanInstance();
-        beanBuilder.callPostConstructAnnotatedMethod();
-        beanBuilder.callInitMethod();
+        phaseEvent = LifecycleEvents.nextPhase(phaseEvent, beanName, LifecycleEvents.INSTANTIATE);
+        if (beanBuilder.dependenciesReady == null) {
+            beanBuilder.callPostConstructAnnotatedMethod();
+            phaseEvent = LifecycleEvents.nextPhase(phaseEvent, beanName, LifecycleEvents.POST_CONSTRUCT);
+            beanBuilder.callInitMethod();
+        } else {
+            beanBuilder.deferInitialization();
+        }
+        beanBuilder.registerPreDestroyMethods();
+        phaseEvent = LifecycleEvents.nextPhase(phaseEvent, beanName, LifecycleEvents.INIT);
+        beanBuilder.createCachingProxy();
         beanBuilder.createBenchmarkProxy();
+        LifecycleEvents.endPhase(phaseEvent, beanName, LifecycleEvents.PROXY);
 
         Object bean = beanBuilder.build();
+        trackReadiness(beanName, bean, beanBuilder.initialized);
+        LifecycleEvents.endCreation(creationEvent, beanDefinition);
 
+        instantiatedBeans.add(beanName);
+        Map<String, Long> timings = creationTimings;
+        if (timings != null) {
+            timings.put(beanName, System.nanoTime() - start);
+        }
         return bean;
 
     }
 
-    private BeanDefinition getBeanDefinitionByName(String beanName) {
-        return beanDefinitions.stream()
-                .filter(bd -> Objects.equals(bd.getBeanName(), beanName))
-                .findAny().orElseThrow(NoSuchBeanException::new);
+    /**
+     * Keeps the initialization of {@code bean} while it is in progress, so
+     * that its dependents and {@link #readiness()} can wait for it. Once it
+     * is done the bean is dropped; of the failed ones only the first is kept,
+     * for {@link #readiness()}, so failing prototypes do not pile up.
+     */
+    private void trackReadiness(String beanName, Object bean, CompletableFuture<Void> initialized) {
+        if (initialized == null || initialized.isDone() && !initialized.isCompletedExceptionally()) {
+            return;
+        }
+        CompletableFuture<Void> readiness = initialized.handle((ready, failure) -> {
+            if (failure != null) {
+                throw new BeanCreationException("Bean '" + beanName + "' failed to initialize",
+                        failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure);
+            }
+            return null;
+        });
+        pendingBeans.put(bean, readiness);
+        readiness.whenComplete((ready, failure) -> {
+            pendingBeans.remove(bean);
+            if (failure != null && failedInitialization == null) {
+                failedInitialization = readiness;
+            }
+        });
     }
 
-    public String[] getBeanDefinitionNames() {
-        return beanDefinitions.stream().map(bd -> bd.getBeanName()).toArray(String[]::new);
-
+    /**
+     * The initialization {@code bean} is still busy with, here or in a
+     * parent; {@code null} when it is ready.
+     */
+    private CompletableFuture<Void> readinessOf(Object bean) {
+        CompletableFuture<Void> readiness = pendingBeans.isEmpty() ? null : pendingBeans.get(bean);
+        if (readiness == null && parent != null) {
+            return parent.readinessOf(bean);
+        }
+        return readiness;
     }
 
-    class BeanBuilder {
-        private BeanDefinition beanDefinition;
-        private Object bean;
+    /**
+     * Covers the beans of the parent too. Beans created later, such as
+     * prototypes, are only covered by the futures returned after them.
+     */
+    @Override
+    public CompletableFuture<Void> readiness() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (pendingBeans) {
+            pending = new ArrayList<>(pendingBeans.values());
+        }
+        if (failedInitialization != null) {
+            pending.add(failedInitialization);
+        }
+        if (parent != null) {
+            pending.add(parent.readiness());
+        }
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]));
+    }
 
-        public BeanBuilder(BeanDefinition beanDefinition) {
-            this.beanDefinition = beanDefinition;
+    private static CompletableFuture<Void> allOf(CompletableFuture<Void> first, CompletableFuture<Void> second) {
+        if (first == null) {
+            return second;
         }
+        return second == null ? first : CompletableFuture.allOf(first, second);
+    }
 
-        private void createNewBeanInstance() {
-            Class<?> type = beanDefinition.getBeanType();
-            Constructor<?> constructor = type.getDeclaredConstructors()[0];
-            Object newBean;
+    private static boolean isScoped(BeanDefinition beanDefinition) {
+        return !beanDefinition.isSingleton() && !beanDefinition.isPrototype();
+    }
 
-            if (constructor.getParameterCount() == 0) {
-                newBean = createBeanWithDefaultConstructor(type);
-            } else {
-                newBean = createNewBeanWithConstructorWithParams(type);
-            }
-            bean = newBean;
+    /**
+     * The definition of {@code beanName} in this context or its ancestors.
+     */
+    private BeanDefinition findBeanDefinition(String beanName) {
+        BeanDefinition beanDefinition = beanDefinitionIndex.get(beanName);
+        if (beanDefinition == null && parent != null) {
+            return parent.findBeanDefinition(beanName);
+        }
+        if (beanDefinition == null) {
+            throw new NoSuchBeanException();
         }
+        return beanDefinition;
+    }
 
-        private void callPostConstructAnnotatedMethod() {
-            Class<?> beanType = bean.getClass();
+    private BeanDefinition getBeanDefinitionByName(String beanName) {
+        BeanDefinition beanDefinition = beanDefinitionIndex.get(beanName);
+        if (beanDefinition == null) {
+            throw new NoSuchBeanException();
+        }
+        return beanDefinition;
+    }
+
+    public String[] getBeanDefinitionNames() {
+        return beanDefinitionNames.clone();
+    }
+
+    /**
+     * One histogram per benchmarked method of a bean name, shared by all
+     * instances of a prototype.
+     */
+    private Map<Method, LatencyHistogram> getBenchmarkHistograms(BeanPlan beanPlan) {
+        String beanName = beanPlan.getBeanDefinition().getBeanName();
+        return beanHistograms.computeIfAbsent(beanName, name -> {
+            Map<Method, LatencyHistogram> histograms = new HashMap<>();
+            beanPlan.getBenchmarkedMethods().forEach((method, key) ->
+                    histograms.put(method, benchmarks.computeIfAbsent(name + "." + key,
+                            k -> new LatencyHistogram())));
+            return histograms;
+        });
+    }
+
+    /**
+     * One cache per cached method of a bean name, so all instances of a
+     * prototype share their results.
+     */
+    private Map<Method, MethodCache> getMethodCaches(BeanPlan beanPlan) {
+        String beanName = beanPlan.getBeanDefinition().getBeanName();
+        return beanCaches.computeIfAbsent(beanName, name -> {
+            Map<Method, MethodCache> methodCaches = new HashMap<>();
+            beanPlan.getCachedMethods().forEach((method, cacheable) ->
+                    methodCaches.put(method, caches.computeIfAbsent(name + "." + BeanPlan.methodKey(method),
+                            k -> MethodCache.of(cacheable))));
+            return methodCaches;
+        });
+    }
+
+    private GeneratedProxyFactory getGeneratedProxyFactory(BeanPlan beanPlan) {
+        return proxyFactories.computeIfAbsent(beanPlan.getBeanDefinition().getBeanName(),
+                name -> GeneratedProxyFactory.generate(beanPlan));
+    }
+
+    @Override
+    public Map<String, LatencySnapshot> getBenchmarkResults() {
+        Map<String, LatencySnapshot> results = new TreeMap<>();
+        benchmarks.forEach((key, histogram) -> results.put(key, histogram.snapshot()));
+        return results;
+    }
+
+    @Override
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        caches.forEach((key, cache) -> stats.put(key, cache.stats()));
+        return stats;
+    }
 
+    /**
+     * Calls the {@link MyPreDestroy} methods of the singletons created so
+     * far, newest first, and prints the benchmark results when
+     * {@link ContextOptions#isReportBenchmarksOnClose()} is set. Closing
+     * again does nothing more than printing.
+     *
+     * @throws BeanDestructionException after all beans were destroyed, if
+     *                                  any of them failed
+     */
+    @Override
+    public void close() {
+        awaitInitializations();
+        BeanDestructionException failure = null;
+        DestroyCallback callback;
+        while ((callback = destroyCallbacks.pollFirst()) != null) {
             try {
-                Method[] methods = beanType.getMethods();
-                for (Method method : methods) {
-                    if (method.isAnnotationPresent(MyPostConstruct.class)) {
-                        method.invoke(bean);
-                    }
+                callback.beanPlan.callPreDestroyMethods(callback.bean);
+            } catch (Throwable e) {
+                BeanDestructionException beanFailure = new BeanDestructionException("Can not destroy bean '"
+                        + callback.beanPlan.getBeanDefinition().getBeanName() + "'", e);
+                if (failure == null) {
+                    failure = beanFailure;
+                } else {
+                    failure.addSuppressed(beanFailure);
                 }
-
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
             }
         }
+        if (options.isReportBenchmarksOnClose()) {
+            getBenchmarkResults().forEach((key, snapshot) -> System.out.println(key + ": " + snapshot));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
-        private void callInitMethod() {
-            Class<?> beanType = bean.getClass();
-            try {
-                Method initMethod = beanType.getMethod("init");
-                initMethod.invoke(bean);
-            } catch (NoSuchMethodException e) {
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
-            }
+    /**
+     * Waits until no bean of this context is still initializing, so that
+     * none is destroyed while its deferred {@link MyPostConstruct} or init
+     * methods still run. Failed initializations do not stop the close.
+     */
+    private void awaitInitializations() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (pendingBeans) {
+            pending = new ArrayList<>(pendingBeans.values());
+        }
+        if (!pending.isEmpty()) {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                    .handle((ready, failure) -> null)
+                    .join();
         }
+    }
 
-        private Object createBeanWithDefaultConstructor(Class<?> type) {
+    public void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "context-shutdown"));
+    }
 
-            Object newBean;
-            try {
-                newBean = type.newInstance();
-            } catch (Exception e) {
-                throw new IllegalArgumentException(e);
+    private BeanPlan getBeanPlan(BeanDefinition beanDefinition) {
+        BeanPlan beanPlan = beanPlans.get(beanDefinition.getBeanName());
+        if (beanPlan == null) {
+            beanPlan = beanPlans.computeIfAbsent(beanDefinition.getBeanName(),
+                    name -> BeanPlan.resolve(beanDefinition, typeIndex));
+        }
+        return beanPlan;
+    }
+
+    class BeanBuilder {
+        private final BeanPlan beanPlan;
+        private Object[] parameters;
+        private Object bean;
+        private CompletableFuture<Void> dependenciesReady;
+        private CompletableFuture<Void> initialized;
+
+        public BeanBuilder(BeanPlan beanPlan) {
+            this.beanPlan = beanPlan;
+        }
+
+        /**
+         * A singleton would keep the instance of whichever thread or request
+         * created it, so it can not depend on a scoped bean.
+         */
+        private void resolveDependencies() {
+            BeanDefinition beanDefinition = beanPlan.getBeanDefinition();
+            String[] dependencyNames = beanPlan.getDependencyNames();
+            parameters = beanPlan.newArguments();
+            for (int i = 0; i < dependencyNames.length; i++) {
+                if (dependencyNames[i] == null) {
+                    continue;
+                }
+                BeanDefinition dependency = findBeanDefinition(dependencyNames[i]);
+                if (beanDefinition.isSingleton() && isScoped(dependency)) {
+                    throw new BeanCreationException("Singleton '" + beanDefinition.getBeanName()
+                            + "' can not depend on " + dependency.getScope() + " scoped bean '"
+                            + dependency.getBeanName() + "'");
+                }
+                parameters[i] = getBean(dependencyNames[i]);
+                dependenciesReady = allOf(dependenciesReady, readinessOf(parameters[i]));
             }
-            return newBean;
         }
 
-        private Object createNewBeanWithConstructorWithParams(Class<?> type) {
-            Constructor<?> constructor = type.getDeclaredConstructors()[0];
-            Class<?>[] parameterTypes = constructor.getParameterTypes();
+        private void createNewBeanInstance() {
+            bean = beanPlan.instantiate(parameters);
+        }
 
+        private void callPostConstructAnnotatedMethod() {
+            initialized = beanPlan.callPostConstructMethods(bean);
+        }
 
-            List<Object> parameters = new ArrayList<>();
+        private void callInitMethod() {
+            initialized = allOf(initialized, beanPlan.callInitMethod(bean));
+        }
 
-            for (Class<?> parameterType : parameterTypes) {
-                String name = Character.toLowerCase(parameterType.getSimpleName().charAt(0)) +
-                        parameterType.getSimpleName().substring(1);
-                parameters.add(getBean(name));
-            }
+        /**
+         * The callbacks may use the dependencies, so they wait until every
+         * dependency still initializing is ready.
+         */
+        private void deferInitialization() {
+            Object target = bean;
+            initialized = dependenciesReady.thenComposeAsync(ready -> {
+                CompletableFuture<Void> done = allOf(beanPlan.callPostConstructMethods(target),
+                        beanPlan.callInitMethod(target));
+                return done == null ? CompletableFuture.<Void>completedFuture(null) : done;
+            }, options.getInitExecutor());
+        }
 
-            Object object = null;
-            try {
-                object = type.getConstructor(parameterTypes).newInstance(parameters.toArray());
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
-            } catch (NoSuchMethodException e) {
-                e.printStackTrace();
+        private void registerPreDestroyMethods() {
+            BeanDefinition beanDefinition = beanPlan.getBeanDefinition();
+            if (!beanPlan.hasPreDestroyMethods() || beanDefinition.isPrototype()) {
+                return;
             }
+            if (beanDefinition.isSingleton()) {
+                destroyCallbacks.addFirst(new DestroyCallback(beanPlan, bean));
+            } else {
+                Object target = bean;
+                scopes.get(beanDefinition.getScope()).registerDestructionCallback(beanDefinition.getBeanName(),
+                        () -> beanPlan.callPreDestroyMethods(target));
+            }
+        }
 
-            return object;
+        private void createCachingProxy() {
+            if (!beanPlan.isCachingProxy()) {
+                return;
+            }
+            bean = Proxy.newProxyInstance(
+                    bean.getClass().getClassLoader(),
+                    beanPlan.getInterfaces(),
+                    new CachingInvocationHandler(bean, getMethodCaches(beanPlan)));
         }
 
         private void createBenchmarkProxy() {
-            Class<?> beanType = bean.getClass();
-            Object newBean = bean;
-
-            for (Method method : beanType.getMethods()) {
-                if (method.isAnnotationPresent(Benchmark.class)) {
-                    bean = Proxy.newProxyInstance(
-                            beanType.getClassLoader(),
-                            beanType.getInterfaces(),
-                            new InvocationHandler() {
-                                @Override
-                                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                                    Method m = beanType.getMethod(method.getName(), method.getParameterTypes());
-                                    if (m.isAnnotationPresent(Benchmark.class) && m.getAnnotation(Benchmark.class).enabled()) {
-                                        Long start = System.nanoTime();
-                                        LocalDateTime before = LocalDateTime.now();
-                                        Object result = method.invoke(newBean, args);
-                                        Long stop = System.nanoTime();
-                                        LocalDateTime after = LocalDateTime.now();
-                                        //System.out.println("Duration: " + (stop - start));
-                                        //System.out.println(Duration.between(before, after).getNano());
-                                        return result;
-                                    } else {
-                                        return method.invoke(newBean, args);
-                                    }
-                                }
-                            });
-                    break;
-                }
+            if (!beanPlan.isBenchmarkProxy()) {
+                return;
             }
-
+            Class<?>[] interfaces = beanPlan.getInterfaces();
+            if (options.getProxyEngine() == ProxyEngine.GENERATED && (interfaces.length == 0
+                    ? GeneratedProxyFactory.canSubclass(beanPlan.getBeanDefinition().getBeanType())
+                    : GeneratedProxyFactory.canImplement(interfaces))) {
+                bean = getGeneratedProxyFactory(beanPlan).newProxy(bean, getBenchmarkHistograms(beanPlan));
+                return;
+            }
+            if (interfaces.length == 0) {
+                return;
+            }
+            bean = Proxy.newProxyInstance(
+                    bean.getClass().getClassLoader(),
+                    interfaces,
+                    new BenchmarkInvocationHandler(bean, getBenchmarkHistograms(beanPlan)));
         }
 
-
         public Object build() {
             return bean;
         }
     }
+
+    /**
+     * An unproxied singleton and the plan holding its destroy callbacks.
+     */
+    private static final class DestroyCallback {
+        private final BeanPlan beanPlan;
+        private final Object bean;
+
+        private DestroyCallback(BeanPlan beanPlan, Object bean) {
+            this.beanPlan = beanPlan;
+            this.bean = bean;
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package ua.rd.ioc;
+
+public class BeanCreationException extends RuntimeException {
+    public BeanCreationException(String message) {
+        super(message);
+    }
+
+    public BeanCreationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
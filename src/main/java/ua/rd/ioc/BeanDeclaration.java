@@ -0,0 +1,24 @@
+package ua.rd.ioc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Compile-time counterpart of a {@link JavaMapConfig} entry, read by
+ * {@link ua.rd.ioc.processor.ContextProcessor} for types annotated with
+ * {@link GeneratedContext}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+@Repeatable(BeanDeclarations.class)
+public @interface BeanDeclaration {
+    String name();
+    Class<?> type();
+    boolean prototype() default false;
+    boolean lazy() default false;
+    boolean primary() default false;
+    String[] aliases() default {};
+}
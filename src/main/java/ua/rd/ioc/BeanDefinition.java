@@ -1,9 +1,52 @@
 package ua.rd.ioc;
 
 public interface BeanDefinition {
+    ConstructorArgument[] NO_CONSTRUCTOR_ARGUMENTS = new ConstructorArgument[0];
+    String[] NO_ALIASES = new String[0];
 
     String getBeanName();
     Class<?> getBeanType();
 
     boolean isPrototype();
+
+    /**
+     * {@link Scope#SINGLETON}, {@link Scope#PROTOTYPE} or the name of a
+     * {@link Scope} registered with the context.
+     */
+    default String getScope() {
+        return isPrototype() ? Scope.PROTOTYPE : Scope.SINGLETON;
+    }
+
+    default boolean isSingleton() {
+        return Scope.SINGLETON.equals(getScope());
+    }
+
+    default boolean isLazy() {
+        return false;
+    }
+
+    default boolean isPrimary() {
+        return false;
+    }
+
+    default String[] getAliases() {
+        return NO_ALIASES;
+    }
+
+    /**
+     * Arguments for the constructor, in parameter order. When there are none
+     * the constructor is chosen by the context and its parameters are
+     * autowired.
+     */
+    default ConstructorArgument[] getConstructorArguments() {
+        return NO_CONSTRUCTOR_ARGUMENTS;
+    }
+
+    /**
+     * The public no-arg method to call after the {@link MyPostConstruct}
+     * ones, or {@code null} for a method named {@code init}, if there is one.
+     */
+    default String getInitMethodName() {
+        return null;
+    }
 }
@@ -0,0 +1,11 @@
+package ua.rd.ioc;
+
+public class BeanDefinitionException extends RuntimeException {
+    public BeanDefinitionException(String message) {
+        super(message);
+    }
+
+    public BeanDefinitionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
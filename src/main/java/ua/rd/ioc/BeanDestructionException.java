@@ -0,0 +1,11 @@
+package ua.rd.ioc;
+
+/**
+ * A {@link MyPreDestroy} method failed. The context still destroys the
+ * remaining beans; their failures are added as suppressed exceptions.
+ */
+public class BeanDestructionException extends RuntimeException {
+    public BeanDestructionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,824 @@
+package ua.rd.ioc;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Everything {@link ApplicationContext} needs to create a bean, resolved once
+ * per definition: the constructor, the beans autowired into it, the
+ * lifecycle callbacks and which of its methods are benchmarked or cached.
+ * Everything but the dependency names is resolved per bean class and kept.
+ * A definition with {@link ConstructorArgument}s or its own init method
+ * gets a variant of its class's plan, kept with it.
+ * A plan can also be restored from the names in a {@link Record}, as kept
+ * by a {@link ContextSnapshot}.
+ * A {@link MyPostConstruct} or init method may return a
+ * {@link CompletionStage}; the plan hands those back rather than waiting.
+ * Constructors and callbacks are compiled to lambdas through
+ * {@link LambdaMetafactory} when the bean type is visible from this class
+ * loader, and to spread {@link MethodHandle}s otherwise.
+ */
+final class BeanPlan {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String INIT_METHOD_NAME = "init";
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+    private static final Map<Class<?>, Function<String, Object>> CONVERTERS = new HashMap<>();
+
+    static {
+        for (Class<?> primitive : new Class<?>[]{boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class, void.class}) {
+            PRIMITIVES.put(primitive.getName(), primitive);
+        }
+        addConverter(boolean.class, Boolean.class, Boolean::valueOf);
+        addConverter(byte.class, Byte.class, Byte::valueOf);
+        addConverter(char.class, Character.class, BeanPlan::toCharacter);
+        addConverter(short.class, Short.class, Short::valueOf);
+        addConverter(int.class, Integer.class, Integer::valueOf);
+        addConverter(long.class, Long.class, Long::valueOf);
+        addConverter(float.class, Float.class, Float::valueOf);
+        addConverter(double.class, Double.class, Double::valueOf);
+        for (Class<?> type : new Class<?>[]{String.class, CharSequence.class, Object.class}) {
+            CONVERTERS.put(type, value -> value);
+        }
+    }
+
+    private static void addConverter(Class<?> primitive, Class<?> wrapper, Function<String, Object> converter) {
+        CONVERTERS.put(primitive, converter);
+        CONVERTERS.put(wrapper, converter);
+    }
+
+    private static Character toCharacter(String value) {
+        if (value.length() != 1) {
+            throw new IllegalArgumentException("not a single character");
+        }
+        return value.charAt(0);
+    }
+
+    /**
+     * The plan of every class, filled in by whichever of resolving or
+     * restoring a plan for it comes first.
+     */
+    private static final ClassValue<AtomicReference<TypePlan>> TYPE_PLANS =
+            new ClassValue<AtomicReference<TypePlan>>() {
+                @Override
+                protected AtomicReference<TypePlan> computeValue(Class<?> type) {
+                    return new AtomicReference<>();
+                }
+            };
+
+    private final BeanDefinition beanDefinition;
+    private final TypePlan typePlan;
+    private final String[] dependencyNames;
+    private final Object[] arguments;
+
+    private BeanPlan(BeanDefinition beanDefinition, TypePlan typePlan, String[] dependencyNames,
+                     Object[] arguments) {
+        this.beanDefinition = beanDefinition;
+        this.typePlan = typePlan;
+        this.dependencyNames = dependencyNames;
+        this.arguments = arguments;
+    }
+
+    static BeanPlan resolve(BeanDefinition beanDefinition, TypeIndex typeIndex) {
+        AtomicReference<TypePlan> cached = TYPE_PLANS.get(beanDefinition.getBeanType());
+        TypePlan typePlan = cached.get();
+        if (typePlan == null) {
+            cached.compareAndSet(null, TypePlan.resolve(beanDefinition.getBeanType()));
+            typePlan = cached.get();
+        }
+
+        ConstructorArgument[] constructorArguments = beanDefinition.getConstructorArguments();
+        if (constructorArguments.length > 0 || beanDefinition.getInitMethodName() != null) {
+            typePlan = typePlan.variant(beanDefinition, constructorArguments);
+        }
+
+        Class<?>[] parameterTypes = typePlan.parameterTypes;
+        String[] dependencyNames = new String[parameterTypes.length];
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (constructorArguments.length == 0) {
+                dependencyNames[i] = typeIndex.resolveDependency(beanDefinition, parameterTypes[i],
+                        typePlan.qualifiers[i], defaultBeanName(parameterTypes[i])).getBeanName();
+            } else if (constructorArguments[i].isRef()) {
+                dependencyNames[i] = constructorArguments[i].getRef();
+            } else if (!constructorArguments[i].isNull()) {
+                arguments[i] = convert(beanDefinition, constructorArguments[i].getValue(), parameterTypes[i]);
+            }
+        }
+        return new BeanPlan(beanDefinition, typePlan, dependencyNames, arguments);
+    }
+
+    private static Object convert(BeanDefinition beanDefinition, String value, Class<?> type) {
+        try {
+            if (type.isEnum()) {
+                return enumConstant(type, value);
+            }
+            return CONVERTERS.get(type).apply(value);
+        } catch (IllegalArgumentException e) {
+            throw new BeanDefinitionException("Can not convert '" + value + "' to " + type.getName()
+                    + " for bean '" + beanDefinition.getBeanName() + "': " + e.getMessage());
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumConstant(Class<?> type, String value) {
+        return Enum.valueOf((Class<? extends Enum>) type, value);
+    }
+
+    private static boolean isConvertible(Class<?> type) {
+        return type.isEnum() || CONVERTERS.containsKey(type);
+    }
+
+    /**
+     * The plan of a bean as captured in a {@link ContextSnapshot}.
+     *
+     * @throws BeanDefinitionException when the bean class no longer has the
+     *                                 recorded members
+     */
+    static BeanPlan restore(BeanDefinition beanDefinition, Record record) {
+        try {
+            AtomicReference<TypePlan> cached = TYPE_PLANS.get(beanDefinition.getBeanType());
+            TypePlan typePlan = cached.get();
+            if (typePlan == null) {
+                cached.compareAndSet(null, TypePlan.restore(beanDefinition.getBeanType(), record));
+                typePlan = cached.get();
+            }
+            return new BeanPlan(beanDefinition, typePlan, record.dependencyNames,
+                    new Object[record.dependencyNames.length]);
+        } catch (ReflectiveOperationException e) {
+            throw new BeanDefinitionException("Stale context snapshot for bean '"
+                    + beanDefinition.getBeanName() + "': " + e);
+        }
+    }
+
+    /**
+     * @throws BeanDefinitionException for a definition with constructor
+     *                                 arguments or its own init method,
+     *                                 which a record does not keep
+     */
+    Record toRecord() {
+        if (beanDefinition.getConstructorArguments().length > 0 || beanDefinition.getInitMethodName() != null) {
+            throw new BeanDefinitionException("Can not record bean '" + beanDefinition.getBeanName()
+                    + "': constructor arguments and init methods are not kept in a record");
+        }
+        return new Record(
+                dependencyNames.clone(),
+                classNames(typePlan.parameterTypes),
+                methodNames(typePlan.postConstructMethods),
+                typePlan.initMethod != null,
+                methodNames(typePlan.preDestroyMethods),
+                methodNames(typePlan.resetMethods),
+                classNames(typePlan.interfaces),
+                typePlan.benchmarkedMethods.keySet().stream().map(BeanPlan::methodDescriptor).toArray(String[]::new),
+                typePlan.cachedMethods.keySet().stream().map(BeanPlan::methodDescriptor).toArray(String[]::new));
+    }
+
+    private static String[] classNames(Class<?>[] classes) {
+        String[] names = new String[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            names[i] = classes[i].getName();
+        }
+        return names;
+    }
+
+    private static String[] methodNames(List<Method> methods) {
+        return methods.stream().map(Method::getName).toArray(String[]::new);
+    }
+
+    private static String methodDescriptor(Method method) {
+        StringJoiner parameters = new StringJoiner(",", method.getDeclaringClass().getName() + "#"
+                + method.getName() + "(", ")");
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            parameters.add(parameterType.getName());
+        }
+        return parameters.toString();
+    }
+
+    private static Method methodForDescriptor(String descriptor, ClassLoader loader)
+            throws ReflectiveOperationException {
+        int hash = descriptor.indexOf('#');
+        int open = descriptor.indexOf('(', hash);
+        String parameters = descriptor.substring(open + 1, descriptor.length() - 1);
+        return classForName(descriptor.substring(0, hash), loader).getMethod(descriptor.substring(hash + 1, open),
+                classesForNames(parameters.isEmpty() ? new String[0] : parameters.split(","), loader));
+    }
+
+    private static List<Method> methodsForNames(Class<?> type, String[] names) throws NoSuchMethodException {
+        List<Method> methods = new ArrayList<>(names.length);
+        for (String name : names) {
+            methods.add(type.getMethod(name));
+        }
+        return methods;
+    }
+
+    private static Class<?>[] classesForNames(String[] names, ClassLoader loader) throws ClassNotFoundException {
+        Class<?>[] classes = new Class<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            classes[i] = classForName(names[i], loader);
+        }
+        return classes;
+    }
+
+    static Class<?> classForName(String name, ClassLoader loader) throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVES.get(name);
+        return primitive != null ? primitive : Class.forName(name, false, loader);
+    }
+
+    private static Class<?>[] interfacesOf(Class<?> type) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            collectInterfaces(c, interfaces);
+        }
+        return interfaces.toArray(new Class<?>[0]);
+    }
+
+    private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> anInterface : type.getInterfaces()) {
+            if (interfaces.add(anInterface)) {
+                collectInterfaces(anInterface, interfaces);
+            }
+        }
+    }
+
+    /**
+     * Methods whose implementation carries an enabled {@link Benchmark},
+     * keyed to the name they are reported under. These are the interface
+     * methods when the bean has interfaces, and the bean's own public
+     * methods otherwise.
+     */
+    private static Map<Method, String> benchmarkedMethods(Class<?> type, Class<?>[] interfaces) {
+        Map<Method, String> benchmarkedMethods = new HashMap<>();
+        if (interfaces.length == 0) {
+            for (Method method : type.getMethods()) {
+                Benchmark benchmark = method.getAnnotation(Benchmark.class);
+                if (benchmark != null && benchmark.enabled()) {
+                    benchmarkedMethods.put(method, methodKey(method));
+                }
+            }
+        }
+        for (Class<?> anInterface : interfaces) {
+            for (Method method : anInterface.getMethods()) {
+                Method implementation;
+                try {
+                    implementation = type.getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+                Benchmark benchmark = implementation.getAnnotation(Benchmark.class);
+                if (benchmark != null && benchmark.enabled()) {
+                    benchmarkedMethods.put(method, methodKey(method));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(benchmarkedMethods);
+    }
+
+    /**
+     * Interface methods whose implementation is {@link Cacheable}. Results
+     * can only be cached behind an interface, and a method returning
+     * nothing has nothing to cache.
+     */
+    private static Map<Method, Cacheable> cachedMethods(Class<?> type, Class<?>[] interfaces) {
+        Map<Method, Cacheable> cachedMethods = new HashMap<>();
+        if (interfaces.length == 0) {
+            for (Method method : type.getMethods()) {
+                if (method.isAnnotationPresent(Cacheable.class)) {
+                    throw new BeanCreationException("Can not cache " + method
+                            + ": cached beans have to implement an interface");
+                }
+            }
+        }
+        for (Class<?> anInterface : interfaces) {
+            for (Method method : anInterface.getMethods()) {
+                Method implementation;
+                try {
+                    implementation = type.getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+                Cacheable cacheable = implementation.getAnnotation(Cacheable.class);
+                if (cacheable == null) {
+                    continue;
+                }
+                if (method.getReturnType() == void.class) {
+                    throw new BeanCreationException("Can not cache " + implementation + ": it returns void");
+                }
+                cachedMethods.put(method, cacheable);
+            }
+        }
+        return Collections.unmodifiableMap(cachedMethods);
+    }
+
+    static String methodKey(Method method) {
+        StringJoiner parameters = new StringJoiner(",", method.getName() + "(", ")");
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            parameters.add(parameterType.getSimpleName());
+        }
+        return parameters.toString();
+    }
+
+    /**
+     * The only public constructor, otherwise the public no-arg constructor,
+     * otherwise the first public one.
+     */
+    private static Constructor<?> selectConstructor(Class<?> type) {
+        Constructor<?>[] constructors = type.getConstructors();
+        if (constructors.length == 0) {
+            throw new BeanCreationException("No public constructor in " + type.getName());
+        }
+        if (constructors.length > 1) {
+            for (Constructor<?> constructor : constructors) {
+                if (constructor.getParameterCount() == 0) {
+                    return constructor;
+                }
+            }
+        }
+        return constructors[0];
+    }
+
+    /**
+     * The first public constructor whose parameters can take
+     * {@code arguments}: same count, the given type names, no {@code null}
+     * for a primitive and only convertible types for values.
+     */
+    private static Constructor<?> selectConstructor(Class<?> type, BeanDefinition beanDefinition,
+                                                    ConstructorArgument[] arguments) {
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (constructor.getParameterCount() == arguments.length
+                    && accepts(constructor.getParameterTypes(), arguments)) {
+                return constructor;
+            }
+        }
+        throw new BeanDefinitionException("No public constructor of " + type.getName() + " takes "
+                + Arrays.toString(arguments) + " of bean '" + beanDefinition.getBeanName() + "'");
+    }
+
+    private static boolean accepts(Class<?>[] parameterTypes, ConstructorArgument[] arguments) {
+        for (int i = 0; i < arguments.length; i++) {
+            ConstructorArgument argument = arguments[i];
+            Class<?> parameterType = parameterTypes[i];
+            String typeName = argument.getTypeName();
+            if (typeName != null && !typeName.equals(parameterType.getName())
+                    && !typeName.equals(parameterType.getSimpleName())) {
+                return false;
+            }
+            if (argument.isNull() ? parameterType.isPrimitive()
+                    : !argument.isRef() && !isConvertible(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Method selectInitMethod(Class<?> type, BeanDefinition beanDefinition) {
+        try {
+            return type.getMethod(beanDefinition.getInitMethodName());
+        } catch (NoSuchMethodException e) {
+            throw new BeanDefinitionException("No public no-arg method " + beanDefinition.getInitMethodName()
+                    + "() in " + type.getName() + " for the init method of bean '"
+                    + beanDefinition.getBeanName() + "'");
+        }
+    }
+
+    private static String defaultBeanName(Class<?> type) {
+        String simpleName = type.getSimpleName();
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Instantiator compileInstantiator(Class<?> type, Constructor<?> constructor) {
+        try {
+            MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+            int parameterCount = constructor.getParameterCount();
+            if (parameterCount == 0 && isLambdaCompatible(type)) {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        handle,
+                        MethodType.methodType(type));
+                Supplier<Object> supplier = (Supplier<Object>) site.getTarget().invokeExact();
+                return args -> supplier.get();
+            }
+            MethodHandle spread = handle
+                    .asType(handle.type().changeReturnType(Object.class))
+                    .asSpreader(Object[].class, parameterCount)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return args -> spread.invokeExact(args);
+        } catch (Throwable e) {
+            throw new BeanCreationException("Can not compile constructor of " + type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<Object> compileCallback(Class<?> type, Method method) {
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            if (isLambdaCompatible(type) && isLambdaCompatible(method.getDeclaringClass())) {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(Consumer.class),
+                        MethodType.methodType(void.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, type));
+                return (Consumer<Object>) site.getTarget().invokeExact();
+            }
+            MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class));
+            return bean -> {
+                try {
+                    generic.invokeExact(bean);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new BeanCreationException("Lifecycle method " + method + " failed", e);
+                }
+            };
+        } catch (Throwable e) {
+            throw new BeanCreationException("Can not compile lifecycle method " + method, e);
+        }
+    }
+
+    /**
+     * Like {@link #compileCallback}, but returns what the method returns,
+     * boxed, and {@code null} for a void method.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileInitializer(Class<?> type, Method method) {
+        if (method.getReturnType() == void.class) {
+            Consumer<Object> callback = compileCallback(type, method);
+            return bean -> {
+                callback.accept(bean);
+                return null;
+            };
+        }
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            if (isLambdaCompatible(type) && isLambdaCompatible(method.getDeclaringClass())) {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(method.getReturnType(), type));
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            }
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return bean -> {
+                try {
+                    return generic.invokeExact(bean);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new BeanCreationException("Lifecycle method " + method + " failed", e);
+                }
+            };
+        } catch (Throwable e) {
+            throw new BeanCreationException("Can not compile lifecycle method " + method, e);
+        }
+    }
+
+    /**
+     * Lambdas spun by {@link LambdaMetafactory} link against this class's
+     * loader, so the target type must be public and resolvable from it.
+     */
+    private static boolean isLambdaCompatible(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, BeanPlan.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    BeanDefinition getBeanDefinition() {
+        return beanDefinition;
+    }
+
+    /**
+     * One per constructor parameter; {@code null} where the argument is a
+     * value given by the definition.
+     */
+    String[] getDependencyNames() {
+        return dependencyNames;
+    }
+
+    /**
+     * A fresh array of constructor arguments holding the values given by the
+     * definition, with the places of dependencies left to fill.
+     */
+    Object[] newArguments() {
+        return arguments.clone();
+    }
+
+    boolean isBenchmarkProxy() {
+        return !typePlan.benchmarkedMethods.isEmpty();
+    }
+
+    Class<?>[] getInterfaces() {
+        return typePlan.interfaces;
+    }
+
+    Map<Method, String> getBenchmarkedMethods() {
+        return typePlan.benchmarkedMethods;
+    }
+
+    boolean isCachingProxy() {
+        return !typePlan.cachedMethods.isEmpty();
+    }
+
+    Map<Method, Cacheable> getCachedMethods() {
+        return typePlan.cachedMethods;
+    }
+
+    Object instantiate(Object[] args) {
+        try {
+            return typePlan.instantiator.instantiate(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new BeanCreationException("Can not instantiate " + beanDefinition.getBeanName(), e);
+        }
+    }
+
+    /**
+     * Calls every method without waiting for the stages returned before it.
+     *
+     * @return done when every returned stage is; {@code null} when none
+     * returned one
+     */
+    CompletableFuture<Void> callPostConstructMethods(Object bean) {
+        CompletableFuture<Void> initialized = null;
+        for (Function<Object, Object> callback : typePlan.postConstructCallbacks) {
+            initialized = both(initialized, callback.apply(bean));
+        }
+        return initialized;
+    }
+
+    boolean hasPreDestroyMethods() {
+        return !typePlan.preDestroyCallbacks.isEmpty();
+    }
+
+    void callPreDestroyMethods(Object bean) {
+        for (Consumer<Object> callback : typePlan.preDestroyCallbacks) {
+            callback.accept(bean);
+        }
+    }
+
+    boolean hasResetMethods() {
+        return !typePlan.resetCallbacks.isEmpty();
+    }
+
+    /**
+     * Indexed rather than iterated, so handing a pooled bean back allocates
+     * nothing.
+     */
+    void callResetMethods(Object bean) {
+        List<Consumer<Object>> callbacks = typePlan.resetCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).accept(bean);
+        }
+    }
+
+    /**
+     * @return done when the stage the init method returned is; {@code null}
+     * when it returned none
+     */
+    CompletableFuture<Void> callInitMethod(Object bean) {
+        return typePlan.initCallback == null ? null : both(null, typePlan.initCallback.apply(bean));
+    }
+
+    /**
+     * {@code initialized} extended to also wait for {@code result}, if that
+     * is a stage. Only the outcome is kept, not the value.
+     */
+    private static CompletableFuture<Void> both(CompletableFuture<Void> initialized, Object result) {
+        if (!(result instanceof CompletionStage)) {
+            return initialized;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        ((CompletionStage<?>) result).whenComplete((value, failure) -> {
+            if (failure != null) {
+                done.completeExceptionally(failure);
+            } else {
+                done.complete(null);
+            }
+        });
+        return initialized == null ? done : CompletableFuture.allOf(initialized, done);
+    }
+
+    /**
+     * The part of a plan that only depends on the bean class. It is shared by
+     * every definition and context using that class, so lambdas are spun
+     * once per class rather than once per definition.
+     */
+    private static final class TypePlan {
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Class<?>[] parameterTypes;
+        private final String[] qualifiers;
+        private final Instantiator instantiator;
+        private final List<Method> postConstructMethods;
+        private final List<Function<Object, Object>> postConstructCallbacks;
+        private final Method initMethod;
+        private final Function<Object, Object> initCallback;
+        private final List<Method> preDestroyMethods;
+        private final List<Consumer<Object>> preDestroyCallbacks;
+        private final List<Method> resetMethods;
+        private final List<Consumer<Object>> resetCallbacks;
+        private final Class<?>[] interfaces;
+        private final Map<Method, String> benchmarkedMethods;
+        private final Map<Method, Cacheable> cachedMethods;
+        private final ConcurrentMap<String, TypePlan> variants = new ConcurrentHashMap<>();
+
+        private TypePlan(Class<?> type, Constructor<?> constructor, String[] qualifiers,
+                         List<Method> postConstructMethods, Method initMethod, List<Method> preDestroyMethods,
+                         List<Method> resetMethods, Class<?>[] interfaces,
+                         Map<Method, String> benchmarkedMethods, Map<Method, Cacheable> cachedMethods) {
+            this.type = type;
+            this.constructor = constructor;
+            this.parameterTypes = constructor.getParameterTypes();
+            this.qualifiers = qualifiers;
+            this.instantiator = compileInstantiator(type, constructor);
+            this.postConstructMethods = postConstructMethods;
+            this.postConstructCallbacks = compileInitializers(type, postConstructMethods);
+            this.initMethod = initMethod;
+            this.initCallback = initMethod == null ? null : compileInitializer(type, initMethod);
+            this.preDestroyMethods = preDestroyMethods;
+            this.preDestroyCallbacks = compileCallbacks(type, preDestroyMethods);
+            this.resetMethods = resetMethods;
+            this.resetCallbacks = compileCallbacks(type, resetMethods);
+            this.interfaces = interfaces;
+            this.benchmarkedMethods = benchmarkedMethods;
+            this.cachedMethods = cachedMethods;
+        }
+
+        /**
+         * This plan with the constructor taking {@code constructorArguments},
+         * if there are any, and the init method named by the definition, if
+         * it names one. Variants are kept, so each is compiled once.
+         */
+        TypePlan variant(BeanDefinition beanDefinition, ConstructorArgument[] constructorArguments) {
+            Constructor<?> variantConstructor = constructorArguments.length == 0 ? constructor
+                    : selectConstructor(type, beanDefinition, constructorArguments);
+            Method variantInitMethod = beanDefinition.getInitMethodName() == null ? initMethod
+                    : selectInitMethod(type, beanDefinition);
+            if (variantConstructor.equals(constructor) && Objects.equals(variantInitMethod, initMethod)) {
+                return this;
+            }
+            return variants.computeIfAbsent(variantConstructor + " " + variantInitMethod,
+                    key -> new TypePlan(type, variantConstructor, qualifiersOf(variantConstructor),
+                            postConstructMethods, variantInitMethod, preDestroyMethods, resetMethods,
+                            interfaces, benchmarkedMethods, cachedMethods));
+        }
+
+        private static List<Consumer<Object>> compileCallbacks(Class<?> type, List<Method> methods) {
+            List<Consumer<Object>> callbacks = new ArrayList<>(methods.size());
+            for (Method method : methods) {
+                callbacks.add(compileCallback(type, method));
+            }
+            return callbacks;
+        }
+
+        private static List<Function<Object, Object>> compileInitializers(Class<?> type, List<Method> methods) {
+            List<Function<Object, Object>> callbacks = new ArrayList<>(methods.size());
+            for (Method method : methods) {
+                callbacks.add(compileInitializer(type, method));
+            }
+            return callbacks;
+        }
+
+        static TypePlan resolve(Class<?> type) {
+            Constructor<?> constructor = selectConstructor(type);
+
+            List<Method> postConstructMethods = new ArrayList<>();
+            List<Method> preDestroyMethods = new ArrayList<>();
+            List<Method> resetMethods = new ArrayList<>();
+            Method initMethod = null;
+            for (Method method : type.getMethods()) {
+                if (method.isAnnotationPresent(MyPostConstruct.class)) {
+                    postConstructMethods.add(method);
+                }
+                if (method.isAnnotationPresent(MyPreDestroy.class)) {
+                    preDestroyMethods.add(method);
+                }
+                if (method.isAnnotationPresent(MyReset.class)) {
+                    resetMethods.add(method);
+                }
+                if (INIT_METHOD_NAME.equals(method.getName()) && method.getParameterCount() == 0) {
+                    initMethod = method;
+                }
+            }
+
+            Class<?>[] interfaces = interfacesOf(type);
+
+            return new TypePlan(type, constructor, qualifiersOf(constructor), postConstructMethods, initMethod,
+                    preDestroyMethods, resetMethods, interfaces,
+                    benchmarkedMethods(type, interfaces), cachedMethods(type, interfaces));
+        }
+
+        private static String[] qualifiersOf(Constructor<?> constructor) {
+            Parameter[] parameters = constructor.getParameters();
+            String[] qualifiers = new String[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                Qualifier qualifier = parameters[i].getAnnotation(Qualifier.class);
+                qualifiers[i] = qualifier == null ? null : qualifier.value();
+            }
+            return qualifiers;
+        }
+
+        /**
+         * Looks up exactly the members named by {@code record}, without
+         * scanning the class or its annotations beyond the constructor
+         * parameters and the cached methods, so the plan is the one
+         * {@link #resolve} would build for an unchanged class.
+         */
+        static TypePlan restore(Class<?> type, Record record) throws ReflectiveOperationException {
+            ClassLoader loader = type.getClassLoader();
+            Constructor<?> constructor = type.getConstructor(classesForNames(record.parameterTypes, loader));
+            Class<?>[] interfaces = classesForNames(record.interfaces, loader);
+
+            Map<Method, String> benchmarkedMethods = new HashMap<>();
+            for (String descriptor : record.benchmarkedMethods) {
+                Method method = methodForDescriptor(descriptor, loader);
+                benchmarkedMethods.put(method, methodKey(method));
+            }
+            Map<Method, Cacheable> cachedMethods = new HashMap<>();
+            for (String descriptor : record.cachedMethods) {
+                Method method = methodForDescriptor(descriptor, loader);
+                cachedMethods.put(method, type.getMethod(method.getName(), method.getParameterTypes())
+                        .getAnnotation(Cacheable.class));
+            }
+
+            return new TypePlan(type, constructor, qualifiersOf(constructor),
+                    methodsForNames(type, record.postConstructMethods),
+                    record.hasInitMethod ? type.getMethod(INIT_METHOD_NAME) : null,
+                    methodsForNames(type, record.preDestroyMethods),
+                    methodsForNames(type, record.resetMethods),
+                    interfaces,
+                    Collections.unmodifiableMap(benchmarkedMethods),
+                    Collections.unmodifiableMap(cachedMethods));
+        }
+    }
+
+    /**
+     * A resolved plan reduced to names: dependency bean names, the
+     * constructor parameter types, the lifecycle methods and the
+     * benchmarked and cached interface methods as
+     * {@code declaringClass#name(parameterTypes)}. Restoring one only loads
+     * the named classes and members.
+     */
+    static final class Record {
+        final String[] dependencyNames;
+        final String[] parameterTypes;
+        final String[] postConstructMethods;
+        final boolean hasInitMethod;
+        final String[] preDestroyMethods;
+        final String[] resetMethods;
+        final String[] interfaces;
+        final String[] benchmarkedMethods;
+        final String[] cachedMethods;
+
+        Record(String[] dependencyNames, String[] parameterTypes, String[] postConstructMethods,
+               boolean hasInitMethod, String[] preDestroyMethods, String[] resetMethods, String[] interfaces,
+               String[] benchmarkedMethods, String[] cachedMethods) {
+            this.dependencyNames = dependencyNames;
+            this.parameterTypes = parameterTypes;
+            this.postConstructMethods = postConstructMethods;
+            this.hasInitMethod = hasInitMethod;
+            this.preDestroyMethods = preDestroyMethods;
+            this.resetMethods = resetMethods;
+            this.interfaces = interfaces;
+            this.benchmarkedMethods = benchmarkedMethods;
+            this.cachedMethods = cachedMethods;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Instantiator {
+        Object instantiate(Object[] args) throws Throwable;
+    }
+}
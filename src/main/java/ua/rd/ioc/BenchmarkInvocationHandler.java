@@ -0,0 +1,43 @@
+package ua.rd.ioc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Times calls to the {@link Benchmark}ed methods of a bean. The set of
+ * timed methods is resolved once per bean definition, so an invocation
+ * costs one map probe; everything else is passed straight to the target.
+ */
+class BenchmarkInvocationHandler implements InvocationHandler {
+    private final Object target;
+    private final Map<Method, LatencyHistogram> histograms;
+
+    BenchmarkInvocationHandler(Object target, Map<Method, LatencyHistogram> histograms) {
+        this.target = target;
+        this.histograms = histograms;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        LatencyHistogram histogram = histograms.get(method);
+        if (histogram == null) {
+            return invokeTarget(method, args);
+        }
+        long start = System.nanoTime();
+        try {
+            return invokeTarget(method, args);
+        } finally {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
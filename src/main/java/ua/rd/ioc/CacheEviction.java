@@ -0,0 +1,31 @@
+package ua.rd.ioc;
+
+/**
+ * Which entry a full {@link MethodCache} gives up for a new one.
+ */
+public enum CacheEviction {
+    /**
+     * The least recently used entry.
+     */
+    LRU {
+        @Override
+        EvictionPolicy newPolicy(int maximumSize) {
+            return new LruPolicy(maximumSize);
+        }
+    },
+
+    /**
+     * Window TinyLFU: new entries go through a small LRU window and only
+     * enter the main segmented LRU when they have been asked for more often
+     * than the entry they would push out. One-off lookups, such as a scan
+     * over old tweets, can not flush the entries that are hit all the time.
+     */
+    TINY_LFU {
+        @Override
+        EvictionPolicy newPolicy(int maximumSize) {
+            return new WindowTinyLfuPolicy(maximumSize);
+        }
+    };
+
+    abstract EvictionPolicy newPolicy(int maximumSize);
+}
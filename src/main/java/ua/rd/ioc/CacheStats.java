@@ -0,0 +1,61 @@
+package ua.rd.ioc;
+
+/**
+ * Point-in-time counters of a {@link MethodCache}.
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long expirationCount;
+    private final int size;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long expirationCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Lookups that did not find a live entry, including the ones that waited
+     * for another thread loading the same key.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Entries dropped to stay within the maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hitCount +
+                ", misses=" + missCount +
+                ", evictions=" + evictionCount +
+                ", expirations=" + expirationCount +
+                ", size=" + size;
+    }
+}
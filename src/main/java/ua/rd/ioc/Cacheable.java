@@ -0,0 +1,27 @@
+package ua.rd.ioc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of an interface method of a bean, keyed by its
+ * arguments. The context puts a caching proxy between the bean and
+ * everything it is injected into, inside the {@link Benchmark} proxy if
+ * there is one. Exceptions are not cached, and concurrent misses on the same
+ * arguments wait for a single call to the target.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    int maximumSize() default 1024;
+
+    /**
+     * How long a result is served after it was loaded; {@code 0} keeps it
+     * until it is evicted.
+     */
+    long expireAfterWriteMillis() default 0;
+
+    CacheEviction eviction() default CacheEviction.TINY_LFU;
+}
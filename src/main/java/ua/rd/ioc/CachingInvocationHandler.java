@@ -0,0 +1,37 @@
+package ua.rd.ioc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Serves the {@link Cacheable} methods of a bean from their
+ * {@link MethodCache}s and passes everything else to the target.
+ */
+class CachingInvocationHandler implements InvocationHandler {
+    private final Object target;
+    private final Map<Method, MethodCache> caches;
+
+    CachingInvocationHandler(Object target, Map<Method, MethodCache> caches) {
+        this.target = target;
+        this.caches = caches;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodCache cache = caches.get(method);
+        if (cache == null) {
+            return invokeTarget(method, args);
+        }
+        return cache.get(MethodCache.key(args), () -> invokeTarget(method, args));
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
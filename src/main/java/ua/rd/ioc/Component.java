@@ -0,0 +1,25 @@
+package ua.rd.ioc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the annotated class a bean. At compile time
+ * {@link ua.rd.ioc.processor.ComponentIndexProcessor} lists every component
+ * in {@link ComponentIndexConfig#INDEX_LOCATION}, where
+ * {@link ComponentIndexConfig} finds them without scanning the class path.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Component {
+    /**
+     * The bean name; by default the simple class name starting in lower case.
+     */
+    String value() default "";
+    String scope() default Scope.SINGLETON;
+    boolean lazy() default false;
+    boolean primary() default false;
+    String[] aliases() default {};
+}
@@ -0,0 +1,106 @@
+package ua.rd.ioc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * {@link Config} of the {@link Component} classes listed in the component
+ * indexes on the class path, written at compile time by
+ * {@link ua.rd.ioc.processor.ComponentIndexProcessor}. Every jar or
+ * directory contributes at most one index, found with a single resource
+ * lookup, so no jar is walked and no class but the selected components is
+ * loaded; those are loaded without being initialized. Startup cost follows
+ * the number of components, not the size of the class path.
+ * <p>
+ * Only components in the given base packages, or their subpackages, are
+ * used; without base packages, all are. Components compiled without the
+ * processor are not found.
+ */
+public class ComponentIndexConfig implements Config {
+    public static final String INDEX_LOCATION = "META-INF/ua.rd.ioc.components";
+
+    private final ClassLoader classLoader;
+    private final String[] basePackages;
+
+    public ComponentIndexConfig(String... basePackages) {
+        this(defaultClassLoader(), basePackages);
+    }
+
+    public ComponentIndexConfig(ClassLoader classLoader, String... basePackages) {
+        this.classLoader = classLoader;
+        this.basePackages = basePackages.clone();
+    }
+
+    private static ClassLoader defaultClassLoader() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : ComponentIndexConfig.class.getClassLoader();
+    }
+
+    @Override
+    public BeanDefinition[] beanDefinitions() {
+        List<BeanDefinition> beanDefinitions = new ArrayList<>();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(INDEX_LOCATION);
+            while (indexes.hasMoreElements()) {
+                readIndex(indexes.nextElement(), beanDefinitions);
+            }
+        } catch (IOException e) {
+            throw new BeanDefinitionException("Can not read component index: " + e.getMessage(), e);
+        }
+        return beanDefinitions.toArray(EMPTY_BEANDEFINITION);
+    }
+
+    private void readIndex(URL index, List<BeanDefinition> beanDefinitions) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 6) {
+                    throw new BeanDefinitionException("Malformed component index entry at " + index + ":"
+                            + lineNumber);
+                }
+                if (isInBasePackages(fields[0])) {
+                    beanDefinitions.add(SimpleBeanDefinition.builder(fields[1], loadClass(fields[0], index))
+                            .scope(fields[2])
+                            .lazy(Boolean.parseBoolean(fields[3]))
+                            .primary(Boolean.parseBoolean(fields[4]))
+                            .aliases(fields[5].isEmpty() ? new String[0] : fields[5].split(","))
+                            .build());
+                }
+            }
+        }
+    }
+
+    private boolean isInBasePackages(String className) {
+        if (basePackages.length == 0) {
+            return true;
+        }
+        for (String basePackage : basePackages) {
+            if (className.startsWith(basePackage) && className.length() > basePackage.length()
+                    && className.charAt(basePackage.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Class<?> loadClass(String className, URL index) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new BeanDefinitionException("Component " + className + " listed in " + index
+                    + " can not be loaded; the index is stale", e);
+        }
+    }
+}
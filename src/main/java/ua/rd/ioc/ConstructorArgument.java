@@ -0,0 +1,66 @@
+package ua.rd.ioc;
+
+import java.util.Objects;
+
+/**
+ * An argument given explicitly for a constructor parameter: a reference to
+ * another bean, a literal value converted to the parameter type, or
+ * {@code null}. The optional type name, simple or fully qualified, picks
+ * between constructors that take the same number of parameters.
+ */
+public final class ConstructorArgument {
+    private final String ref;
+    private final String value;
+    private final String typeName;
+
+    private ConstructorArgument(String ref, String value, String typeName) {
+        this.ref = ref;
+        this.value = value;
+        this.typeName = typeName;
+    }
+
+    public static ConstructorArgument ref(String beanName) {
+        return new ConstructorArgument(Objects.requireNonNull(beanName, "beanName"), null, null);
+    }
+
+    public static ConstructorArgument value(String value) {
+        return new ConstructorArgument(null, Objects.requireNonNull(value, "value"), null);
+    }
+
+    public static ConstructorArgument nullValue() {
+        return new ConstructorArgument(null, null, null);
+    }
+
+    public ConstructorArgument withType(String typeName) {
+        return new ConstructorArgument(ref, value, typeName);
+    }
+
+    public boolean isRef() {
+        return ref != null;
+    }
+
+    public boolean isNull() {
+        return ref == null && value == null;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * May be {@code null}.
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    @Override
+    public String toString() {
+        String argument = isRef() ? "ref " + ref : isNull() ? "null" : "value '" + value + "'";
+        return typeName == null ? argument : argument + " of type " + typeName;
+    }
+}
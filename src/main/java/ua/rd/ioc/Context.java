@@ -1,6 +1,78 @@
 package ua.rd.ioc;
 
-public interface Context {
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface Context extends AutoCloseable {
     Object getBean(String beanName);
+
+    /**
+     * The only bean assignable to {@code type}, or the primary one among
+     * several.
+     *
+     * @throws NoUniqueBeanException when several beans match and none is primary
+     * @throws NoSuchBeanException when none matches, or the context can not
+     * look beans up by type
+     */
+    default <T> T getBean(Class<T> type) {
+        throw new NoSuchBeanException("No lookup by type for " + type.getName());
+    }
+
+    /**
+     * Every bean assignable to {@code type}, keyed by bean name in definition
+     * order; empty unless the context can look beans up by type.
+     */
+    default <T> Map<String, T> getBeansOfType(Class<T> type) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Names defined by this context itself, without its parent's.
+     */
     String[] getBeanDefinitionNames();
+
+    /**
+     * The context whose beans this one falls back to, or {@code null}.
+     */
+    default Context getParent() {
+        return null;
+    }
+
+    /**
+     * Done once every bean created so far has finished initializing,
+     * including any {@link java.util.concurrent.CompletionStage} its
+     * {@link MyPostConstruct} or init methods returned; failed when one of
+     * them failed. Generated contexts reject lifecycle methods returning a
+     * stage, so theirs is always done.
+     */
+    default CompletableFuture<Void> readiness() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Latency of every {@link Benchmark}ed method called so far, keyed by
+     * {@code beanName.method(ParameterTypes)}; empty unless the context
+     * records them.
+     */
+    default Map<String, LatencySnapshot> getBenchmarkResults() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Counters of every {@link Cacheable} method, keyed like
+     * {@link #getBenchmarkResults()}; empty unless the context caches
+     * them.
+     */
+    default Map<String, CacheStats> getCacheStats() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Destroys the context's singletons; does nothing unless the context
+     * has any to destroy.
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -0,0 +1,146 @@
+package ua.rd.ioc;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Opt-in behaviour of an {@link ApplicationContext}. The defaults keep the
+ * original eager, sequential startup.
+ */
+public class ContextOptions {
+    private static final ContextOptions DEFAULTS = builder().build();
+
+    private final boolean parallelStartup;
+    private final int parallelism;
+    private final boolean defaultLazy;
+    private final boolean reportBenchmarksOnClose;
+    private final ProxyEngine proxyEngine;
+    private final Map<String, Scope> scopes;
+    private final Executor initExecutor;
+
+    private ContextOptions(Builder builder) {
+        this.parallelStartup = builder.parallelStartup;
+        this.parallelism = builder.parallelism;
+        this.defaultLazy = builder.defaultLazy;
+        this.reportBenchmarksOnClose = builder.reportBenchmarksOnClose;
+        this.proxyEngine = builder.proxyEngine;
+        this.scopes = Collections.unmodifiableMap(new LinkedHashMap<>(builder.scopes));
+        this.initExecutor = builder.initExecutor;
+    }
+
+    public static ContextOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isParallelStartup() {
+        return parallelStartup;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isDefaultLazy() {
+        return defaultLazy;
+    }
+
+    public boolean isReportBenchmarksOnClose() {
+        return reportBenchmarksOnClose;
+    }
+
+    public ProxyEngine getProxyEngine() {
+        return proxyEngine;
+    }
+
+    /**
+     * Scopes registered in addition to, or instead of, the built-in
+     * {@link Scope#THREAD} and {@link Scope#REQUEST} scopes.
+     */
+    public Map<String, Scope> getScopes() {
+        return scopes;
+    }
+
+    public Executor getInitExecutor() {
+        return initExecutor;
+    }
+
+    public static class Builder {
+        private boolean parallelStartup;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private boolean defaultLazy;
+        private boolean reportBenchmarksOnClose;
+        private ProxyEngine proxyEngine = ProxyEngine.JDK;
+        private final Map<String, Scope> scopes = new LinkedHashMap<>();
+        private Executor initExecutor = ForkJoinPool.commonPool();
+
+        private Builder() {
+        }
+
+        /**
+         * Instantiate independent singletons concurrently, following the
+         * constructor-dependency graph.
+         */
+        public Builder parallelStartup(boolean parallelStartup) {
+            this.parallelStartup = parallelStartup;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Treat every singleton as lazy: nothing is created until the first
+         * {@code getBean} that needs it.
+         */
+        public Builder defaultLazy(boolean defaultLazy) {
+            this.defaultLazy = defaultLazy;
+            return this;
+        }
+
+        public Builder reportBenchmarksOnClose(boolean reportBenchmarksOnClose) {
+            this.reportBenchmarksOnClose = reportBenchmarksOnClose;
+            return this;
+        }
+
+        public Builder proxyEngine(ProxyEngine proxyEngine) {
+            this.proxyEngine = Objects.requireNonNull(proxyEngine);
+            return this;
+        }
+
+        public Builder scope(String name, Scope scope) {
+            if (Scope.SINGLETON.equals(name) || Scope.PROTOTYPE.equals(name)) {
+                throw new IllegalArgumentException("Scope '" + name + "' is built in");
+            }
+            scopes.put(Objects.requireNonNull(name, "name"), Objects.requireNonNull(scope, "scope"));
+            return this;
+        }
+
+        /**
+         * Runs the {@link MyPostConstruct} and init methods of beans that
+         * have to wait for a dependency's asynchronous initialization; the
+         * common pool by default. On Java 21, a virtual thread per task
+         * executor lets blocking warmups overlap cheaply.
+         */
+        public Builder initExecutor(Executor initExecutor) {
+            this.initExecutor = Objects.requireNonNull(initExecutor);
+            return this;
+        }
+
+        public ContextOptions build() {
+            return new ContextOptions(this);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package ua.rd.ioc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The resolved metadata of a context, written to a compact binary file so
+ * that later starts can skip resolving it: the bean definitions and, for
+ * every bean, the names of its autowired dependencies, its constructor, its
+ * lifecycle methods and its benchmarked and cached methods. A context
+ * {@link #restore() restored} from a snapshot looks those members up by
+ * name instead of autowiring by type and scanning classes for annotations.
+ * Beans are still created, and their init methods run, on every start.
+ * <p>
+ * A snapshot is only valid for the classes it was taken from; restoring it
+ * after a bean class lost a recorded member fails with a
+ * {@link BeanDefinitionException}, while new dependencies or annotations
+ * are silently missed, so take snapshots as part of the build.
+ * {@link #writeClassList(Path)} writes the classes the snapshot names in the
+ * format of {@code -XX:SharedClassListFile}, for an AppCDS archive that
+ * also takes class loading and verification off the start path.
+ */
+public final class ContextSnapshot {
+    private static final int MAGIC = 0x494F4353;
+    private static final int VERSION = 1;
+    private static final int LAZY = 1;
+    private static final int PRIMARY = 2;
+    private static final int INIT_METHOD = 4;
+
+    private final List<BeanRecord> beans;
+
+    private ContextSnapshot(List<BeanRecord> beans) {
+        this.beans = beans;
+    }
+
+    /**
+     * Resolves every definition of {@code config} without creating any
+     * bean.
+     */
+    public static ContextSnapshot of(Config config) {
+        return of(config, ContextOptions.defaults());
+    }
+
+    /**
+     * @param options has to register the custom scopes the definitions use
+     */
+    public static ContextSnapshot of(Config config, ContextOptions options) {
+        Map<BeanDefinition, BeanPlan.Record> records = ApplicationContext.resolvePlans(config, options);
+        List<BeanRecord> beans = new ArrayList<>(records.size());
+        records.forEach((bd, record) -> beans.add(new BeanRecord(bd.getBeanName(), bd.getBeanType().getName(),
+                bd.getScope(), bd.isLazy(), bd.isPrimary(), bd.getAliases(), record)));
+        return new ContextSnapshot(Collections.unmodifiableList(beans));
+    }
+
+    public ApplicationContext restore() {
+        return restore(ContextOptions.defaults());
+    }
+
+    /**
+     * Creates a context from this snapshot, loading bean classes through the
+     * thread's context class loader.
+     */
+    public ApplicationContext restore(ContextOptions options) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = ContextSnapshot.class.getClassLoader();
+        }
+        Map<BeanDefinition, BeanPlan.Record> records = new LinkedHashMap<>();
+        for (BeanRecord bean : beans) {
+            Class<?> beanType;
+            try {
+                beanType = Class.forName(bean.typeName, false, loader);
+            } catch (ClassNotFoundException e) {
+                throw new BeanDefinitionException("Stale context snapshot for bean '" + bean.name
+                        + "': " + e);
+            }
+            records.put(SimpleBeanDefinition.builder(bean.name, beanType)
+                    .scope(bean.scope)
+                    .lazy(bean.lazy)
+                    .primary(bean.primary)
+                    .aliases(bean.aliases)
+                    .build(), bean.record);
+        }
+        return new ApplicationContext(records, options);
+    }
+
+    public String[] getBeanNames() {
+        return beans.stream().map(bean -> bean.name).toArray(String[]::new);
+    }
+
+    /**
+     * Bean classes, constructor parameter types, interfaces and the classes
+     * declaring benchmarked or cached methods, sorted.
+     */
+    public List<String> getClassNames() {
+        TreeSet<String> classNames = new TreeSet<>();
+        for (BeanRecord bean : beans) {
+            classNames.add(bean.typeName);
+            classNames.addAll(Arrays.asList(bean.record.parameterTypes));
+            classNames.addAll(Arrays.asList(bean.record.interfaces));
+            for (String[] descriptors : Arrays.asList(bean.record.benchmarkedMethods, bean.record.cachedMethods)) {
+                for (String descriptor : descriptors) {
+                    classNames.add(descriptor.substring(0, descriptor.indexOf('#')));
+                }
+            }
+        }
+        return new ArrayList<>(classNames);
+    }
+
+    /**
+     * Writes {@link #getClassNames()} one per line in internal form, as
+     * read by {@code java -Xshare:dump -XX:SharedClassListFile=...
+     * -XX:SharedArchiveFile=...}. Append the output of
+     * {@code -XX:DumpLoadedClassList} to cover the container's own classes.
+     */
+    public void writeClassList(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String className : getClassNames()) {
+            lines.add(className.replace('.', '/'));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    public void write(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Every string is written once into a table and referred to by index,
+     * and all counts and indexes are variable-length integers, so most
+     * references take a single byte.
+     */
+    public void write(OutputStream out) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeVarInt(body, beans.size());
+        for (BeanRecord bean : beans) {
+            BeanPlan.Record record = bean.record;
+            writeVarInt(body, strings.indexOf(bean.name));
+            writeVarInt(body, strings.indexOf(bean.typeName));
+            writeVarInt(body, strings.indexOf(bean.scope));
+            body.write((bean.lazy ? LAZY : 0) | (bean.primary ? PRIMARY : 0)
+                    | (record.hasInitMethod ? INIT_METHOD : 0));
+            for (String[] names : Arrays.asList(bean.aliases, record.dependencyNames, record.parameterTypes,
+                    record.postConstructMethods, record.preDestroyMethods, record.resetMethods,
+                    record.interfaces, record.benchmarkedMethods, record.cachedMethods)) {
+                writeVarInt(body, names.length);
+                for (String name : names) {
+                    writeVarInt(body, strings.indexOf(name));
+                }
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            data.writeUTF(value);
+        }
+        body.writeTo(data);
+        data.flush();
+    }
+
+    public static ContextSnapshot read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    public static ContextSnapshot read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a context snapshot");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported context snapshot version " + version);
+        }
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF();
+        }
+
+        List<BeanRecord> beans = new ArrayList<>();
+        int beanCount = readVarInt(data);
+        for (int i = 0; i < beanCount; i++) {
+            String name = strings[readVarInt(data)];
+            String typeName = strings[readVarInt(data)];
+            String scope = strings[readVarInt(data)];
+            int flags = data.readUnsignedByte();
+            String[] aliases = readNames(data, strings);
+            BeanPlan.Record record = new BeanPlan.Record(
+                    readNames(data, strings),
+                    readNames(data, strings),
+                    readNames(data, strings),
+                    (flags & INIT_METHOD) != 0,
+                    readNames(data, strings),
+                    readNames(data, strings),
+                    readNames(data, strings),
+                    readNames(data, strings),
+                    readNames(data, strings));
+            beans.add(new BeanRecord(name, typeName, scope, (flags & LAZY) != 0, (flags & PRIMARY) != 0,
+                    aliases, record));
+        }
+        return new ContextSnapshot(Collections.unmodifiableList(beans));
+    }
+
+    private static String[] readNames(DataInputStream data, String[] strings) throws IOException {
+        String[] names = new String[readVarInt(data)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = strings[readVarInt(data)];
+        }
+        return names;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed context snapshot");
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+    }
+
+    private static final class BeanRecord {
+        private final String name;
+        private final String typeName;
+        private final String scope;
+        private final boolean lazy;
+        private final boolean primary;
+        private final String[] aliases;
+        private final BeanPlan.Record record;
+
+        private BeanRecord(String name, String typeName, String scope, boolean lazy, boolean primary,
+                           String[] aliases, BeanPlan.Record record) {
+            this.name = name;
+            this.typeName = typeName;
+            this.scope = scope;
+            this.lazy = lazy;
+            this.primary = primary;
+            this.aliases = aliases;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ua.rd.ioc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constructor-dependency DAG of a context, keyed by canonical bean names.
+ */
+final class DependencyGraph {
+    private final Map<String, List<String>> dependencies;
+    private final List<String> topologicalOrder;
+
+    DependencyGraph(Map<String, List<String>> dependencies) {
+        this.dependencies = dependencies;
+        this.topologicalOrder = Collections.unmodifiableList(sort(dependencies));
+    }
+
+    List<String> dependenciesOf(String beanName) {
+        return dependencies.getOrDefault(beanName, Collections.emptyList());
+    }
+
+    /**
+     * Every bean appears after all of its dependencies.
+     */
+    List<String> topologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /**
+     * The chain of dependencies with the largest summed creation time,
+     * given the time each bean took to create on its own.
+     */
+    List<String> criticalPath(Map<String, Long> beanNanos) {
+        Map<String, Long> finish = new HashMap<>();
+        Map<String, String> slowestDependency = new HashMap<>();
+        String last = null;
+        for (String beanName : topologicalOrder) {
+            long start = 0;
+            for (String dependency : dependenciesOf(beanName)) {
+                long dependencyFinish = finish.get(dependency);
+                if (dependencyFinish > start) {
+                    start = dependencyFinish;
+                    slowestDependency.put(beanName, dependency);
+                }
+            }
+            long beanFinish = start + beanNanos.getOrDefault(beanName, 0L);
+            finish.put(beanName, beanFinish);
+            if (last == null || beanFinish > finish.get(last)) {
+                last = beanName;
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        for (String beanName = last; beanName != null; beanName = slowestDependency.get(beanName)) {
+            path.add(beanName);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private static List<String> sort(Map<String, List<String>> dependencies) {
+        Map<String, Boolean> visited = new LinkedHashMap<>();
+        List<String> order = new ArrayList<>(dependencies.size());
+        for (String beanName : dependencies.keySet()) {
+            visit(beanName, dependencies, visited, order, new ArrayList<>());
+        }
+        return order;
+    }
+
+    private static void visit(String beanName, Map<String, List<String>> dependencies,
+                              Map<String, Boolean> visited, List<String> order, List<String> path) {
+        Boolean done = visited.get(beanName);
+        if (Boolean.TRUE.equals(done)) {
+            return;
+        }
+        path.add(beanName);
+        if (Boolean.FALSE.equals(done)) {
+            throw new BeanCreationException("Circular dependency: " + String.join(" -> ", path));
+        }
+        visited.put(beanName, false);
+        for (String dependency : dependencies.getOrDefault(beanName, Collections.emptyList())) {
+            visit(dependency, dependencies, visited, order, path);
+        }
+        visited.put(beanName, true);
+        order.add(beanName);
+        path.remove(path.size() - 1);
+    }
+}
@@ -0,0 +1,18 @@
+package ua.rd.ioc;
+
+/**
+ * Bookkeeping of a {@link CacheEviction}. Calls are serialized by the owning
+ * {@link MethodCache}.
+ */
+interface EvictionPolicy {
+    void recordAccess(Object key);
+
+    /**
+     * Records a key that is not in the cache yet and returns the key to evict
+     * to stay within the maximum size, or {@code null}. The returned key may
+     * be {@code key} itself.
+     */
+    Object recordInsert(Object key);
+
+    void remove(Object key);
+}
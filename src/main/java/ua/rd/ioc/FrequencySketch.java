@@ -0,0 +1,77 @@
+package ua.rd.ioc;
+
+/**
+ * Approximate access counts for {@link WindowTinyLfuPolicy}: a count-min
+ * sketch of four-bit counters, sixteen to a {@code long}. Each key is
+ * counted in four places and its frequency is the smallest of them. After
+ * ten increments per cached entry every counter is halved, so the sketch
+ * forgets what was popular a while ago.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int maximumSize) {
+        int length = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+        table = new long[length];
+        sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long slot = slot(hash, row);
+            frequency = Math.min(frequency, (int) (table[index(slot)] >>> shift(slot)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long slot = slot(hash, row);
+            int index = index(slot);
+            int shift = shift(slot);
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+    }
+
+    private static long slot(int hash, int row) {
+        long slot = (hash + SEEDS[row]) * SEEDS[row];
+        return slot + (slot >>> 32);
+    }
+
+    private int index(long slot) {
+        return (int) slot & (table.length - 1);
+    }
+
+    private static int shift(long slot) {
+        return ((int) (slot >>> 40) & 0xF) << 2;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,20 @@
+package ua.rd.ioc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks {@link ua.rd.ioc.processor.ContextProcessor} to generate, next to the
+ * annotated type, a class called {@link #value()} that is both a
+ * {@link Config} and a {@link Context} for the {@link BeanDeclaration}s on
+ * the same type. The generated context wires beans with plain {@code new}
+ * calls and direct lifecycle calls, in a dependency order computed at
+ * compile time.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GeneratedContext {
+    String value();
+}
@@ -0,0 +1,390 @@
+package ua.rd.ioc;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ProxyEngine#GENERATED} proxies. The proxy class is generated once per
+ * bean definition with ASM and holds the target in a field, so every call is
+ * a plain {@code invokeinterface}/{@code invokevirtual} the JIT can inline.
+ * Benchmarked methods read {@link System#nanoTime()} around the call and
+ * record into a {@link LatencyHistogram} taken from an array by a constant
+ * index.
+ * <p>
+ * Beans with interfaces get a class implementing all of them; other beans
+ * get a subclass. The subclass is allocated without running a constructor,
+ * so the bean's constructor and field initializers run once, for the
+ * target only. Its fields stay unset, so the subclass has to override
+ * every method that could read them: see {@link #canSubclass(Class)}. The
+ * class is defined by a loader of its own, outside the bean's package, so
+ * it can only implement public interfaces.
+ */
+final class GeneratedProxyFactory implements Opcodes {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final String TARGET = "target";
+    private static final String HISTOGRAMS = "histograms";
+    private static final String HISTOGRAM_ARRAY = Type.getDescriptor(LatencyHistogram[].class);
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String BIND = "$$bind";
+    private static final MethodHandle ALLOCATE_INSTANCE = allocateInstance();
+
+    private final Class<?> proxyClass;
+    private final MethodHandle constructor;
+    private final MethodHandle allocator;
+    private final MethodHandle binder;
+    private final Method[] timedMethods;
+
+    private GeneratedProxyFactory(Class<?> proxyClass, MethodHandle constructor, MethodHandle allocator,
+                                  MethodHandle binder, Method[] timedMethods) {
+        this.proxyClass = proxyClass;
+        this.constructor = constructor;
+        this.allocator = allocator;
+        this.binder = binder;
+        this.timedMethods = timedMethods;
+    }
+
+    /**
+     * {@code Unsafe.allocateInstance}, looked up reflectively, or
+     * {@code null} where the JVM does not offer it.
+     */
+    boolean isProxy(Object bean) {
+        return proxyClass.isInstance(bean);
+    }
+
+    private static MethodHandle allocateInstance() {
+        try {
+            Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeType, "allocateInstance", MethodType.methodType(Object.class, Class.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static boolean canImplement(Class<?>[] interfaces) {
+        for (Class<?> type : interfaces) {
+            if (!Modifier.isPublic(type.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a subclass proxy of {@code beanType} overrides every method a
+     * caller can reach: the type is public and non-final, and all its
+     * instance methods, up to {@code Object}, are private, or public and
+     * non-final. Other beans are left unproxied, as {@link ProxyEngine#JDK}
+     * leaves beans without interfaces.
+     */
+    static boolean canSubclass(Class<?> beanType) {
+        int modifiers = beanType.getModifiers();
+        if (ALLOCATE_INSTANCE == null || !Modifier.isPublic(modifiers) || Modifier.isFinal(modifiers)
+                || beanType.isMemberClass() && !Modifier.isStatic(modifiers)) {
+            return false;
+        }
+        for (Class<?> type = beanType; type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                int methodModifiers = method.getModifiers();
+                if (Modifier.isStatic(methodModifiers) || Modifier.isPrivate(methodModifiers)) {
+                    continue;
+                }
+                if (!Modifier.isPublic(methodModifiers) || Modifier.isFinal(methodModifiers)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static GeneratedProxyFactory generate(BeanPlan beanPlan) {
+        Class<?> beanType = beanPlan.getBeanDefinition().getBeanType();
+        Class<?>[] interfaces = beanPlan.getInterfaces();
+        boolean subclass = interfaces.length == 0;
+        if (subclass && !canSubclass(beanType)) {
+            throw new BeanCreationException("Can not subclass " + beanType.getName() + " for a generated proxy");
+        }
+
+        Map<String, Method> proxiedMethods = proxiedMethods(beanType, interfaces);
+        List<Method> timedMethods = new ArrayList<>();
+        for (Method method : proxiedMethods.values()) {
+            if (beanPlan.getBenchmarkedMethods().containsKey(method)) {
+                timedMethods.add(method);
+            }
+        }
+
+        String proxyName = beanType.getName() + "$$GeneratedProxy$" + COUNTER.incrementAndGet();
+        String internalName = proxyName.replace('.', '/');
+        String superName = subclass ? Type.getInternalName(beanType) : OBJECT;
+        Class<?> targetType = subclass ? beanType : Object.class;
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return OBJECT;
+            }
+        };
+        String[] interfaceNames = new String[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceNames[i] = Type.getInternalName(interfaces[i]);
+        }
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, superName, interfaceNames);
+        int fieldAccess = subclass ? ACC_PRIVATE : ACC_PRIVATE | ACC_FINAL;
+        cw.visitField(fieldAccess, TARGET, Type.getDescriptor(targetType), null, null).visitEnd();
+        cw.visitField(fieldAccess, HISTOGRAMS, HISTOGRAM_ARRAY, null, null).visitEnd();
+
+        if (subclass) {
+            writeBinder(cw, internalName, targetType);
+        } else {
+            writeConstructor(cw, internalName, superName, targetType);
+        }
+        for (Method method : proxiedMethods.values()) {
+            writeMethod(cw, internalName, targetType, method, timedMethods.indexOf(method));
+        }
+        cw.visitEnd();
+
+        try {
+            Class<?> proxyClass = new ProxyClassLoader(beanType.getClassLoader())
+                    .define(proxyName, cw.toByteArray());
+            Method[] timed = timedMethods.toArray(new Method[0]);
+            if (subclass) {
+                MethodHandle allocator = ALLOCATE_INSTANCE.bindTo(proxyClass)
+                        .asType(MethodType.methodType(Object.class));
+                Method bind = proxyClass.getMethod(BIND, proxyClass, targetType, LatencyHistogram[].class);
+                MethodHandle binder = MethodHandles.publicLookup().unreflect(bind)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class, LatencyHistogram[].class));
+                return new GeneratedProxyFactory(proxyClass, null, allocator, binder, timed);
+            }
+            Constructor<?> proxyConstructor = proxyClass.getConstructor(targetType, LatencyHistogram[].class);
+            MethodHandle handle = MethodHandles.publicLookup().unreflectConstructor(proxyConstructor)
+                    .asType(MethodType.methodType(Object.class, Object.class, LatencyHistogram[].class));
+            return new GeneratedProxyFactory(proxyClass, handle, null, null, timed);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new BeanCreationException("Can not generate proxy for " + beanType.getName(), e);
+        }
+    }
+
+    Object newProxy(Object target, Map<Method, LatencyHistogram> histograms) {
+        LatencyHistogram[] timed = new LatencyHistogram[timedMethods.length];
+        for (int i = 0; i < timedMethods.length; i++) {
+            timed[i] = histograms.get(timedMethods[i]);
+        }
+        try {
+            if (allocator == null) {
+                return constructor.invokeExact(target, timed);
+            }
+            Object proxy = allocator.invokeExact();
+            binder.invokeExact(proxy, target, timed);
+            return proxy;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new BeanCreationException("Can not create proxy for " + target.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Every overridable public method of the proxied view, one per
+     * name and descriptor, including {@code equals/hashCode/toString}.
+     */
+    private static Map<String, Method> proxiedMethods(Class<?> beanType, Class<?>[] interfaces) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        List<Method> candidates = new ArrayList<>();
+        if (interfaces.length == 0) {
+            for (Method method : beanType.getMethods()) {
+                if (!Modifier.isFinal(method.getModifiers())) {
+                    candidates.add(method);
+                }
+            }
+        } else {
+            for (Class<?> anInterface : interfaces) {
+                for (Method method : anInterface.getMethods()) {
+                    candidates.add(method);
+                }
+            }
+            for (String name : new String[]{"equals", "hashCode", "toString"}) {
+                for (Method method : Object.class.getMethods()) {
+                    if (method.getName().equals(name)) {
+                        candidates.add(method);
+                    }
+                }
+            }
+        }
+        for (Method method : candidates) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                methods.putIfAbsent(method.getName() + Type.getMethodDescriptor(method), method);
+            }
+        }
+        return methods;
+    }
+
+    private static void writeConstructor(ClassWriter cw, String internalName, String superName,
+                                         Class<?> targetType) {
+        String targetDescriptor = Type.getDescriptor(targetType);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>",
+                "(" + targetDescriptor + HISTOGRAM_ARRAY + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, internalName, TARGET, targetDescriptor);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitFieldInsn(PUTFIELD, internalName, HISTOGRAMS, HISTOGRAM_ARRAY);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * A static {@code $$bind(proxy, target, histograms)} setting the fields
+     * of a subclass proxy, which is allocated without a constructor.
+     */
+    private static void writeBinder(ClassWriter cw, String internalName, Class<?> targetType) {
+        String targetDescriptor = Type.getDescriptor(targetType);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, BIND,
+                "(L" + internalName + ";" + targetDescriptor + HISTOGRAM_ARRAY + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, internalName, TARGET, targetDescriptor);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitFieldInsn(PUTFIELD, internalName, HISTOGRAMS, HISTOGRAM_ARRAY);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeMethod(ClassWriter cw, String internalName, Class<?> targetType,
+                                    Method method, int histogramIndex) {
+        String descriptor = Type.getMethodDescriptor(method);
+        String[] exceptions = new String[method.getExceptionTypes().length];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = Type.getInternalName(method.getExceptionTypes()[i]);
+        }
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, method.getName(), descriptor, null, exceptions);
+        mv.visitCode();
+
+        Type[] argumentTypes = Type.getArgumentTypes(method);
+        int nextLocal = 1;
+        for (Type argumentType : argumentTypes) {
+            nextLocal += argumentType.getSize();
+        }
+        Type returnType = Type.getReturnType(method);
+        boolean timed = histogramIndex >= 0;
+        int startLocal = nextLocal;
+        int resultLocal = startLocal + 2;
+
+        Label tryStart = new Label();
+        Label tryEnd = new Label();
+        Label handler = new Label();
+        if (timed) {
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+            mv.visitVarInsn(LSTORE, startLocal);
+            mv.visitTryCatchBlock(tryStart, tryEnd, handler, null);
+            mv.visitLabel(tryStart);
+        }
+
+        invokeTarget(mv, internalName, targetType, method, argumentTypes);
+
+        if (!timed) {
+            mv.visitInsn(returnType.getOpcode(IRETURN));
+        } else {
+            if (returnType.getSort() != Type.VOID) {
+                mv.visitVarInsn(returnType.getOpcode(ISTORE), resultLocal);
+            }
+            mv.visitLabel(tryEnd);
+            recordLatency(mv, internalName, histogramIndex, startLocal);
+            if (returnType.getSort() != Type.VOID) {
+                mv.visitVarInsn(returnType.getOpcode(ILOAD), resultLocal);
+            }
+            mv.visitInsn(returnType.getOpcode(IRETURN));
+
+            mv.visitLabel(handler);
+            int throwableLocal = startLocal + 2;
+            mv.visitVarInsn(ASTORE, throwableLocal);
+            recordLatency(mv, internalName, histogramIndex, startLocal);
+            mv.visitVarInsn(ALOAD, throwableLocal);
+            mv.visitInsn(ATHROW);
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void invokeTarget(MethodVisitor mv, String internalName, Class<?> targetType,
+                                     Method method, Type[] argumentTypes) {
+        Class<?> owner = method.getDeclaringClass();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, TARGET, Type.getDescriptor(targetType));
+        if (owner.isInterface()) {
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(owner));
+        }
+        int local = 1;
+        for (Type argumentType : argumentTypes) {
+            mv.visitVarInsn(argumentType.getOpcode(ILOAD), local);
+            local += argumentType.getSize();
+        }
+        if (owner.isInterface()) {
+            mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(owner), method.getName(),
+                    Type.getMethodDescriptor(method), true);
+        } else {
+            String receiver = targetType == Object.class ? OBJECT : Type.getInternalName(targetType);
+            mv.visitMethodInsn(INVOKEVIRTUAL, receiver, method.getName(),
+                    Type.getMethodDescriptor(method), false);
+        }
+    }
+
+    private static void recordLatency(MethodVisitor mv, String internalName, int histogramIndex, int startLocal) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, HISTOGRAMS, HISTOGRAM_ARRAY);
+        mv.visitLdcInsn(histogramIndex);
+        mv.visitInsn(AALOAD);
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        mv.visitVarInsn(LLOAD, startLocal);
+        mv.visitInsn(LSUB);
+        mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(LatencyHistogram.class), "record", "(J)V", false);
+    }
+
+    /**
+     * Defines proxy classes next to the bean type's loader while still
+     * resolving the container's own classes from this loader.
+     */
+    private static final class ProxyClassLoader extends ClassLoader {
+        ProxyClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(LatencyHistogram.class.getName())) {
+                return LatencyHistogram.class;
+            }
+            return super.findClass(name);
+        }
+    }
+}
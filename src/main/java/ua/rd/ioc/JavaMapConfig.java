@@ -1,6 +1,6 @@
 package ua.rd.ioc;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
 
 public class JavaMapConfig implements Config {
@@ -20,12 +20,32 @@ public class JavaMapConfig implements Config {
         return beanDefinitions;
     }
 
+    /**
+     * A {@code "scope"} entry wins over {@code "isPrototype"}.
+     */
     private BeanDefinition beanDefinition(Map.Entry<String, Map<String, Object>> descriptionEntry) {
-        return new SimpleBeanDefinition(
-                descriptionEntry.getKey(),
-                (Class<?>) descriptionEntry.getValue().get("type"),
-                (boolean) descriptionEntry.getValue().getOrDefault("isPrototype", false));
+        Map<String, Object> description = descriptionEntry.getValue();
+        boolean isPrototype = (boolean) description.getOrDefault("isPrototype", false);
+        return SimpleBeanDefinition
+                .builder(descriptionEntry.getKey(), (Class<?>) description.get("type"))
+                .scope((String) description.getOrDefault("scope", isPrototype ? Scope.PROTOTYPE : Scope.SINGLETON))
+                .lazy((boolean) description.getOrDefault("lazy", false))
+                .primary((boolean) description.getOrDefault("primary", false))
+                .aliases(aliases(description.get("aliases")))
+                .build();
+    }
 
+    private String[] aliases(Object aliases) {
+        if (aliases == null) {
+            return new String[0];
+        }
+        if (aliases instanceof String) {
+            return new String[]{(String) aliases};
+        }
+        if (aliases instanceof Collection) {
+            return ((Collection<?>) aliases).stream().map(String::valueOf).toArray(String[]::new);
+        }
+        return (String[]) aliases;
     }
 
 }
@@ -0,0 +1,171 @@
+package ua.rd.ioc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Flight Recorder events of {@link LifecycleEvents}, in the
+ * {@value #CATEGORY} category:
+ * <ul>
+ * <li>{@code ua.rd.ioc.ContextStartup}: a context creating its eager
+ * singletons, with the critical path of its {@link StartupReport};</li>
+ * <li>{@code ua.rd.ioc.BeanCreation}: one bean of any scope, prototypes
+ * included, created from start to end;</li>
+ * <li>{@code ua.rd.ioc.BeanPhase}: one phase of creating a bean:
+ * resolving, and creating, its dependencies, instantiating it, calling its
+ * {@link MyPostConstruct} methods, its init method, and creating its
+ * proxies;</li>
+ * <li>{@code ua.rd.ioc.BeanLookupMiss}: a {@code getBean} for a name or
+ * type without a bean, with the stack trace of the caller.</li>
+ * </ul>
+ * Loaded by name by {@link LifecycleEvents}, and only compiled on JDK 11 or
+ * later. The enabled state of each event is read from its cached
+ * {@link EventType}, so nothing is allocated while it is not recorded.
+ */
+final class JfrLifecycleEvents implements LifecycleEvents.Recorder {
+    private static final String CATEGORY = "IoC Container";
+
+    private static final EventType CREATION = EventType.getEventType(BeanCreationEvent.class);
+    private static final EventType PHASE = EventType.getEventType(BeanPhaseEvent.class);
+    private static final EventType LOOKUP_MISS = EventType.getEventType(BeanLookupMissEvent.class);
+    private static final EventType STARTUP = EventType.getEventType(ContextStartupEvent.class);
+
+    @Override
+    public Object beginCreation() {
+        if (!CREATION.isEnabled()) {
+            return null;
+        }
+        BeanCreationEvent event = new BeanCreationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endCreation(Object creation, BeanDefinition beanDefinition) {
+        BeanCreationEvent event = (BeanCreationEvent) creation;
+        event.end();
+        if (event.shouldCommit()) {
+            event.beanName = beanDefinition.getBeanName();
+            event.beanType = beanDefinition.getBeanType();
+            event.scope = beanDefinition.getScope();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginPhase() {
+        if (!PHASE.isEnabled()) {
+            return null;
+        }
+        BeanPhaseEvent event = new BeanPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Object nextPhase(Object phase, String beanName, String phaseName) {
+        endPhase(phase, beanName, phaseName);
+        return beginPhase();
+    }
+
+    @Override
+    public void endPhase(Object phase, String beanName, String phaseName) {
+        BeanPhaseEvent event = (BeanPhaseEvent) phase;
+        event.end();
+        if (event.shouldCommit()) {
+            event.beanName = beanName;
+            event.phase = phaseName;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void lookupMiss(String lookup) {
+        if (!LOOKUP_MISS.isEnabled()) {
+            return;
+        }
+        BeanLookupMissEvent event = new BeanLookupMissEvent();
+        if (event.shouldCommit()) {
+            event.lookup = lookup;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginStartup() {
+        if (!STARTUP.isEnabled()) {
+            return null;
+        }
+        ContextStartupEvent event = new ContextStartupEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endStartup(Object startup, int beanCount, StartupReport report) {
+        ContextStartupEvent event = (ContextStartupEvent) startup;
+        event.end();
+        if (event.shouldCommit()) {
+            event.beanCount = beanCount;
+            event.parallel = report.isParallel();
+            event.criticalPath = String.join(" -> ", report.getCriticalPath());
+            event.criticalPathDuration = report.getCriticalPathNanos();
+            event.commit();
+        }
+    }
+
+    @Name("ua.rd.ioc.ContextStartup")
+    @Label("Context Startup")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ContextStartupEvent extends Event {
+        @Label("Beans")
+        int beanCount;
+        @Label("Parallel")
+        boolean parallel;
+        @Label("Critical Path")
+        String criticalPath;
+        @Label("Critical Path Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long criticalPathDuration;
+    }
+
+    @Name("ua.rd.ioc.BeanCreation")
+    @Label("Bean Creation")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class BeanCreationEvent extends Event {
+        @Label("Bean Name")
+        String beanName;
+        @Label("Bean Type")
+        Class<?> beanType;
+        @Label("Scope")
+        String scope;
+    }
+
+    @Name("ua.rd.ioc.BeanPhase")
+    @Label("Bean Lifecycle Phase")
+    @Description("resolve, instantiate, postConstruct, init or proxy")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class BeanPhaseEvent extends Event {
+        @Label("Bean Name")
+        String beanName;
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("ua.rd.ioc.BeanLookupMiss")
+    @Label("Bean Lookup Miss")
+    @Category(CATEGORY)
+    static final class BeanLookupMissEvent extends Event {
+        @Label("Bean Name or Type")
+        String lookup;
+    }
+}
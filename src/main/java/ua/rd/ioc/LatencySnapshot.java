@@ -0,0 +1,61 @@
+package ua.rd.ioc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time view of a {@link LatencyHistogram}, all values in nanoseconds.
+ */
+public class LatencySnapshot {
+    private final long count;
+    private final long max;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+
+    LatencySnapshot(long count, long max, double mean, long p50, long p99, long p999) {
+        this.count = count;
+        this.max = max;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count +
+                ", p50=" + micros(p50) +
+                ", p99=" + micros(p99) +
+                ", p999=" + micros(p999) +
+                ", max=" + micros(max);
+    }
+
+    private static String micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+}
@@ -0,0 +1,106 @@
+package ua.rd.ioc;
+
+/**
+ * Flight Recorder events of the context, see {@link JfrLifecycleEvents}.
+ * <p>
+ * {@code jdk.jfr} is not Java SE 8 API, so the rest of the context is
+ * compiled against Java 8 and does not refer to {@link JfrLifecycleEvents}:
+ * it is loaded by name, and only built on JDK 11 or later. Every method is
+ * a no-op when it is missing or the JVM has no {@code jdk.jfr}. An event is
+ * {@code null} when it is not recorded, and none is allocated then, so with
+ * no recording running the cost is a null check per call.
+ */
+final class LifecycleEvents {
+    static final String RESOLVE = "resolve";
+    static final String INSTANTIATE = "instantiate";
+    static final String POST_CONSTRUCT = "postConstruct";
+    static final String INIT = "init";
+    static final String PROXY = "proxy";
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    private LifecycleEvents() {
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            return (Recorder) Class.forName("ua.rd.ioc.JfrLifecycleEvents", true, LifecycleEvents.class.getClassLoader())
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts timing the creation of a bean, or returns {@code null}.
+     */
+    static Object beginCreation() {
+        return RECORDER != null ? RECORDER.beginCreation() : null;
+    }
+
+    static void endCreation(Object creation, BeanDefinition beanDefinition) {
+        if (creation != null) {
+            RECORDER.endCreation(creation, beanDefinition);
+        }
+    }
+
+    /**
+     * Starts timing the first phase of creating a bean, or returns
+     * {@code null}.
+     */
+    static Object beginPhase() {
+        return RECORDER != null ? RECORDER.beginPhase() : null;
+    }
+
+    /**
+     * Commits {@code phase} as the phase just done and starts timing the
+     * next one.
+     */
+    static Object nextPhase(Object phase, String beanName, String phaseName) {
+        return phase != null ? RECORDER.nextPhase(phase, beanName, phaseName) : null;
+    }
+
+    static void endPhase(Object phase, String beanName, String phaseName) {
+        if (phase != null) {
+            RECORDER.endPhase(phase, beanName, phaseName);
+        }
+    }
+
+    static void lookupMiss(String lookup) {
+        if (RECORDER != null) {
+            RECORDER.lookupMiss(lookup);
+        }
+    }
+
+    static Object beginStartup() {
+        return RECORDER != null ? RECORDER.beginStartup() : null;
+    }
+
+    static void endStartup(Object startup, int beanCount, StartupReport report) {
+        if (startup != null) {
+            RECORDER.endStartup(startup, beanCount, report);
+        }
+    }
+
+    /**
+     * What {@link JfrLifecycleEvents} implements; the {@code begin} methods
+     * return {@code null} unless their event is enabled.
+     */
+    interface Recorder {
+        Object beginCreation();
+
+        void endCreation(Object creation, BeanDefinition beanDefinition);
+
+        Object beginPhase();
+
+        Object nextPhase(Object phase, String beanName, String phaseName);
+
+        void endPhase(Object phase, String beanName, String phaseName);
+
+        void lookupMiss(String lookup);
+
+        Object beginStartup();
+
+        void endStartup(Object startup, int beanCount, StartupReport report);
+    }
+}
@@ -0,0 +1,35 @@
+package ua.rd.ioc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+final class LruPolicy implements EvictionPolicy {
+    private final int maximumSize;
+    private final LinkedHashMap<Object, Boolean> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+    LruPolicy(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public void recordAccess(Object key) {
+        keys.get(key);
+    }
+
+    @Override
+    public Object recordInsert(Object key) {
+        keys.put(key, Boolean.TRUE);
+        if (keys.size() <= maximumSize) {
+            return null;
+        }
+        Iterator<Object> eldest = keys.keySet().iterator();
+        Object victim = eldest.next();
+        eldest.remove();
+        return victim;
+    }
+
+    @Override
+    public void remove(Object key) {
+        keys.remove(key);
+    }
+}
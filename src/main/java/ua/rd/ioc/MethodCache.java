@@ -0,0 +1,238 @@
+package ua.rd.ioc;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Results of one {@link Cacheable} method. Hits are a lock-free read of a
+ * {@link ConcurrentHashMap}; the eviction policy is only told about a hit
+ * when its lock is free, so a hot key never makes readers queue. Writes,
+ * evictions and expirations take the lock and keep the map and the policy
+ * in step.
+ * <p>
+ * The first thread missing a key calls the loader and every other thread
+ * missing it meanwhile waits for that call, so a popular expired entry is
+ * loaded once rather than once per caller. A loader that throws caches
+ * nothing and its exception is rethrown to all of them.
+ */
+public class MethodCache {
+    private static final Object NULL = new Object();
+    private static final Object NO_ARGUMENTS = new Object();
+
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+    private final LongSupplier ticker;
+    private final EvictionPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public MethodCache(int maximumSize, long expireAfterWriteMillis, CacheEviction eviction) {
+        this(maximumSize, TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis), eviction, System::nanoTime);
+    }
+
+    MethodCache(int maximumSize, long expireAfterWriteNanos, CacheEviction eviction, LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (expireAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("expireAfterWrite must not be negative: " + expireAfterWriteNanos);
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.ticker = ticker;
+        this.policy = eviction.newPolicy(maximumSize);
+    }
+
+    static MethodCache of(Cacheable cacheable) {
+        return new MethodCache(cacheable.maximumSize(), cacheable.expireAfterWriteMillis(), cacheable.eviction());
+    }
+
+    /**
+     * The cache key for a call with {@code arguments}: the argument itself
+     * for a single non-array argument, and a key comparing the arguments
+     * deeply otherwise.
+     */
+    public static Object key(Object... arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return NO_ARGUMENTS;
+        }
+        if (arguments.length == 1 && arguments[0] != null && !arguments[0].getClass().isArray()) {
+            return arguments[0];
+        }
+        return new ArgumentsKey(arguments);
+    }
+
+    /**
+     * The cached result for {@code key}, calling {@code loader} on a miss.
+     */
+    public <X extends Throwable> Object get(Object key, Loader<X> loader) throws X {
+        Entry entry = entries.get(key);
+        if (entry != null && !isExpired(entry)) {
+            hits.increment();
+            recordAccess(key);
+            return unmask(entry.value);
+        }
+        misses.increment();
+        if (entry != null) {
+            expire(key, entry);
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return unmask(await(inFlight));
+        }
+        try {
+            entry = entries.get(key);
+            Object value;
+            if (entry != null && !isExpired(entry)) {
+                value = entry.value;
+            } else {
+                value = mask(loader.load());
+                put(key, value);
+            }
+            load.complete(value);
+            return unmask(value);
+        } catch (Throwable e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return expireAfterWriteNanos > 0 && ticker.getAsLong() - entry.writtenAt >= expireAfterWriteNanos;
+    }
+
+    private void recordAccess(Object key) {
+        if (lock.tryLock()) {
+            try {
+                if (entries.containsKey(key)) {
+                    policy.recordAccess(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void expire(Object key, Entry entry) {
+        lock.lock();
+        try {
+            if (entries.remove(key, entry)) {
+                policy.remove(key);
+                expirations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Object key, Object value) {
+        Entry entry = new Entry(value, ticker.getAsLong());
+        lock.lock();
+        try {
+            if (entries.put(key, entry) != null) {
+                policy.recordAccess(key);
+                return;
+            }
+            Object victim = policy.recordInsert(key);
+            if (victim != null) {
+                entries.remove(victim);
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <X extends Throwable> Object await(CompletableFuture<Object> load) throws X {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            throw (X) e.getCause();
+        }
+    }
+
+    private static Object mask(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    private static Object unmask(Object value) {
+        return value == NULL ? null : value;
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.keySet().forEach(policy::remove);
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries.size());
+    }
+
+    /**
+     * The call whose result is cached, throwing whatever the cached method
+     * declares.
+     */
+    @FunctionalInterface
+    public interface Loader<X extends Throwable> {
+        Object load() throws X;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long writtenAt;
+
+        private Entry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    private static final class ArgumentsKey {
+        private final Object[] arguments;
+        private final int hash;
+
+        private ArgumentsKey(Object[] arguments) {
+            this.arguments = arguments.clone();
+            this.hash = Arrays.deepHashCode(this.arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ArgumentsKey && Arrays.deepEquals(arguments, ((ArgumentsKey) o).arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ua.rd.ioc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Called on a singleton when its context is closed. Singletons are
+ * destroyed in the reverse order of their creation, so a bean can still use
+ * its dependencies while it shuts down. Request scoped beans are destroyed
+ * when their request ends; thread scoped beans and prototypes are not
+ * tracked.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface MyPreDestroy {
+
+}
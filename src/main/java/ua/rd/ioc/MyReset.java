@@ -0,0 +1,17 @@
+package ua.rd.ioc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Called on a {@link Scope#POOLED pooled} bean when it is handed back with
+ * {@link ApplicationContext#release(String, Object)}, to clear whatever
+ * state the last borrower left before the next one gets the instance.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface MyReset {
+
+}
@@ -4,4 +4,8 @@ public class NoSuchBeanException extends RuntimeException {
     public NoSuchBeanException() {
         super("NoSuchBean");
     }
+
+    public NoSuchBeanException(String message) {
+        super(message);
+    }
 }
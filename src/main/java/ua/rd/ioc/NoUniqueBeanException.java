@@ -0,0 +1,11 @@
+package ua.rd.ioc;
+
+/**
+ * Thrown when a lookup by type matches several beans and none of them is
+ * marked primary.
+ */
+public class NoUniqueBeanException extends NoSuchBeanException {
+    public NoUniqueBeanException(String message) {
+        super(message);
+    }
+}
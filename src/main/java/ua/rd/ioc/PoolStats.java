@@ -0,0 +1,69 @@
+package ua.rd.ioc;
+
+/**
+ * Point-in-time counters of the pool of one {@link PooledScope} bean.
+ */
+public class PoolStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long releaseCount;
+    private final long discardCount;
+    private final int idleCount;
+    private final int capacity;
+
+    PoolStats(long hitCount, long missCount, long releaseCount, long discardCount, int idleCount, int capacity) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.releaseCount = releaseCount;
+        this.discardCount = discardCount;
+        this.idleCount = idleCount;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Borrows served by an idle instance.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Borrows that found the pool empty and built a new instance.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getReleaseCount() {
+        return releaseCount;
+    }
+
+    /**
+     * Released instances dropped because the pool was full.
+     */
+    public long getDiscardCount() {
+        return discardCount;
+    }
+
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getHitRate() {
+        long borrows = hitCount + missCount;
+        return borrows == 0 ? 1.0 : (double) hitCount / borrows;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hitCount +
+                ", misses=" + missCount +
+                ", releases=" + releaseCount +
+                ", discards=" + discardCount +
+                ", idle=" + idleCount + "/" + capacity;
+    }
+}
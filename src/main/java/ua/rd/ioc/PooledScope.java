@@ -0,0 +1,153 @@
+package ua.rd.ioc;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Reuses instances instead of building a new one for every {@code getBean}.
+ * Each bean has a bounded pool of idle, fully initialized instances;
+ * {@link #get} takes one, or builds one through the whole bean pipeline when
+ * the pool is empty, and {@link ApplicationContext#release(String, Object)}
+ * resets an instance with its {@link MyReset} methods and puts it back. An
+ * instance that is never released is simply garbage collected, and one
+ * released into a full pool is dropped.
+ * <p>
+ * A pool is an array of slots split into stripes. A thread starts looking
+ * for an idle instance, or for a free slot, in the stripe picked by its id
+ * and moves on to the others, claiming slots with a compare-and-set; stripes
+ * are padded apart so threads working in different stripes do not share
+ * cache lines. Borrowing and releasing allocate nothing and take no lock.
+ * <p>
+ * Releasing an instance twice, or using it after releasing it, hands the
+ * same object to two borrowers. Pooled instances are not destroyed.
+ */
+public class PooledScope implements Scope {
+    private static final int DEFAULT_MAXIMUM_IDLE = 64;
+    private static final int PADDING = 16;
+
+    private final int stripeCount;
+    private final int slotsPerStripe;
+    private final ConcurrentMap<String, BeanPool> pools = new ConcurrentHashMap<>();
+
+    public PooledScope() {
+        this(DEFAULT_MAXIMUM_IDLE);
+    }
+
+    /**
+     * @param maximumIdle idle instances kept per bean, rounded up to fill
+     *                    the stripes evenly
+     */
+    public PooledScope(int maximumIdle) {
+        if (maximumIdle < 1) {
+            throw new IllegalArgumentException("maximumIdle must be positive: " + maximumIdle);
+        }
+        int stripes = Math.min(Runtime.getRuntime().availableProcessors(), maximumIdle);
+        this.stripeCount = Integer.highestOneBit(stripes);
+        this.slotsPerStripe = (maximumIdle + stripeCount - 1) / stripeCount;
+    }
+
+    @Override
+    public Object get(String beanName, Supplier<Object> factory) {
+        BeanPool pool = pool(beanName);
+        Object bean = pool.borrow();
+        return bean != null ? bean : factory.get();
+    }
+
+    @Override
+    public boolean isReleasable() {
+        return true;
+    }
+
+    @Override
+    public void release(String beanName, Object bean) {
+        pool(beanName).release(bean);
+    }
+
+    private BeanPool pool(String beanName) {
+        BeanPool pool = pools.get(beanName);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(beanName, name -> new BeanPool(stripeCount, slotsPerStripe));
+        }
+        return pool;
+    }
+
+    /**
+     * Counters of every bean that was borrowed so far, by bean name.
+     */
+    public Map<String, PoolStats> stats() {
+        Map<String, PoolStats> stats = new TreeMap<>();
+        pools.forEach((beanName, pool) -> stats.put(beanName, pool.stats()));
+        return stats;
+    }
+
+    private static final class BeanPool {
+        private final int stripeMask;
+        private final int slotsPerStripe;
+        private final int stride;
+        private final AtomicReferenceArray<Object> slots;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder releases = new LongAdder();
+        private final LongAdder discards = new LongAdder();
+
+        private BeanPool(int stripeCount, int slotsPerStripe) {
+            this.stripeMask = stripeCount - 1;
+            this.slotsPerStripe = slotsPerStripe;
+            this.stride = slotsPerStripe + PADDING;
+            this.slots = new AtomicReferenceArray<>(stripeCount * stride);
+        }
+
+        private int homeStripe() {
+            long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            return (int) (id >>> 32) & stripeMask;
+        }
+
+        Object borrow() {
+            int home = homeStripe();
+            for (int s = 0; s <= stripeMask; s++) {
+                int base = ((home + s) & stripeMask) * stride;
+                for (int i = base; i < base + slotsPerStripe; i++) {
+                    Object bean = slots.get(i);
+                    if (bean != null && slots.compareAndSet(i, bean, null)) {
+                        hits.increment();
+                        return bean;
+                    }
+                }
+            }
+            misses.increment();
+            return null;
+        }
+
+        void release(Object bean) {
+            releases.increment();
+            int home = homeStripe();
+            for (int s = 0; s <= stripeMask; s++) {
+                int base = ((home + s) & stripeMask) * stride;
+                for (int i = base; i < base + slotsPerStripe; i++) {
+                    if (slots.get(i) == null && slots.compareAndSet(i, null, bean)) {
+                        return;
+                    }
+                }
+            }
+            discards.increment();
+        }
+
+        PoolStats stats() {
+            int idle = 0;
+            for (int s = 0; s <= stripeMask; s++) {
+                for (int i = s * stride; i < s * stride + slotsPerStripe; i++) {
+                    if (slots.get(i) != null) {
+                        idle++;
+                    }
+                }
+            }
+            return new PoolStats(hits.sum(), misses.sum(), releases.sum(), discards.sum(), idle,
+                    (stripeMask + 1) * slotsPerStripe);
+        }
+    }
+}
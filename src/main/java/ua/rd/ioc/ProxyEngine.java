@@ -0,0 +1,25 @@
+package ua.rd.ioc;
+
+/**
+ * How {@link ApplicationContext} builds the {@link Benchmark} proxies.
+ */
+public enum ProxyEngine {
+    /**
+     * {@link java.lang.reflect.Proxy} over the bean's interfaces. Every call
+     * goes through an {@link java.lang.reflect.InvocationHandler} and
+     * {@link java.lang.reflect.Method#invoke}. Beans without interfaces are
+     * left unproxied.
+     */
+    JDK,
+
+    /**
+     * A class generated once per bean definition that implements the bean's
+     * interfaces, or subclasses the bean type when it has none, and calls
+     * the target directly. The class is defined in a loader of its own, so
+     * beans with a non-public interface get a {@link #JDK} proxy instead.
+     * A bean without interfaces whose subclass could not override all its
+     * methods, e.g. a final class or one with final methods, is left
+     * unproxied, as with {@link #JDK}.
+     */
+    GENERATED
+}
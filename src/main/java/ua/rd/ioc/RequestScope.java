@@ -0,0 +1,148 @@
+package ua.rd.ioc;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * One instance per request. A request is the extent of a
+ * {@link #run(Runnable)} or {@link #call(Callable)}: it is bound to the
+ * calling thread when the call starts and unbound when it returns, like a
+ * {@code ScopedValue} binding, so nothing is left behind on pooled or
+ * virtual threads. Nested calls start a new request and restore the outer
+ * one afterwards. When a request ends, the {@link MyPreDestroy} methods of
+ * its beans are called, newest first.
+ * <p>
+ * A request belongs to the thread running it and its beans are never
+ * shared, so lookups need no lock.
+ */
+public class RequestScope implements Scope {
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    public static void run(Runnable action) {
+        Request request = begin();
+        Throwable failure = null;
+        try {
+            action.run();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            end(request, failure);
+        }
+    }
+
+    public static <T> T call(Callable<T> action) throws Exception {
+        Request request = begin();
+        Throwable failure = null;
+        try {
+            return action.call();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            end(request, failure);
+        }
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    private static Request begin() {
+        Request request = new Request(CURRENT.get());
+        CURRENT.set(request);
+        return request;
+    }
+
+    /**
+     * Restores the outer request and destroys the beans of this one. A
+     * failing destroy method is thrown, or added to {@code failure} when
+     * the request itself failed.
+     */
+    private static void end(Request request, Throwable failure) {
+        if (request.outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(request.outer);
+        }
+        BeanDestructionException destroyFailure = request.destroy();
+        if (destroyFailure != null) {
+            if (failure != null) {
+                failure.addSuppressed(destroyFailure);
+            } else {
+                throw destroyFailure;
+            }
+        }
+    }
+
+    @Override
+    public Object get(String beanName, Supplier<Object> factory) {
+        Request request = CURRENT.get();
+        if (request == null) {
+            throw new BeanCreationException("Bean '" + beanName
+                    + "' is request scoped and there is no active request; use RequestScope.run");
+        }
+        Map<String, Object> requestBeans = request.beans.computeIfAbsent(this, scope -> new HashMap<>());
+        Object bean = requestBeans.get(beanName);
+        if (bean == null) {
+            bean = factory.get();
+            requestBeans.put(beanName, bean);
+        }
+        return bean;
+    }
+
+    @Override
+    public void registerDestructionCallback(String beanName, Runnable callback) {
+        Request request = CURRENT.get();
+        if (request != null) {
+            request.destroyCallbacks.addFirst(new DestroyCallback(beanName, callback));
+        }
+    }
+
+    /**
+     * The beans of one request, per {@link RequestScope} instance so that
+     * contexts do not see each other's beans.
+     */
+    private static final class Request {
+        private final Request outer;
+        private final Map<RequestScope, Map<String, Object>> beans = new IdentityHashMap<>();
+        private final Deque<DestroyCallback> destroyCallbacks = new ArrayDeque<>();
+
+        private Request(Request outer) {
+            this.outer = outer;
+        }
+
+        private BeanDestructionException destroy() {
+            BeanDestructionException failure = null;
+            for (DestroyCallback callback : destroyCallbacks) {
+                try {
+                    callback.callback.run();
+                } catch (Throwable e) {
+                    BeanDestructionException beanFailure = new BeanDestructionException(
+                            "Can not destroy request scoped bean '" + callback.beanName + "'", e);
+                    if (failure == null) {
+                        failure = beanFailure;
+                    } else {
+                        failure.addSuppressed(beanFailure);
+                    }
+                }
+            }
+            return failure;
+        }
+    }
+
+    private static final class DestroyCallback {
+        private final String beanName;
+        private final Runnable callback;
+
+        private DestroyCallback(String beanName, Runnable callback) {
+            this.beanName = beanName;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ua.rd.ioc;
+
+import java.util.function.Supplier;
+
+/**
+ * Where the instances of a bean that is neither a singleton nor a prototype
+ * live. The context hands every {@code getBean} of such a bean to its scope,
+ * which returns the instance it holds for the current thread, request or
+ * whatever it is keyed by, and only calls {@code factory} when it has none.
+ * <p>
+ * Scopes are looked up on every call, so {@link #get} should not take a lock
+ * shared by all callers. Custom scopes are registered with
+ * {@link ContextOptions.Builder#scope(String, Scope)}.
+ */
+public interface Scope {
+    String SINGLETON = "singleton";
+    String PROTOTYPE = "prototype";
+    String THREAD = "thread";
+    String REQUEST = "request";
+    String POOLED = "pooled";
+
+    Object get(String beanName, Supplier<Object> factory);
+
+    /**
+     * Registers the {@link MyPreDestroy} methods of an instance this scope
+     * is creating, to be called when the instance goes out of scope. Scopes
+     * without an end, such as {@link ThreadScope}, ignore them.
+     */
+    default void registerDestructionCallback(String beanName, Runnable callback) {
+    }
+
+    /**
+     * Whether instances are handed back with {@link #release}. Scopes that
+     * keep returning the same instance, such as {@link ThreadScope}, must
+     * not have it reset under its other users.
+     */
+    default boolean isReleasable() {
+        return false;
+    }
+
+    /**
+     * Takes back an instance its borrower is done with, already reset. Only
+     * called when the scope {@link #isReleasable() is releasable}.
+     */
+    default void release(String beanName, Object bean) {
+    }
+}
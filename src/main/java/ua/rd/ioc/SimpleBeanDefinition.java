@@ -1,17 +1,39 @@
 package ua.rd.ioc;
 
+import java.util.Objects;
+
 public class SimpleBeanDefinition implements BeanDefinition {
+
     private final String beanName;
     private final Class<?> beanType;
-    private final boolean isPrototype;
+    private final String scope;
+    private final boolean isLazy;
+    private final boolean isPrimary;
+    private final String[] aliases;
+    private final ConstructorArgument[] constructorArguments;
+    private final String initMethodName;
 
     public SimpleBeanDefinition(String beanName, Class<?> beanType, boolean isPrototype) {
+        this(beanName, beanType, isPrototype ? Scope.PROTOTYPE : Scope.SINGLETON, false, false, NO_ALIASES,
+                NO_CONSTRUCTOR_ARGUMENTS, null);
+    }
+
+    private SimpleBeanDefinition(String beanName, Class<?> beanType, String scope,
+                                 boolean isLazy, boolean isPrimary, String[] aliases,
+                                 ConstructorArgument[] constructorArguments, String initMethodName) {
         this.beanName = beanName;
         this.beanType = beanType;
-        this.isPrototype = isPrototype;
+        this.scope = scope;
+        this.isLazy = isLazy;
+        this.isPrimary = isPrimary;
+        this.aliases = aliases;
+        this.constructorArguments = constructorArguments;
+        this.initMethodName = initMethodName;
     }
 
-
+    public static Builder builder(String beanName, Class<?> beanType) {
+        return new Builder(beanName, beanType);
+    }
 
     @Override
     public String getBeanName() {
@@ -25,6 +47,92 @@ public class SimpleBeanDefinition implements BeanDefinition {
 
     @Override
     public boolean isPrototype() {
-        return isPrototype;
+        return Scope.PROTOTYPE.equals(scope);
+    }
+
+    @Override
+    public String getScope() {
+        return scope;
+    }
+
+    @Override
+    public boolean isLazy() {
+        return isLazy;
+    }
+
+    @Override
+    public boolean isPrimary() {
+        return isPrimary;
+    }
+
+    @Override
+    public String[] getAliases() {
+        return aliases.clone();
+    }
+
+    @Override
+    public ConstructorArgument[] getConstructorArguments() {
+        return constructorArguments.clone();
+    }
+
+    @Override
+    public String getInitMethodName() {
+        return initMethodName;
+    }
+
+    public static class Builder {
+        private final String beanName;
+        private final Class<?> beanType;
+        private String scope = Scope.SINGLETON;
+        private boolean isLazy;
+        private boolean isPrimary;
+        private String[] aliases = NO_ALIASES;
+        private ConstructorArgument[] constructorArguments = NO_CONSTRUCTOR_ARGUMENTS;
+        private String initMethodName;
+
+        private Builder(String beanName, Class<?> beanType) {
+            this.beanName = beanName;
+            this.beanType = beanType;
+        }
+
+        public Builder prototype(boolean isPrototype) {
+            this.scope = isPrototype ? Scope.PROTOTYPE : Scope.SINGLETON;
+            return this;
+        }
+
+        public Builder scope(String scope) {
+            this.scope = Objects.requireNonNull(scope, "scope");
+            return this;
+        }
+
+        public Builder lazy(boolean isLazy) {
+            this.isLazy = isLazy;
+            return this;
+        }
+
+        public Builder primary(boolean isPrimary) {
+            this.isPrimary = isPrimary;
+            return this;
+        }
+
+        public Builder aliases(String... aliases) {
+            this.aliases = aliases.clone();
+            return this;
+        }
+
+        public Builder constructorArguments(ConstructorArgument... constructorArguments) {
+            this.constructorArguments = constructorArguments.clone();
+            return this;
+        }
+
+        public Builder initMethod(String initMethodName) {
+            this.initMethodName = initMethodName;
+            return this;
+        }
+
+        public SimpleBeanDefinition build() {
+            return new SimpleBeanDefinition(beanName, beanType, scope, isLazy, isPrimary, aliases,
+                    constructorArguments, initMethodName);
+        }
     }
 }
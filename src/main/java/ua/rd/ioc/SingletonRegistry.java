@@ -0,0 +1,97 @@
+package ua.rd.ioc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Singleton instances of a context. Reads of created singletons are a
+ * lock-free {@link ConcurrentHashMap} probe; creation is guarded by a lock
+ * per bean name, so each singleton is built exactly once and unrelated
+ * beans are built concurrently.
+ * <p>
+ * A circular dependency is reported rather than deadlocking, also when
+ * threads enter the cycle from different beans: before a thread blocks on
+ * a bean, the chain of threads it would wait for is followed, and if it
+ * leads back to the thread itself the creation fails.
+ */
+final class SingletonRegistry {
+    private final ConcurrentMap<String, Object> singletons = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> creationLocks = new ConcurrentHashMap<>();
+    private final Object waitGraphLock = new Object();
+    private final Map<String, Thread> creators = new HashMap<>();
+    private final Map<Thread, String> awaited = new HashMap<>();
+
+    Object get(String beanName) {
+        return singletons.get(beanName);
+    }
+
+    Object getOrCreate(String beanName, Supplier<Object> factory) {
+        Object singleton = singletons.get(beanName);
+        if (singleton != null) {
+            return singleton;
+        }
+
+        Object lock = creationLocks.computeIfAbsent(beanName, name -> new Object());
+        await(beanName);
+        synchronized (lock) {
+            stopAwaiting();
+            singleton = singletons.get(beanName);
+            if (singleton == null) {
+                singleton = create(beanName, factory);
+                singletons.put(beanName, singleton);
+            }
+        }
+        creationLocks.remove(beanName, lock);
+        return singleton;
+    }
+
+    /**
+     * Records that the current thread is about to wait for
+     * {@code beanName}, unless the thread creating it waits, directly or
+     * through other threads, for a bean the current thread is creating.
+     */
+    private void await(String beanName) {
+        Thread current = Thread.currentThread();
+        synchronized (waitGraphLock) {
+            Thread creator = creators.get(beanName);
+            while (creator != null) {
+                if (creator == current) {
+                    throw new BeanCreationException("Circular dependency on bean '" + beanName + "'");
+                }
+                String creatorAwaits = awaited.get(creator);
+                creator = creatorAwaits == null ? null : creators.get(creatorAwaits);
+            }
+            awaited.put(current, beanName);
+        }
+    }
+
+    private void stopAwaiting() {
+        synchronized (waitGraphLock) {
+            awaited.remove(Thread.currentThread());
+        }
+    }
+
+    private Object create(String beanName, Supplier<Object> factory) {
+        synchronized (waitGraphLock) {
+            creators.put(beanName, Thread.currentThread());
+        }
+        try {
+            return factory.get();
+        } finally {
+            synchronized (waitGraphLock) {
+                creators.remove(beanName);
+            }
+        }
+    }
+
+    boolean contains(String beanName) {
+        return singletons.containsKey(beanName);
+    }
+
+    int size() {
+        return singletons.size();
+    }
+}
@@ -0,0 +1,93 @@
+package ua.rd.ioc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * How long context startup took, which dependency chain bounded it and
+ * which beans were slowest. Bean times cover the bean's own construction
+ * and lifecycle callbacks, not the creation of its dependencies. For the
+ * phases of every bean, record the events of {@link JfrLifecycleEvents}.
+ */
+public class StartupReport {
+    private final boolean parallel;
+    private final long startupNanos;
+    private final List<String> criticalPath;
+    private final long criticalPathNanos;
+    private final Map<String, Long> beanNanos;
+
+    StartupReport(boolean parallel, long startupNanos, List<String> criticalPath, Map<String, Long> beanNanos) {
+        this.parallel = parallel;
+        this.startupNanos = startupNanos;
+        this.criticalPath = Collections.unmodifiableList(criticalPath);
+        this.beanNanos = Collections.unmodifiableMap(beanNanos);
+        this.criticalPathNanos = criticalPath.stream().mapToLong(name -> beanNanos.getOrDefault(name, 0L)).sum();
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public long getStartupNanos() {
+        return startupNanos;
+    }
+
+    public List<String> getCriticalPath() {
+        return criticalPath;
+    }
+
+    public long getCriticalPathNanos() {
+        return criticalPathNanos;
+    }
+
+    public Map<String, Long> getBeanNanos() {
+        return beanNanos;
+    }
+
+    /**
+     * The names of at most {@code count} beans that took longest, slowest
+     * first.
+     */
+    public List<String> getSlowestBeans(int count) {
+        return beanNanos.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A human-readable summary: total time, the critical path and the ten
+     * slowest beans, with times in milliseconds.
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder()
+                .append("Started ").append(beanNanos.size()).append(" beans in ").append(millis(startupNanos))
+                .append(parallel ? " (parallel)" : "").append('\n')
+                .append("Critical path ").append(millis(criticalPathNanos)).append(": ")
+                .append(String.join(" -> ", criticalPath)).append('\n')
+                .append("Slowest beans:").append('\n');
+        for (String beanName : getSlowestBeans(10)) {
+            report.append("  ").append(beanName).append(' ').append(millis(beanNanos.get(beanName))).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return "StartupReport{" +
+                "parallel=" + parallel +
+                ", startupNanos=" + startupNanos +
+                ", criticalPathNanos=" + criticalPathNanos +
+                ", criticalPath=" + criticalPath +
+                '}';
+    }
+}
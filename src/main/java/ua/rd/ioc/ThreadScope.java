@@ -0,0 +1,33 @@
+package ua.rd.ioc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * One instance per thread, held until {@link #clear()}. The instances of a
+ * thread are never shared, so lookups need no lock. A thread has no end the
+ * scope could observe, so destroy methods are not called; with pooled
+ * threads, clear the scope when a task is done or use {@link RequestScope}.
+ */
+public class ThreadScope implements Scope {
+    private final ThreadLocal<Map<String, Object>> beans = ThreadLocal.withInitial(HashMap::new);
+
+    @Override
+    public Object get(String beanName, Supplier<Object> factory) {
+        Map<String, Object> threadBeans = beans.get();
+        Object bean = threadBeans.get(beanName);
+        if (bean == null) {
+            bean = factory.get();
+            threadBeans.put(beanName, bean);
+        }
+        return bean;
+    }
+
+    /**
+     * Forgets the instances of the current thread.
+     */
+    public void clear() {
+        beans.remove();
+    }
+}
@@ -0,0 +1,148 @@
+package ua.rd.ioc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Maps every superclass and interface of every bean type to the definitions
+ * assignable to it, built once per context. Lookups by type are a single
+ * hash probe; candidates keep definition order. The index of a child
+ * context falls back to its parent's for dependencies it can not satisfy
+ * itself.
+ */
+final class TypeIndex {
+    private final Map<Class<?>, List<BeanDefinition>> definitionsByType;
+    private final Map<String, BeanDefinition> definitionsByName;
+    private final TypeIndex parent;
+
+    TypeIndex(List<BeanDefinition> beanDefinitions, Map<String, BeanDefinition> definitionsByName) {
+        this(beanDefinitions, definitionsByName, null);
+    }
+
+    TypeIndex(List<BeanDefinition> beanDefinitions, Map<String, BeanDefinition> definitionsByName,
+              TypeIndex parent) {
+        Map<Class<?>, List<BeanDefinition>> index = new HashMap<>();
+        for (BeanDefinition bd : beanDefinitions) {
+            for (Class<?> type : assignableTypes(bd.getBeanType())) {
+                index.computeIfAbsent(type, t -> new ArrayList<>()).add(bd);
+            }
+        }
+        index.replaceAll((type, definitions) -> Collections.unmodifiableList(definitions));
+        this.definitionsByType = index;
+        this.definitionsByName = definitionsByName;
+        this.parent = parent;
+    }
+
+    /**
+     * The bean type itself, its superclasses up to but excluding
+     * {@link Object} and all of their interfaces.
+     */
+    private static List<Class<?>> assignableTypes(Class<?> beanType) {
+        List<Class<?>> types = new ArrayList<>();
+        for (Class<?> c = beanType; c != null && c != Object.class; c = c.getSuperclass()) {
+            types.add(c);
+            collectInterfaces(c, types);
+        }
+        return types;
+    }
+
+    private static void collectInterfaces(Class<?> type, List<Class<?>> types) {
+        for (Class<?> anInterface : type.getInterfaces()) {
+            if (!types.contains(anInterface)) {
+                types.add(anInterface);
+                collectInterfaces(anInterface, types);
+            }
+        }
+    }
+
+    List<BeanDefinition> candidates(Class<?> type) {
+        return definitionsByType.getOrDefault(type, Collections.emptyList());
+    }
+
+    /**
+     * The only candidate for {@code type}, otherwise the one marked primary.
+     */
+    BeanDefinition resolve(Class<?> type) {
+        List<BeanDefinition> candidates = candidates(type);
+        if (candidates.isEmpty()) {
+            throw new NoSuchBeanException("No bean of type " + type.getName());
+        }
+        BeanDefinition bd = unique(candidates);
+        if (bd == null) {
+            throw noUniqueBean(type, candidates);
+        }
+        return bd;
+    }
+
+    /**
+     * Resolves a constructor parameter of {@code owner}. A {@link Qualifier}
+     * names the bean directly. Otherwise the parameter is autowired by type
+     * among the other beans, preferring the primary one and then the one
+     * named after the parameter type. When no other bean matches the type the
+     * parameter type's name is used, as before type-based autowiring existed.
+     * What this index can not resolve at all is resolved by the parent.
+     */
+    BeanDefinition resolveDependency(BeanDefinition owner, Class<?> type, String qualifier, String defaultName) {
+        if (qualifier != null) {
+            BeanDefinition bd = definitionsByName.get(qualifier);
+            if (bd == null && parent != null) {
+                return parent.resolveDependency(owner, type, qualifier, defaultName);
+            }
+            if (bd == null) {
+                throw new NoSuchBeanException("No bean '" + qualifier + "' for " + owner.getBeanName());
+            }
+            if (!type.isAssignableFrom(bd.getBeanType())) {
+                throw new BeanCreationException("Bean '" + qualifier + "' is not a " + type.getName()
+                        + " as required by " + owner.getBeanName());
+            }
+            return bd;
+        }
+
+        List<BeanDefinition> candidates = candidates(type).stream()
+                .filter(bd -> bd != owner)
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            BeanDefinition bd = definitionsByName.get(defaultName);
+            if (bd == null && parent != null) {
+                return parent.resolveDependency(owner, type, qualifier, defaultName);
+            }
+            if (bd == null) {
+                throw new NoSuchBeanException("No bean of type " + type.getName() + " for " + owner.getBeanName());
+            }
+            return bd;
+        }
+        BeanDefinition bd = unique(candidates);
+        if (bd == null) {
+            bd = definitionsByName.get(defaultName);
+            if (bd == null || !candidates.contains(bd)) {
+                throw noUniqueBean(type, candidates);
+            }
+        }
+        return bd;
+    }
+
+    private static BeanDefinition unique(List<BeanDefinition> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        BeanDefinition primary = null;
+        for (BeanDefinition bd : candidates) {
+            if (bd.isPrimary()) {
+                if (primary != null) {
+                    return null;
+                }
+                primary = bd;
+            }
+        }
+        return primary;
+    }
+
+    private static NoUniqueBeanException noUniqueBean(Class<?> type, List<BeanDefinition> candidates) {
+        return new NoUniqueBeanException("No unique bean of type " + type.getName() + ": "
+                + candidates.stream().map(BeanDefinition::getBeanName).collect(Collectors.joining(", ")));
+    }
+}
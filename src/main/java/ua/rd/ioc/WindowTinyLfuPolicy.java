@@ -0,0 +1,82 @@
+package ua.rd.ioc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * {@link CacheEviction#TINY_LFU}. About one percent of the entries live in
+ * an LRU window; the rest form a segmented LRU whose protected segment,
+ * four fifths of it, holds entries hit again since they were admitted.
+ * When the window overflows, its eldest entry replaces the eldest
+ * probationary entry only if the {@link FrequencySketch} has seen it more
+ * often.
+ */
+final class WindowTinyLfuPolicy implements EvictionPolicy {
+    private final int windowSize;
+    private final int mainSize;
+    private final int protectedSize;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<Object, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Boolean> protectedKeys = new LinkedHashMap<>(16, 0.75f, true);
+
+    WindowTinyLfuPolicy(int maximumSize) {
+        windowSize = Math.max(1, maximumSize / 100);
+        mainSize = maximumSize - windowSize;
+        protectedSize = mainSize * 4 / 5;
+        sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public void recordAccess(Object key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protectedKeys.get(key) != null) {
+            return;
+        }
+        if (probation.remove(key) != null) {
+            protectedKeys.put(key, Boolean.TRUE);
+            if (protectedKeys.size() > protectedSize) {
+                probation.put(removeEldest(protectedKeys), Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public Object recordInsert(Object key) {
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+        if (window.size() <= windowSize) {
+            return null;
+        }
+        Object candidate = removeEldest(window);
+        if (probation.size() + protectedKeys.size() < mainSize) {
+            probation.put(candidate, Boolean.TRUE);
+            return null;
+        }
+        LinkedHashMap<Object, Boolean> victims = probation.isEmpty() ? protectedKeys : probation;
+        if (victims.isEmpty()) {
+            return candidate;
+        }
+        Object victim = victims.keySet().iterator().next();
+        if (sketch.frequency(candidate) <= sketch.frequency(victim)) {
+            return candidate;
+        }
+        victims.remove(victim);
+        probation.put(candidate, Boolean.TRUE);
+        return victim;
+    }
+
+    @Override
+    public void remove(Object key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedKeys.remove(key);
+        }
+    }
+
+    private static Object removeEldest(LinkedHashMap<Object, Boolean> keys) {
+        Iterator<Object> eldest = keys.keySet().iterator();
+        Object key = eldest.next();
+        eldest.remove();
+        return key;
+    }
+}
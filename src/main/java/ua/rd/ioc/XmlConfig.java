@@ -0,0 +1,352 @@
+package ua.rd.ioc;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Config} read from Spring bean XML files such as
+ * {@code repoContext.xml}. Supported are {@code bean} with {@code id},
+ * {@code name}, {@code class}, {@code scope}, {@code init-method},
+ * {@code lazy-init} and {@code primary}; {@code constructor-arg} with
+ * {@code ref}, {@code value}, {@code type} or a nested {@code null},
+ * {@code value} or {@code ref}; {@code alias}; {@code import} and
+ * {@code description}. Anything else fails rather than being ignored.
+ * <p>
+ * Files are read with a streaming StAX parser, without a DOM and without
+ * validation, so schemas are never loaded. Every file, and every file it
+ * imports, is parsed in its own task, so large configs split over many
+ * files are read in parallel; the result is the same as reading them one
+ * after the other. Each file is read once, however often it is imported.
+ * As in Spring, a later bean replaces an earlier one of the same name, and
+ * a bean without a name is named after its class.
+ * <p>
+ * Every call to {@link #beanDefinitions()} reads the files again.
+ */
+public class XmlConfig implements Config {
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    });
+
+    private final List<URL> locations;
+    private final ClassLoader classLoader;
+
+    /**
+     * @param resources class path resources, with or without a
+     *                  {@code classpath:} prefix
+     */
+    public XmlConfig(String... resources) {
+        this.classLoader = defaultClassLoader();
+        this.locations = new ArrayList<>(resources.length);
+        for (String resource : resources) {
+            locations.add(classpathResource(resource));
+        }
+    }
+
+    public XmlConfig(URL... locations) {
+        this.classLoader = defaultClassLoader();
+        this.locations = Arrays.asList(locations.clone());
+    }
+
+    private static ClassLoader defaultClassLoader() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : XmlConfig.class.getClassLoader();
+    }
+
+    private URL classpathResource(String resource) {
+        String name = resource.startsWith(CLASSPATH_PREFIX) ? resource.substring(CLASSPATH_PREFIX.length())
+                : resource;
+        URL url = classLoader.getResource(name.startsWith("/") ? name.substring(1) : name);
+        if (url == null) {
+            throw new BeanDefinitionException("No bean definition resource '" + resource + "' on the class path");
+        }
+        return url;
+    }
+
+    @Override
+    public BeanDefinition[] beanDefinitions() {
+        Set<String> read = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Document>> documents = new ArrayList<>(locations.size());
+        for (URL location : locations) {
+            documents.add(parseAsync(location, read));
+        }
+        Map<String, BeanElement> beans = new LinkedHashMap<>();
+        List<String[]> aliases = new ArrayList<>();
+        for (CompletableFuture<Document> document : documents) {
+            collect(document, beans, aliases);
+        }
+        return toBeanDefinitions(beans, aliases);
+    }
+
+    private CompletableFuture<Document> parseAsync(URL location, Set<String> read) {
+        if (!read.add(location.toExternalForm())) {
+            return CompletableFuture.completedFuture(Document.EMPTY);
+        }
+        return CompletableFuture.supplyAsync(() -> parse(location, read));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collect(CompletableFuture<Document> future, Map<String, BeanElement> beans,
+                                List<String[]> aliases) {
+        Document document;
+        try {
+            document = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        for (Object item : document.items) {
+            if (item instanceof BeanElement) {
+                BeanElement bean = (BeanElement) item;
+                beans.put(bean.name != null ? bean.name : generatedName(bean, beans), bean);
+            } else if (item instanceof String[]) {
+                aliases.add((String[]) item);
+            } else {
+                collect((CompletableFuture<Document>) item, beans, aliases);
+            }
+        }
+    }
+
+    private static String generatedName(BeanElement bean, Map<String, BeanElement> beans) {
+        int counter = 0;
+        while (beans.containsKey(bean.type.getName() + "#" + counter)) {
+            counter++;
+        }
+        return bean.type.getName() + "#" + counter;
+    }
+
+    private static BeanDefinition[] toBeanDefinitions(Map<String, BeanElement> beans, List<String[]> aliases) {
+        Map<String, String> namesByAlias = new HashMap<>();
+        Map<String, List<String>> aliasesByName = new HashMap<>();
+        for (Map.Entry<String, BeanElement> entry : beans.entrySet()) {
+            List<String> beanAliases = new ArrayList<>(entry.getValue().aliases);
+            aliasesByName.put(entry.getKey(), beanAliases);
+            for (String alias : beanAliases) {
+                namesByAlias.put(alias, entry.getKey());
+            }
+        }
+        for (String[] alias : aliases) {
+            String name = beans.containsKey(alias[0]) ? alias[0] : namesByAlias.get(alias[0]);
+            if (name == null) {
+                throw new BeanDefinitionException("Alias '" + alias[1] + "' of unknown bean '" + alias[0] + "'");
+            }
+            aliasesByName.get(name).add(alias[1]);
+            namesByAlias.put(alias[1], name);
+        }
+
+        List<BeanDefinition> beanDefinitions = new ArrayList<>(beans.size());
+        for (Map.Entry<String, BeanElement> entry : beans.entrySet()) {
+            BeanElement bean = entry.getValue();
+            beanDefinitions.add(SimpleBeanDefinition.builder(entry.getKey(), bean.type)
+                    .scope(bean.scope)
+                    .lazy(bean.lazy)
+                    .primary(bean.primary)
+                    .aliases(aliasesByName.get(entry.getKey()).toArray(new String[0]))
+                    .constructorArguments(bean.constructorArguments.toArray(new ConstructorArgument[0]))
+                    .initMethod(bean.initMethod)
+                    .build());
+        }
+        return beanDefinitions.toArray(EMPTY_BEANDEFINITION);
+    }
+
+    private Document parse(URL location, Set<String> read) {
+        try (InputStream in = location.openStream()) {
+            XMLStreamReader reader = INPUT_FACTORY.get().createXMLStreamReader(in);
+            try {
+                return readBeans(location, reader, read);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new BeanDefinitionException("Can not read bean definitions from " + location + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private Document readBeans(URL location, XMLStreamReader reader, Set<String> read)
+            throws XMLStreamException, MalformedURLException {
+        reader.nextTag();
+        if (!"beans".equals(reader.getLocalName())) {
+            throw unsupported(location, reader);
+        }
+        List<Object> items = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "bean":
+                    items.add(readBean(location, reader));
+                    break;
+                case "alias":
+                    items.add(new String[]{requiredAttribute(location, reader, "name"),
+                            requiredAttribute(location, reader, "alias")});
+                    reader.nextTag();
+                    break;
+                case "import":
+                    String resource = requiredAttribute(location, reader, "resource");
+                    items.add(parseAsync(resource.startsWith(CLASSPATH_PREFIX) ? classpathResource(resource)
+                            : new URL(location, resource), read));
+                    reader.nextTag();
+                    break;
+                case "description":
+                    reader.getElementText();
+                    break;
+                default:
+                    throw unsupported(location, reader);
+            }
+        }
+        return new Document(items);
+    }
+
+    private BeanElement readBean(URL location, XMLStreamReader reader) throws XMLStreamException {
+        BeanElement bean = new BeanElement();
+        List<String> names = new ArrayList<>();
+        String id = reader.getAttributeValue(null, "id");
+        if (id != null) {
+            names.add(id);
+        }
+        String name = reader.getAttributeValue(null, "name");
+        if (name != null) {
+            for (String part : name.trim().split("[,;\\s]+")) {
+                if (!part.isEmpty()) {
+                    names.add(part);
+                }
+            }
+        }
+        if (!names.isEmpty()) {
+            bean.name = names.get(0);
+            bean.aliases = names.subList(1, names.size());
+        }
+        String className = requiredAttribute(location, reader, "class");
+        try {
+            bean.type = Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new BeanDefinitionException("Can not load class " + className + " of bean '" + bean.name
+                    + "' at " + position(location, reader), e);
+        }
+        String scope = reader.getAttributeValue(null, "scope");
+        bean.scope = scope == null || scope.isEmpty() ? Scope.SINGLETON : scope;
+        bean.lazy = Boolean.parseBoolean(reader.getAttributeValue(null, "lazy-init"));
+        bean.primary = Boolean.parseBoolean(reader.getAttributeValue(null, "primary"));
+        bean.initMethod = reader.getAttributeValue(null, "init-method");
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "constructor-arg":
+                    bean.constructorArguments.add(readConstructorArgument(location, reader));
+                    break;
+                case "description":
+                    reader.getElementText();
+                    break;
+                default:
+                    throw unsupported(location, reader);
+            }
+        }
+        return bean;
+    }
+
+    private static ConstructorArgument readConstructorArgument(URL location, XMLStreamReader reader)
+            throws XMLStreamException {
+        for (String attribute : new String[]{"index", "name"}) {
+            if (reader.getAttributeValue(null, attribute) != null) {
+                throw new BeanDefinitionException("Unsupported constructor-arg attribute '" + attribute
+                        + "' at " + position(location, reader));
+            }
+        }
+        String type = reader.getAttributeValue(null, "type");
+        String ref = reader.getAttributeValue(null, "ref");
+        String value = reader.getAttributeValue(null, "value");
+        ConstructorArgument argument = ref != null ? ConstructorArgument.ref(ref)
+                : value != null ? ConstructorArgument.value(value) : null;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (argument != null) {
+                throw unsupported(location, reader);
+            }
+            switch (reader.getLocalName()) {
+                case "null":
+                    argument = ConstructorArgument.nullValue();
+                    reader.nextTag();
+                    break;
+                case "value":
+                    argument = ConstructorArgument.value(reader.getElementText());
+                    break;
+                case "ref":
+                    argument = ConstructorArgument.ref(requiredAttribute(location, reader, "bean"));
+                    reader.nextTag();
+                    break;
+                default:
+                    throw unsupported(location, reader);
+            }
+        }
+        if (argument == null) {
+            throw new BeanDefinitionException("constructor-arg without a ref, a value or null at "
+                    + position(location, reader));
+        }
+        return type == null ? argument : argument.withType(type);
+    }
+
+    private static String requiredAttribute(URL location, XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null || value.isEmpty()) {
+            throw new BeanDefinitionException("<" + reader.getLocalName() + "> without '" + name + "' at "
+                    + position(location, reader));
+        }
+        return value;
+    }
+
+    private static BeanDefinitionException unsupported(URL location, XMLStreamReader reader) {
+        return new BeanDefinitionException("Unsupported element <" + reader.getLocalName() + "> at "
+                + position(location, reader));
+    }
+
+    private static String position(URL location, XMLStreamReader reader) {
+        return location + ":" + reader.getLocation().getLineNumber();
+    }
+
+    /**
+     * The top-level items of one file in document order: beans, aliases as
+     * {@code {name, alias}} and the documents it imports.
+     */
+    private static final class Document {
+        static final Document EMPTY = new Document(Collections.emptyList());
+
+        final List<Object> items;
+
+        Document(List<Object> items) {
+            this.items = items;
+        }
+    }
+
+    private static final class BeanElement {
+        String name;
+        List<String> aliases = Collections.emptyList();
+        Class<?> type;
+        String scope;
+        boolean lazy;
+        boolean primary;
+        String initMethod;
+        final List<ConstructorArgument> constructorArguments = new ArrayList<>();
+    }
+}
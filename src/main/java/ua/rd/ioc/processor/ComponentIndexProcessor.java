@@ -0,0 +1,161 @@
+package ua.rd.ioc.processor;
+
+import ua.rd.ioc.ComponentIndexConfig;
+import ua.rd.ioc.processor.ContextProcessor.ProcessingException;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Writes the {@code @Component} classes of a compilation to
+ * {@link ComponentIndexConfig#INDEX_LOCATION}, one line per class with tab
+ * separated binary class name, bean name, scope, lazy and primary flags and
+ * comma separated aliases. Lines are sorted by class name, so the index is
+ * the same for the same sources.
+ * <p>
+ * The index only lists the classes of the compilation that wrote it; an
+ * incremental build that compiles part of the sources has to be followed
+ * by a full one before the index is complete again.
+ */
+@SupportedAnnotationTypes(ComponentIndexProcessor.COMPONENT)
+public class ComponentIndexProcessor extends AbstractProcessor {
+    static final String COMPONENT = "ua.rd.ioc.Component";
+
+    private final Map<String, String> entries = new TreeMap<>();
+    private final Map<String, String> classesByBeanName = new HashMap<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Elements elements = processingEnv.getElementUtils();
+        if (roundEnv.processingOver()) {
+            if (!entries.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+        TypeElement component = elements.getTypeElement(COMPONENT);
+        if (component == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(component)) {
+            try {
+                index((TypeElement) element, elements);
+            } catch (ProcessingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void index(TypeElement type, Elements elements) {
+        checkInstantiable(type);
+        AnnotationMirror component = null;
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(COMPONENT)) {
+                component = mirror;
+            }
+        }
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : elements.getElementValuesWithDefaults(component).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+
+        String className = elements.getBinaryName(type).toString();
+        String beanName = (String) values.get("value");
+        if (beanName.isEmpty()) {
+            String simpleName = type.getSimpleName().toString();
+            beanName = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+        }
+        StringJoiner aliases = new StringJoiner(",");
+        for (Object alias : (List<?>) values.get("aliases")) {
+            aliases.add(checkName((String) ((AnnotationValue) alias).getValue()));
+        }
+        String existing = classesByBeanName.putIfAbsent(checkName(beanName), className);
+        if (existing != null && !existing.equals(className)) {
+            throw new ProcessingException("Duplicate bean name '" + beanName + "' for components "
+                    + existing + " and " + className);
+        }
+
+        entries.put(className, String.join("\t", className, beanName, checkName((String) values.get("scope")),
+                String.valueOf(values.get("lazy")), String.valueOf(values.get("primary")), aliases.toString()));
+        originatingElements.add(type);
+    }
+
+    /**
+     * The context creates beans through a public constructor, so a component
+     * has to be a public, concrete, top-level or static nested class.
+     */
+    private static void checkInstantiable(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new ProcessingException("Component " + type + " has to be a concrete class");
+        }
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            Set<Modifier> modifiers = e.getModifiers();
+            NestingKind nesting = ((TypeElement) e).getNestingKind();
+            if (!modifiers.contains(Modifier.PUBLIC) || nesting == NestingKind.LOCAL
+                    || nesting == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+                throw new ProcessingException("Component " + type + " has to be public and not an inner class");
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return;
+            }
+        }
+        throw new ProcessingException("No public constructor in component " + type);
+    }
+
+    private static String checkName(String name) {
+        if (name.isEmpty() || name.indexOf('\t') >= 0 || name.indexOf(',') >= 0 || name.indexOf('\n') >= 0) {
+            throw new ProcessingException("Invalid component bean name, alias or scope '" + name + "'");
+        }
+        return name;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    ComponentIndexConfig.INDEX_LOCATION, originatingElements.toArray(new Element[0]));
+            try (Writer writer = index.openWriter()) {
+                for (String entry : entries.values()) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Can not write " + ComponentIndexConfig.INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+}
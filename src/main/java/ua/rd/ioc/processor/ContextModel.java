@@ -0,0 +1,104 @@
+package ua.rd.ioc.processor;
+
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What {@link ContextProcessor} resolved for one {@code @GeneratedContext},
+ * handed over to {@link ContextWriter}.
+ */
+final class ContextModel {
+    final String packageName;
+    final String className;
+    final String declaringType;
+    final List<Bean> beans;
+    final List<Bean> creationOrder;
+    final Map<TypeElement, List<Bean>> beansByType;
+
+    ContextModel(String packageName, String className, String declaringType,
+                 List<Bean> beans, List<Bean> creationOrder, Map<TypeElement, List<Bean>> beansByType) {
+        this.packageName = packageName;
+        this.className = className;
+        this.declaringType = declaringType;
+        this.beans = beans;
+        this.creationOrder = creationOrder;
+        this.beansByType = beansByType;
+    }
+
+    String qualifiedName() {
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    static final class Bean {
+        final int index;
+        final String name;
+        final TypeElement type;
+        final boolean prototype;
+        final boolean lazy;
+        final boolean primary;
+        final List<String> aliases;
+        final List<Bean> dependencies = new ArrayList<>();
+        final List<String> parameterTypes = new ArrayList<>();
+        final List<String> postConstructMethods = new ArrayList<>();
+        final List<String> preDestroyMethods = new ArrayList<>();
+        boolean hasInitMethod;
+        boolean declaresExceptions;
+        final List<String> proxyInterfaces = new ArrayList<>();
+        final List<ProxyMethod> proxyMethods = new ArrayList<>();
+
+        Bean(int index, String name, TypeElement type, boolean prototype, boolean lazy, boolean primary,
+             List<String> aliases) {
+            this.index = index;
+            this.name = name;
+            this.type = type;
+            this.prototype = prototype;
+            this.lazy = lazy;
+            this.primary = primary;
+            this.aliases = aliases;
+        }
+
+        boolean isEagerSingleton() {
+            return !prototype && !lazy;
+        }
+
+        boolean isDestroyed() {
+            return !prototype && !preDestroyMethods.isEmpty();
+        }
+
+        boolean isProxied() {
+            return !proxyInterfaces.isEmpty();
+        }
+    }
+
+    static final class ProxyMethod {
+        final String name;
+        final String returnType;
+        final boolean returnsVoid;
+        final List<String> parameterTypes = new ArrayList<>();
+        final List<String> thrownTypes = new ArrayList<>();
+        String benchmarkKey;
+        CachedMethod cache;
+
+        ProxyMethod(String name, String returnType, boolean returnsVoid) {
+            this.name = name;
+            this.returnType = returnType;
+            this.returnsVoid = returnsVoid;
+        }
+    }
+
+    static final class CachedMethod {
+        final String key;
+        final int maximumSize;
+        final long expireAfterWriteMillis;
+        final String eviction;
+
+        CachedMethod(String key, int maximumSize, long expireAfterWriteMillis, String eviction) {
+            this.key = key;
+            this.maximumSize = maximumSize;
+            this.expireAfterWriteMillis = expireAfterWriteMillis;
+            this.eviction = eviction;
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package ua.rd.ioc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Generates a reflection-free {@code Config}/{@code Context} for every type
+ * annotated with {@code @GeneratedContext}. Bean declarations are resolved
+ * with the same rules {@code ApplicationContext} applies at runtime:
+ * constructor selection, dependency names, {@code @MyPostConstruct},
+ * {@code init()} and {@code @MyPreDestroy} callbacks, and {@code @Benchmark}/{@code @Cacheable} proxies
+ * over the bean's interfaces.
+ */
+@SupportedAnnotationTypes(ContextProcessor.GENERATED_CONTEXT)
+public class ContextProcessor extends AbstractProcessor {
+    static final String GENERATED_CONTEXT = "ua.rd.ioc.GeneratedContext";
+    private static final String BEAN_DECLARATION = "ua.rd.ioc.BeanDeclaration";
+    private static final String BEAN_DECLARATIONS = "ua.rd.ioc.BeanDeclarations";
+    private static final String POST_CONSTRUCT = "ua.rd.ioc.MyPostConstruct";
+    private static final String PRE_DESTROY = "ua.rd.ioc.MyPreDestroy";
+    private static final String BENCHMARK = "ua.rd.ioc.Benchmark";
+    private static final String CACHEABLE = "ua.rd.ioc.Cacheable";
+    private static final String QUALIFIER = "ua.rd.ioc.Qualifier";
+    private static final String COMPLETION_STAGE = "java.util.concurrent.CompletionStage";
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        TypeElement generatedContext = elements.getTypeElement(GENERATED_CONTEXT);
+        if (generatedContext == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(generatedContext)) {
+            try {
+                generate((TypeElement) element);
+            } catch (ProcessingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement declaration) {
+        String packageName = elements.getPackageOf(declaration).getQualifiedName().toString();
+        String className = (String) value(annotation(declaration, GENERATED_CONTEXT), "value");
+
+        List<ContextModel.Bean> beans = new ArrayList<>();
+        Map<String, ContextModel.Bean> byName = new HashMap<>();
+        for (AnnotationMirror beanDeclaration : beanDeclarations(declaration)) {
+            ContextModel.Bean bean = declaredBean(beanDeclaration, beans.size());
+            register(byName, bean.name, bean);
+            for (String alias : bean.aliases) {
+                register(byName, alias, bean);
+            }
+            beans.add(bean);
+        }
+        Map<TypeElement, List<ContextModel.Bean>> byType = new LinkedHashMap<>();
+        for (ContextModel.Bean bean : beans) {
+            for (TypeElement type : assignableTypes(bean.type)) {
+                byType.computeIfAbsent(type, t -> new ArrayList<>()).add(bean);
+            }
+        }
+        for (ContextModel.Bean bean : beans) {
+            resolve(bean, byName, byType, packageName);
+        }
+        byType.keySet().removeIf(type -> !isAccessible(type, packageName));
+
+        ContextModel model = new ContextModel(packageName, className,
+                declaration.getQualifiedName().toString(), beans, dependencyOrder(beans), byType);
+        try {
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(model.qualifiedName(), declaration);
+            try (Writer writer = file.openWriter()) {
+                writer.write(new ContextWriter(model, elements).write());
+            }
+        } catch (IOException e) {
+            throw new ProcessingException("Can not write " + model.qualifiedName() + ": " + e.getMessage());
+        }
+    }
+
+    private static void register(Map<String, ContextModel.Bean> byName, String name, ContextModel.Bean bean) {
+        ContextModel.Bean existing = byName.putIfAbsent(name, bean);
+        if (existing != null) {
+            throw new ProcessingException("Duplicate bean name '" + name + "' for beans '"
+                    + existing.name + "' and '" + bean.name + "'");
+        }
+    }
+
+    private ContextModel.Bean declaredBean(AnnotationMirror declaration, int index) {
+        DeclaredType type = (DeclaredType) value(declaration, "type");
+        List<String> aliases = new ArrayList<>();
+        for (Object alias : (List<?>) value(declaration, "aliases")) {
+            aliases.add((String) ((AnnotationValue) alias).getValue());
+        }
+        return new ContextModel.Bean(index,
+                (String) value(declaration, "name"),
+                (TypeElement) type.asElement(),
+                (Boolean) value(declaration, "prototype"),
+                (Boolean) value(declaration, "lazy"),
+                (Boolean) value(declaration, "primary"),
+                aliases);
+    }
+
+    private void resolve(ContextModel.Bean bean, Map<String, ContextModel.Bean> byName,
+                         Map<TypeElement, List<ContextModel.Bean>> byType, String packageName) {
+        TypeElement type = bean.type;
+        if (!isAccessible(type, packageName)) {
+            throw new ProcessingException(type + " is not accessible from package " + packageName);
+        }
+
+        ExecutableElement constructor = selectConstructor(type);
+        bean.declaresExceptions = !constructor.getThrownTypes().isEmpty();
+        for (VariableElement parameter : constructor.getParameters()) {
+            TypeMirror parameterType = types.erasure(parameter.asType());
+            if (parameterType.getKind() != TypeKind.DECLARED) {
+                throw new ProcessingException("Can not inject " + parameterType + " into " + type);
+            }
+            AnnotationMirror qualifier = annotation(parameter, QUALIFIER);
+            bean.dependencies.add(resolveDependency(bean, (DeclaredType) parameterType,
+                    qualifier == null ? null : (String) value(qualifier, "value"), byName, byType));
+            bean.parameterTypes.add(parameterType.toString());
+        }
+
+        for (ExecutableElement method : publicMethods(type)) {
+            if (annotation(method, POST_CONSTRUCT) != null) {
+                checkSynchronous(type, method);
+                bean.postConstructMethods.add(method.getSimpleName().toString());
+                bean.declaresExceptions |= !method.getThrownTypes().isEmpty();
+            }
+            if (annotation(method, PRE_DESTROY) != null) {
+                bean.preDestroyMethods.add(method.getSimpleName().toString());
+            }
+            if (method.getSimpleName().contentEquals("init") && method.getParameters().isEmpty()) {
+                checkSynchronous(type, method);
+                bean.hasInitMethod = true;
+                bean.declaresExceptions |= !method.getThrownTypes().isEmpty();
+            }
+        }
+
+        resolveProxy(bean);
+    }
+
+    /**
+     * Generated contexts initialize beans in place, so a lifecycle method
+     * may not hand back a {@code CompletionStage} to finish later: nothing
+     * would wait for it, and the bean would be used before it is ready.
+     */
+    private void checkSynchronous(TypeElement type, ExecutableElement method) {
+        TypeMirror stage = types.erasure(elements.getTypeElement(COMPLETION_STAGE).asType());
+        if (types.isAssignable(types.erasure(method.getReturnType()), stage)) {
+            throw new ProcessingException(type + "." + method.getSimpleName() + "() returns a CompletionStage;"
+                    + " generated contexts do not initialize beans asynchronously");
+        }
+    }
+
+    /**
+     * Same rules as {@code TypeIndex.resolveDependency}: a qualifier names the
+     * bean, otherwise the only other bean of the parameter type, the primary
+     * one or the one named after the type.
+     */
+    private ContextModel.Bean resolveDependency(ContextModel.Bean owner, DeclaredType parameterType, String qualifier,
+                                                Map<String, ContextModel.Bean> byName,
+                                                Map<TypeElement, List<ContextModel.Bean>> byType) {
+        TypeElement type = (TypeElement) parameterType.asElement();
+        if (qualifier != null) {
+            ContextModel.Bean dependency = byName.get(qualifier);
+            if (dependency == null) {
+                throw new ProcessingException("No bean '" + qualifier + "' for " + owner.name);
+            }
+            if (!types.isAssignable(types.erasure(dependency.type.asType()), parameterType)) {
+                throw new ProcessingException("Bean '" + qualifier + "' is not a " + type.getQualifiedName()
+                        + " as required by " + owner.name);
+            }
+            return dependency;
+        }
+
+        List<ContextModel.Bean> candidates = new ArrayList<>(byType.getOrDefault(type, new ArrayList<>()));
+        candidates.remove(owner);
+        ContextModel.Bean byDefaultName = byName.get(defaultBeanName(type));
+        if (candidates.isEmpty()) {
+            if (byDefaultName == null) {
+                throw new ProcessingException("No bean of type " + type.getQualifiedName() + " for " + owner.name);
+            }
+            return byDefaultName;
+        }
+        ContextModel.Bean dependency = unique(candidates);
+        if (dependency == null) {
+            if (byDefaultName == null || !candidates.contains(byDefaultName)) {
+                throw new ProcessingException("No unique bean of type " + type.getQualifiedName()
+                        + " for " + owner.name);
+            }
+            dependency = byDefaultName;
+        }
+        return dependency;
+    }
+
+    static ContextModel.Bean unique(List<ContextModel.Bean> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ContextModel.Bean primary = null;
+        for (ContextModel.Bean bean : candidates) {
+            if (bean.primary) {
+                if (primary != null) {
+                    return null;
+                }
+                primary = bean;
+            }
+        }
+        return primary;
+    }
+
+    /**
+     * The bean type, its superclasses up to but excluding {@link Object} and
+     * all of their interfaces.
+     */
+    private List<TypeElement> assignableTypes(TypeElement beanType) {
+        List<TypeElement> assignableTypes = new ArrayList<>();
+        collectAssignableTypes(beanType, assignableTypes);
+        return assignableTypes;
+    }
+
+    private void collectAssignableTypes(TypeElement type, List<TypeElement> assignableTypes) {
+        if (type.getQualifiedName().contentEquals(Object.class.getName()) || assignableTypes.contains(type)) {
+            return;
+        }
+        assignableTypes.add(type);
+        for (TypeMirror supertype : types.directSupertypes(type.asType())) {
+            collectAssignableTypes((TypeElement) types.asElement(supertype), assignableTypes);
+        }
+    }
+
+    /**
+     * The only public constructor, otherwise the public no-arg constructor,
+     * otherwise the first public one.
+     */
+    private ExecutableElement selectConstructor(TypeElement type) {
+        List<ExecutableElement> constructors = new ArrayList<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                constructors.add(constructor);
+            }
+        }
+        if (constructors.isEmpty()) {
+            throw new ProcessingException("No public constructor in " + type);
+        }
+        if (constructors.size() > 1) {
+            for (ExecutableElement constructor : constructors) {
+                if (constructor.getParameters().isEmpty()) {
+                    return constructor;
+                }
+            }
+        }
+        return constructors.get(0);
+    }
+
+    private void resolveProxy(ContextModel.Bean bean) {
+        Map<String, DeclaredType> interfaces = new LinkedHashMap<>();
+        collectInterfaces(bean.type.asType(), interfaces);
+        if (interfaces.isEmpty()) {
+            for (ExecutableElement method : publicMethods(bean.type)) {
+                if (annotation(method, CACHEABLE) != null) {
+                    throw new ProcessingException("Can not cache " + bean.type + "." + method
+                            + ": cached beans have to implement an interface");
+                }
+            }
+            return;
+        }
+
+        DeclaredType beanType = (DeclaredType) bean.type.asType();
+        List<ExecutableElement> implementations = publicMethods(bean.type);
+        Set<String> signatures = new LinkedHashSet<>();
+        boolean proxied = false;
+        for (DeclaredType anInterface : interfaces.values()) {
+            for (ExecutableElement method : ElementFilter.methodsIn(anInterface.asElement().getEnclosedElements())) {
+                if (method.getModifiers().contains(Modifier.STATIC)
+                        || !signatures.add(method.getSimpleName() + erasedParameters(method))) {
+                    continue;
+                }
+                if (!method.getTypeParameters().isEmpty()) {
+                    throw new ProcessingException("Generic method " + method + " of " + anInterface
+                            + " can not be proxied by a generated context");
+                }
+                ExecutableType resolved = (ExecutableType) types.asMemberOf(beanType, method);
+                ContextModel.ProxyMethod proxyMethod = new ContextModel.ProxyMethod(
+                        method.getSimpleName().toString(),
+                        resolved.getReturnType().toString(),
+                        resolved.getReturnType().getKind() == TypeKind.VOID);
+                for (TypeMirror parameterType : resolved.getParameterTypes()) {
+                    proxyMethod.parameterTypes.add(parameterType.toString());
+                }
+                for (TypeMirror thrownType : resolved.getThrownTypes()) {
+                    proxyMethod.thrownTypes.add(thrownType.toString());
+                }
+                ExecutableElement implementation = implementation(implementations, method, bean.type);
+                String key = bean.name + "." + method.getSimpleName() + "(" + simpleParameterNames(method) + ")";
+                if (implementation != null && isBenchmarkEnabled(implementation)) {
+                    proxyMethod.benchmarkKey = key;
+                    proxied = true;
+                }
+                AnnotationMirror cacheable = implementation == null ? null : annotation(implementation, CACHEABLE);
+                if (cacheable != null) {
+                    if (proxyMethod.returnsVoid) {
+                        throw new ProcessingException("Can not cache " + bean.type + "." + implementation
+                                + ": it returns void");
+                    }
+                    if (proxyMethod.thrownTypes.size() > 1) {
+                        throw new ProcessingException("Can not cache " + bean.type + "." + implementation
+                                + " in a generated context: it declares more than one exception");
+                    }
+                    proxyMethod.cache = new ContextModel.CachedMethod(key,
+                            (Integer) value(cacheable, "maximumSize"),
+                            (Long) value(cacheable, "expireAfterWriteMillis"),
+                            ((VariableElement) value(cacheable, "eviction")).getSimpleName().toString());
+                    proxied = true;
+                }
+                bean.proxyMethods.add(proxyMethod);
+            }
+        }
+        if (proxied) {
+            for (DeclaredType anInterface : interfaces.values()) {
+                bean.proxyInterfaces.add(anInterface.toString());
+            }
+        } else {
+            bean.proxyMethods.clear();
+        }
+    }
+
+    private void collectInterfaces(TypeMirror type, Map<String, DeclaredType> interfaces) {
+        for (TypeMirror supertype : types.directSupertypes(type)) {
+            Element element = types.asElement(supertype);
+            if (element.getKind() == ElementKind.INTERFACE) {
+                String name = ((TypeElement) element).getQualifiedName().toString();
+                if (interfaces.putIfAbsent(name, (DeclaredType) supertype) != null) {
+                    continue;
+                }
+            }
+            collectInterfaces(supertype, interfaces);
+        }
+    }
+
+    private ExecutableElement implementation(List<ExecutableElement> methods, ExecutableElement method,
+                                             TypeElement type) {
+        for (ExecutableElement candidate : methods) {
+            if (candidate.equals(method) || elements.overrides(candidate, method, type)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private boolean isBenchmarkEnabled(ExecutableElement method) {
+        AnnotationMirror benchmark = annotation(method, BENCHMARK);
+        return benchmark != null && (Boolean) value(benchmark, "enabled");
+    }
+
+    private List<ExecutableElement> publicMethods(TypeElement type) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private String erasedParameters(ExecutableElement method) {
+        StringJoiner joiner = new StringJoiner(",", "(", ")");
+        for (VariableElement parameter : method.getParameters()) {
+            joiner.add(types.erasure(parameter.asType()).toString());
+        }
+        return joiner.toString();
+    }
+
+    private String simpleParameterNames(ExecutableElement method) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (VariableElement parameter : method.getParameters()) {
+            joiner.add(simpleName(types.erasure(parameter.asType())));
+        }
+        return joiner.toString();
+    }
+
+    private String simpleName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return simpleName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((DeclaredType) type).asElement().getSimpleName().toString();
+        }
+        return type.toString();
+    }
+
+    private static String defaultBeanName(Element type) {
+        String simpleName = type.getSimpleName().toString();
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+    }
+
+    private boolean isAccessible(TypeElement type, String packageName) {
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)
+                    && !elements.getPackageOf(e).getQualifiedName().contentEquals(packageName)) {
+                return false;
+            }
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (e.getEnclosingElement() instanceof PackageElement) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Eager singletons in an order where every bean comes after the beans its
+     * constructor needs.
+     */
+    private static List<ContextModel.Bean> dependencyOrder(List<ContextModel.Bean> beans) {
+        List<ContextModel.Bean> order = new ArrayList<>();
+        Map<ContextModel.Bean, Boolean> visited = new HashMap<>();
+        for (ContextModel.Bean bean : beans) {
+            visit(bean, visited, order, new ArrayList<>());
+        }
+        return order;
+    }
+
+    private static void visit(ContextModel.Bean bean, Map<ContextModel.Bean, Boolean> visited,
+                              List<ContextModel.Bean> order, List<String> path) {
+        Boolean done = visited.get(bean);
+        if (Boolean.TRUE.equals(done)) {
+            return;
+        }
+        path.add(bean.name);
+        if (Boolean.FALSE.equals(done)) {
+            throw new ProcessingException("Circular dependency: " + String.join(" -> ", path));
+        }
+        visited.put(bean, false);
+        for (ContextModel.Bean dependency : bean.dependencies) {
+            visit(dependency, visited, order, path);
+        }
+        visited.put(bean, true);
+        order.add(bean);
+        path.remove(path.size() - 1);
+    }
+
+    private List<AnnotationMirror> beanDeclarations(TypeElement declaration) {
+        List<AnnotationMirror> declarations = new ArrayList<>();
+        AnnotationMirror single = annotation(declaration, BEAN_DECLARATION);
+        if (single != null) {
+            declarations.add(single);
+        }
+        AnnotationMirror repeated = annotation(declaration, BEAN_DECLARATIONS);
+        if (repeated != null) {
+            for (Object value : (List<?>) value(repeated, "value")) {
+                declarations.add((AnnotationMirror) ((AnnotationValue) value).getValue());
+            }
+        }
+        return declarations;
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : elements.getElementValuesWithDefaults(annotation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new ProcessingException("No value '" + name + "' in " + annotation);
+    }
+
+    static class ProcessingException extends RuntimeException {
+        ProcessingException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package ua.rd.ioc.processor;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Renders a {@link ContextModel} as Java source. Every bean gets an accessor
+ * {@code beanN()}: eager singletons are final fields assigned in the
+ * constructor, lazy singletons are double-checked volatile fields and
+ * prototypes are created on every call.
+ */
+final class ContextWriter {
+    private static final String CONTEXT = "ua.rd.ioc.Context";
+    private static final String CONFIG = "ua.rd.ioc.Config";
+    private static final String BEAN_DEFINITION = "ua.rd.ioc.BeanDefinition";
+    private static final String SIMPLE_BEAN_DEFINITION = "ua.rd.ioc.SimpleBeanDefinition";
+    private static final String LATENCY_HISTOGRAM = "ua.rd.ioc.LatencyHistogram";
+    private static final String LATENCY_SNAPSHOT = "ua.rd.ioc.LatencySnapshot";
+    private static final String METHOD_CACHE = "ua.rd.ioc.MethodCache";
+    private static final String CACHE_EVICTION = "ua.rd.ioc.CacheEviction";
+    private static final String CACHE_STATS = "ua.rd.ioc.CacheStats";
+    private static final String NO_SUCH_BEAN = "ua.rd.ioc.NoSuchBeanException";
+    private static final String NO_UNIQUE_BEAN = "ua.rd.ioc.NoUniqueBeanException";
+    private static final String BEAN_CREATION = "ua.rd.ioc.BeanCreationException";
+    private static final String BEAN_DESTRUCTION = "ua.rd.ioc.BeanDestructionException";
+
+    private final ContextModel model;
+    private final Elements elements;
+    private final StringBuilder out = new StringBuilder();
+    private final List<String> benchmarkKeys = new ArrayList<>();
+    private final List<ContextModel.CachedMethod> caches = new ArrayList<>();
+
+    ContextWriter(ContextModel model, Elements elements) {
+        this.model = model;
+        this.elements = elements;
+        for (ContextModel.Bean bean : model.beans) {
+            for (ContextModel.ProxyMethod method : bean.proxyMethods) {
+                if (method.benchmarkKey != null) {
+                    benchmarkKeys.add(method.benchmarkKey);
+                }
+                if (method.cache != null) {
+                    caches.add(method.cache);
+                }
+            }
+        }
+    }
+
+    String write() {
+        if (!model.packageName.isEmpty()) {
+            line(0, "package " + model.packageName + ";");
+            line(0, "");
+        }
+        line(0, "/**");
+        line(0, " * Generated by {@code ua.rd.ioc.processor.ContextProcessor} from {@link "
+                + model.declaringType + "}. Do not edit.");
+        line(0, " */");
+        line(0, "public final class " + model.className + " implements " + CONTEXT + ", " + CONFIG + " {");
+        writeFields();
+        writeConstructor();
+        for (ContextModel.Bean bean : model.beans) {
+            writeAccessor(bean);
+            writeFactory(bean);
+        }
+        writeGetBean();
+        writeGetBeanByType();
+        writeBeanDefinitionNames();
+        writeBenchmarkResults();
+        writeCacheStats();
+        writeClose();
+        writeBeanDefinitions();
+        for (ContextModel.Bean bean : model.beans) {
+            if (bean.isProxied()) {
+                writeProxy(bean);
+            }
+        }
+        line(0, "}");
+        return out.toString();
+    }
+
+    private void writeFields() {
+        StringJoiner names = new StringJoiner(", ", "{", "}");
+        for (ContextModel.Bean bean : model.beans) {
+            names.add(literal(bean.name));
+        }
+        line(1, "private static final String[] BEAN_DEFINITION_NAMES = " + names + ";");
+        line(1, "private static final String[] NO_BEAN_NAMES = {};");
+        line(1, "private static final java.util.Map<Class<?>, String[]> BEAN_NAMES_BY_TYPE = new java.util.HashMap<>();");
+        line(1, "private static final java.util.Map<Class<?>, String> BEAN_NAME_BY_TYPE = new java.util.HashMap<>();");
+        line(0, "");
+        line(1, "static {");
+        for (Map.Entry<TypeElement, List<ContextModel.Bean>> entry : model.beansByType.entrySet()) {
+            String type = entry.getKey().getQualifiedName() + ".class";
+            StringJoiner typeNames = new StringJoiner(", ", "{", "}");
+            for (ContextModel.Bean bean : entry.getValue()) {
+                typeNames.add(literal(bean.name));
+            }
+            line(2, "BEAN_NAMES_BY_TYPE.put(" + type + ", new String[]" + typeNames + ");");
+            ContextModel.Bean unique = ContextProcessor.unique(entry.getValue());
+            if (unique != null) {
+                line(2, "BEAN_NAME_BY_TYPE.put(" + type + ", " + literal(unique.name) + ");");
+            }
+        }
+        line(1, "}");
+        line(0, "");
+        for (int i = 0; i < benchmarkKeys.size(); i++) {
+            line(1, "private final " + LATENCY_HISTOGRAM + " benchmark" + i + " = new " + LATENCY_HISTOGRAM + "();");
+        }
+        for (int i = 0; i < caches.size(); i++) {
+            ContextModel.CachedMethod cache = caches.get(i);
+            line(1, "private final " + METHOD_CACHE + " cache" + i + " = new " + METHOD_CACHE + "("
+                    + cache.maximumSize + ", " + cache.expireAfterWriteMillis + "L, "
+                    + CACHE_EVICTION + "." + cache.eviction + ");");
+        }
+        for (ContextModel.Bean bean : model.beans) {
+            if (bean.isEagerSingleton()) {
+                line(1, "private final Object bean" + bean.index + ";");
+            } else if (bean.lazy && !bean.prototype) {
+                line(1, "private volatile Object bean" + bean.index + ";");
+            }
+            if (bean.isDestroyed()) {
+                line(1, "private volatile " + bean.type.getQualifiedName() + " target" + bean.index + ";");
+            }
+        }
+        line(0, "");
+    }
+
+    private void writeConstructor() {
+        line(1, "public " + model.className + "() {");
+        for (ContextModel.Bean bean : model.creationOrder) {
+            if (bean.isEagerSingleton()) {
+                line(2, "bean" + bean.index + " = create" + bean.index + "();");
+            }
+        }
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeAccessor(ContextModel.Bean bean) {
+        int i = bean.index;
+        line(1, "private Object bean" + i + "() {");
+        if (bean.prototype) {
+            line(2, "return create" + i + "();");
+        } else if (bean.lazy) {
+            line(2, "Object bean = bean" + i + ";");
+            line(2, "if (bean == null) {");
+            line(3, "synchronized (this) {");
+            line(4, "bean = bean" + i + ";");
+            line(4, "if (bean == null) {");
+            line(5, "bean = create" + i + "();");
+            line(5, "bean" + i + " = bean;");
+            line(4, "}");
+            line(3, "}");
+            line(2, "}");
+            line(2, "return bean;");
+        } else {
+            line(2, "return bean" + i + ";");
+        }
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeFactory(ContextModel.Bean bean) {
+        String type = bean.type.getQualifiedName().toString();
+        StringJoiner arguments = new StringJoiner(", ");
+        for (int i = 0; i < bean.dependencies.size(); i++) {
+            arguments.add("(" + bean.parameterTypes.get(i) + ") bean" + bean.dependencies.get(i).index + "()");
+        }
+
+        line(1, "private Object create" + bean.index + "() {");
+        int indent = 2;
+        if (bean.declaresExceptions) {
+            line(indent++, "try {");
+        }
+        line(indent, type + " bean = new " + type + "(" + arguments + ");");
+        for (String method : bean.postConstructMethods) {
+            line(indent, "bean." + method + "();");
+        }
+        if (bean.hasInitMethod) {
+            line(indent, "bean.init();");
+        }
+        if (bean.isDestroyed()) {
+            line(indent, "target" + bean.index + " = bean;");
+        }
+        line(indent, bean.isProxied()
+                ? "return new Bean" + bean.index + "Proxy(bean);"
+                : "return bean;");
+        if (bean.declaresExceptions) {
+            line(2, "} catch (RuntimeException | Error e) {");
+            line(3, "throw e;");
+            line(2, "} catch (Exception e) {");
+            line(3, "throw new " + BEAN_CREATION + "(\"Can not instantiate \" + " + literal(bean.name) + ", e);");
+            line(2, "}");
+        }
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeGetBean() {
+        line(1, "@Override");
+        line(1, "public Object getBean(String beanName) {");
+        line(2, "if (beanName == null) {");
+        line(3, "throw new " + NO_SUCH_BEAN + "();");
+        line(2, "}");
+        line(2, "switch (beanName) {");
+        for (ContextModel.Bean bean : model.beans) {
+            StringBuilder labels = new StringBuilder("case " + literal(bean.name) + ":");
+            for (String alias : bean.aliases) {
+                labels.append(" case ").append(literal(alias)).append(":");
+            }
+            line(3, labels.toString());
+            line(4, "return bean" + bean.index + "();");
+        }
+        line(3, "default:");
+        line(4, "throw new " + NO_SUCH_BEAN + "();");
+        line(2, "}");
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeGetBeanByType() {
+        line(1, "@Override");
+        line(1, "public <T> T getBean(Class<T> type) {");
+        line(2, "String beanName = BEAN_NAME_BY_TYPE.get(type);");
+        line(2, "if (beanName == null) {");
+        line(3, "if (BEAN_NAMES_BY_TYPE.containsKey(type)) {");
+        line(4, "throw new " + NO_UNIQUE_BEAN + "(\"No unique bean of type \" + type.getName());");
+        line(3, "}");
+        line(3, "throw new " + NO_SUCH_BEAN + "(\"No bean of type \" + type.getName());");
+        line(2, "}");
+        line(2, "return type.cast(getBean(beanName));");
+        line(1, "}");
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public <T> java.util.Map<String, T> getBeansOfType(Class<T> type) {");
+        line(2, "java.util.Map<String, T> beans = new java.util.LinkedHashMap<>();");
+        line(2, "for (String beanName : BEAN_NAMES_BY_TYPE.getOrDefault(type, NO_BEAN_NAMES)) {");
+        line(3, "beans.put(beanName, type.cast(getBean(beanName)));");
+        line(2, "}");
+        line(2, "return beans;");
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeBeanDefinitionNames() {
+        line(1, "@Override");
+        line(1, "public String[] getBeanDefinitionNames() {");
+        line(2, "return BEAN_DEFINITION_NAMES.clone();");
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeBenchmarkResults() {
+        String map = "java.util.Map<String, " + LATENCY_SNAPSHOT + ">";
+        line(1, "@Override");
+        line(1, "public " + map + " getBenchmarkResults() {");
+        line(2, map + " results = new java.util.TreeMap<>();");
+        for (int i = 0; i < benchmarkKeys.size(); i++) {
+            line(2, "results.put(" + literal(benchmarkKeys.get(i)) + ", benchmark" + i + ".snapshot());");
+        }
+        line(2, "return results;");
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeCacheStats() {
+        String map = "java.util.Map<String, " + CACHE_STATS + ">";
+        line(1, "@Override");
+        line(1, "public " + map + " getCacheStats() {");
+        line(2, map + " stats = new java.util.TreeMap<>();");
+        for (int i = 0; i < caches.size(); i++) {
+            line(2, "stats.put(" + literal(caches.get(i).key) + ", cache" + i + ".stats());");
+        }
+        line(2, "return stats;");
+        line(1, "}");
+        line(0, "");
+    }
+
+    /**
+     * Destroys the singletons created so far in reverse dependency order,
+     * which is a valid reverse creation order.
+     */
+    private void writeClose() {
+        line(1, "@Override");
+        line(1, "public void close() {");
+        line(2, BEAN_DESTRUCTION + " failure = null;");
+        for (int i = model.creationOrder.size() - 1; i >= 0; i--) {
+            ContextModel.Bean bean = model.creationOrder.get(i);
+            if (!bean.isDestroyed()) {
+                continue;
+            }
+            int index = bean.index;
+            line(2, bean.type.getQualifiedName() + " target" + index + " = this.target" + index + ";");
+            line(2, "this.target" + index + " = null;");
+            line(2, "if (target" + index + " != null) {");
+            line(3, "try {");
+            for (String method : bean.preDestroyMethods) {
+                line(4, "target" + index + "." + method + "();");
+            }
+            line(3, "} catch (Throwable e) {");
+            line(4, BEAN_DESTRUCTION + " beanFailure = new " + BEAN_DESTRUCTION + "(\"Can not destroy bean '\" + "
+                    + literal(bean.name) + " + \"'\", e);");
+            line(4, "if (failure == null) {");
+            line(5, "failure = beanFailure;");
+            line(4, "} else {");
+            line(5, "failure.addSuppressed(beanFailure);");
+            line(4, "}");
+            line(3, "}");
+            line(2, "}");
+        }
+        line(2, "if (failure != null) {");
+        line(3, "throw failure;");
+        line(2, "}");
+        line(1, "}");
+        line(0, "");
+    }
+
+    private void writeBeanDefinitions() {
+        line(1, "@Override");
+        line(1, "public " + BEAN_DEFINITION + "[] beanDefinitions() {");
+        line(2, "return new " + BEAN_DEFINITION + "[] {");
+        for (ContextModel.Bean bean : model.beans) {
+            StringBuilder definition = new StringBuilder(SIMPLE_BEAN_DEFINITION + ".builder(")
+                    .append(literal(bean.name)).append(", ")
+                    .append(bean.type.getQualifiedName()).append(".class)");
+            if (bean.prototype) {
+                definition.append(".prototype(true)");
+            }
+            if (bean.lazy) {
+                definition.append(".lazy(true)");
+            }
+            if (bean.primary) {
+                definition.append(".primary(true)");
+            }
+            if (!bean.aliases.isEmpty()) {
+                StringJoiner aliases = new StringJoiner(", ", ".aliases(", ")");
+                for (String alias : bean.aliases) {
+                    aliases.add(literal(alias));
+                }
+                definition.append(aliases);
+            }
+            line(3, definition.append(".build(),").toString());
+        }
+        line(2, "};");
+        line(1, "}");
+    }
+
+    private void writeProxy(ContextModel.Bean bean) {
+        String type = bean.type.getQualifiedName().toString();
+        String proxy = "Bean" + bean.index + "Proxy";
+        line(0, "");
+        line(1, "private final class " + proxy + " implements " + String.join(", ", bean.proxyInterfaces) + " {");
+        line(2, "private final " + type + " target;");
+        line(0, "");
+        line(2, proxy + "(" + type + " target) {");
+        line(3, "this.target = target;");
+        line(2, "}");
+
+        boolean equals = false;
+        boolean hashCode = false;
+        boolean toString = false;
+        for (ContextModel.ProxyMethod method : bean.proxyMethods) {
+            equals |= method.name.equals("equals") && method.parameterTypes.size() == 1;
+            hashCode |= method.name.equals("hashCode") && method.parameterTypes.isEmpty();
+            toString |= method.name.equals("toString") && method.parameterTypes.isEmpty();
+            writeProxyMethod(method);
+        }
+        if (!equals) {
+            writeDelegate("boolean", "equals", "Object other", "other");
+        }
+        if (!hashCode) {
+            writeDelegate("int", "hashCode", "", "");
+        }
+        if (!toString) {
+            writeDelegate("String", "toString", "", "");
+        }
+        line(1, "}");
+    }
+
+    private void writeProxyMethod(ContextModel.ProxyMethod method) {
+        StringJoiner parameters = new StringJoiner(", ");
+        StringJoiner arguments = new StringJoiner(", ");
+        for (int i = 0; i < method.parameterTypes.size(); i++) {
+            parameters.add(method.parameterTypes.get(i) + " arg" + i);
+            arguments.add("arg" + i);
+        }
+        String call = "target." + method.name + "(" + arguments + ")";
+        if (method.cache != null) {
+            call = "(" + method.returnType + ") cache" + caches.indexOf(method.cache) + ".get("
+                    + METHOD_CACHE + ".key(" + arguments + "), () -> " + call + ")";
+        }
+        String statement = method.returnsVoid ? call + ";" : "return " + call + ";";
+        String throwsClause = method.thrownTypes.isEmpty() ? ""
+                : " throws " + String.join(", ", method.thrownTypes);
+
+        line(0, "");
+        line(2, "@Override");
+        if (method.cache != null) {
+            line(2, "@SuppressWarnings(\"unchecked\")");
+        }
+        line(2, "public " + method.returnType + " " + method.name + "(" + parameters + ")" + throwsClause + " {");
+        if (method.benchmarkKey == null) {
+            line(3, statement);
+        } else {
+            line(3, "long start = System.nanoTime();");
+            line(3, "try {");
+            line(4, statement);
+            line(3, "} finally {");
+            line(4, "benchmark" + benchmarkKeys.indexOf(method.benchmarkKey)
+                    + ".record(System.nanoTime() - start);");
+            line(3, "}");
+        }
+        line(2, "}");
+    }
+
+    private void writeDelegate(String returnType, String name, String parameter, String argument) {
+        line(0, "");
+        line(2, "@Override");
+        line(2, "public " + returnType + " " + name + "(" + parameter + ") {");
+        line(3, "return target." + name + "(" + argument + ");");
+        line(2, "}");
+    }
+
+    private String literal(String value) {
+        return elements.getConstantExpression(value);
+    }
+
+    private void line(int indent, String text) {
+        for (int i = 0; i < indent; i++) {
+            out.append("    ");
+        }
+        out.append(text).append('\n');
+    }
+}
@@ -0,0 +1,356 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link TweetRepository} that stores tweets column by column instead of as
+ * objects. Rows are kept sorted by id in three primitive arrays (ids, user
+ * ids and text positions) and the UTF-8 text is packed, behind a two-byte
+ * length, into 1 MiB byte chunks. Users are kept once per user id.
+ * <p>
+ * A stored tweet costs 22 bytes plus its UTF-8 text. With compressed
+ * references, the same tweet held as objects costs about 88 bytes plus the
+ * text, before any map entry points at it: a 24 byte {@link Tweet}, a 24 byte
+ * boxed id, a 24 byte {@link String} and a 16 byte array header. On Java 8,
+ * or for non-Latin-1 text, the String also holds two bytes per character.
+ * For 100-character tweets that is 122 instead of 188 to 288 bytes per
+ * tweet, and the garbage collector has no per-tweet objects to trace.
+ * <p>
+ * Every lookup returns a detached {@link Tweet}; {@link #scan(Consumer)}
+ * iterates with one reusable view instead. Saving ids in ascending order
+ * appends a row, while an out-of-order id shifts the rows after it.
+ * Replacing a tweet appends its new text and leaves the old bytes unused.
+ */
+public class ColumnarTweetRepository implements WritableTweetRepository {
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_TEXT_BYTES = 0xFFFF;
+    private static final int NO_USER = Integer.MIN_VALUE;
+    private static final long NO_TEXT = -1;
+    private static final long DELETED = -2;
+    private static final int BATCH_SIZE = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, User> users = new HashMap<>();
+    private long[] ids = new long[1024];
+    private int[] userIds = new int[1024];
+    private long[] textPositions = new long[1024];
+    private int rows;
+    private int liveRows;
+    private byte[][] chunks = new byte[0][];
+    private int chunkFill = CHUNK_SIZE;
+    private long lastTweetId;
+
+    @Override
+    public Optional<Tweet> findById(long tweetId) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, rows, tweetId);
+            return Optional.ofNullable(row < 0 || textPositions[row] == DELETED ? null : materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Tweet save(Tweet tweet) {
+        Objects.requireNonNull(tweet, "tweet");
+        byte[] text = tweet.getTxt() == null ? null : tweet.getTxt().getBytes(StandardCharsets.UTF_8);
+        if (text != null && text.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Tweet text is longer than " + MAX_TEXT_BYTES + " bytes");
+        }
+        User user = tweet.getUser();
+
+        lock.writeLock().lock();
+        try {
+            if (tweet.getTweetId() == null) {
+                tweet.setTweetId(lastTweetId + 1);
+            }
+            long tweetId = tweet.getTweetId();
+            int row = Arrays.binarySearch(ids, 0, rows, tweetId);
+            if (row < 0) {
+                row = insertRow(-row - 1, tweetId);
+                liveRows++;
+            } else if (textPositions[row] == DELETED) {
+                liveRows++;
+            }
+            if (user != null) {
+                users.put(user.getUserId(), user);
+            }
+            userIds[row] = user == null ? NO_USER : user.getUserId();
+            textPositions[row] = text == null ? NO_TEXT : appendText(text);
+            lastTweetId = Math.max(lastTweetId, tweetId);
+            return tweet;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int insertRow(int row, long tweetId) {
+        if (rows == ids.length) {
+            int capacity = rows << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            textPositions = Arrays.copyOf(textPositions, capacity);
+        }
+        int tail = rows - row;
+        System.arraycopy(ids, row, ids, row + 1, tail);
+        System.arraycopy(userIds, row, userIds, row + 1, tail);
+        System.arraycopy(textPositions, row, textPositions, row + 1, tail);
+        ids[row] = tweetId;
+        rows++;
+        return row;
+    }
+
+    private long appendText(byte[] text) {
+        if (chunkFill + 2 + text.length > CHUNK_SIZE) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = new byte[CHUNK_SIZE];
+            chunkFill = 0;
+        }
+        byte[] chunk = chunks[chunks.length - 1];
+        long position = ((long) (chunks.length - 1) << CHUNK_BITS) | chunkFill;
+        chunk[chunkFill] = (byte) (text.length >>> 8);
+        chunk[chunkFill + 1] = (byte) text.length;
+        System.arraycopy(text, 0, chunk, chunkFill + 2, text.length);
+        chunkFill += 2 + text.length;
+        return position;
+    }
+
+    private String text(int row) {
+        long position = textPositions[row];
+        if (position < 0) {
+            return null;
+        }
+        byte[] chunk = chunks[(int) (position >>> CHUNK_BITS)];
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+        int length = (chunk[offset] & 0xFF) << 8 | (chunk[offset + 1] & 0xFF);
+        return new String(chunk, offset + 2, length, StandardCharsets.UTF_8);
+    }
+
+    private User user(int row) {
+        return userIds[row] == NO_USER ? null : users.get(userIds[row]);
+    }
+
+    private Tweet materialize(int row) {
+        return new Tweet(ids[row], text(row), user(row));
+    }
+
+    @Override
+    public boolean delete(long tweetId) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, rows, tweetId);
+            if (row < 0 || textPositions[row] == DELETED) {
+                return false;
+            }
+            textPositions[row] = DELETED;
+            liveRows--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Scans the user id column and only materializes the matching rows.
+     */
+    @Override
+    public List<Tweet> findByUser(User user) {
+        List<Tweet> tweets = new ArrayList<>();
+        if (user == null) {
+            return tweets;
+        }
+        lock.readLock().lock();
+        try {
+            int userId = user.getUserId();
+            for (int row = 0; row < rows; row++) {
+                if (userIds[row] == userId && textPositions[row] != DELETED) {
+                    tweets.add(materialize(row));
+                }
+            }
+            return tweets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TweetPage findPage(long afterTweetId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Tweet> tweets = new ArrayList<>(Math.min(limit, BATCH_SIZE));
+            int row = firstRowAfter(afterTweetId);
+            for (; row < rows && tweets.size() < limit; row++) {
+                if (textPositions[row] != DELETED) {
+                    tweets.add(materialize(row));
+                }
+            }
+            while (row < rows && textPositions[row] == DELETED) {
+                row++;
+            }
+            long nextCursor = tweets.isEmpty() ? afterTweetId : tweets.get(tweets.size() - 1).getTweetId();
+            return new TweetPage(tweets, nextCursor, row < rows);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Tweet> findLatest(long afterTweetId, int count) {
+        lock.readLock().lock();
+        try {
+            List<Tweet> tweets = new ArrayList<>(Math.min(count, liveRows));
+            int first = firstRowAfter(afterTweetId);
+            for (int row = rows - 1; row >= first && tweets.size() < count; row--) {
+                if (textPositions[row] != DELETED) {
+                    tweets.add(materialize(row));
+                }
+            }
+            return tweets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int firstRowAfter(long tweetId) {
+        int row = Arrays.binarySearch(ids, 0, rows, tweetId);
+        return row < 0 ? -row - 1 : row + 1;
+    }
+
+    /**
+     * Detached tweets in id order, read page by page so that neither the
+     * lock nor more than one page of tweets is held between elements.
+     */
+    @Override
+    public Stream<Tweet> stream() {
+        Iterator<Tweet> iterator = new Iterator<Tweet>() {
+            private TweetPage page = findPage(Long.MIN_VALUE, BATCH_SIZE);
+            private Iterator<Tweet> tweets = page.getTweets().iterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!tweets.hasNext() && page.hasNext()) {
+                    page = findPage(page.getNextCursor(), BATCH_SIZE);
+                    tweets = page.getTweets().iterator();
+                }
+                return tweets.hasNext();
+            }
+
+            @Override
+            public Tweet next() {
+                hasNext();
+                return tweets.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Iterable<Tweet> allTweets() {
+        return Collections.unmodifiableList(stream().collect(Collectors.toList()));
+    }
+
+    /**
+     * Calls {@code action} for every tweet in id order with the same
+     * read-only view, moved from row to row, so iterating creates no tweet
+     * objects and text is only decoded when asked for. Read the id with
+     * {@link TweetView#tweetId()}; {@link TweetView#getTweetId()} boxes it.
+     * The view is only valid inside {@code action}; copy what needs to
+     * outlive it. The repository stays read-locked for the whole scan.
+     */
+    public void scan(Consumer<? super TweetView> action) {
+        lock.readLock().lock();
+        try {
+            TweetView view = new TweetView();
+            for (int row = 0; row < rows; row++) {
+                if (textPositions[row] != DELETED) {
+                    view.row = row;
+                    action.accept(view);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flyweight {@link Tweet} reading the columns of the current row of a
+     * {@link #scan(Consumer)}.
+     */
+    public final class TweetView extends Tweet {
+        private int row;
+
+        private TweetView() {
+        }
+
+        public long tweetId() {
+            return ids[row];
+        }
+
+        @Override
+        public Long getTweetId() {
+            return ids[row];
+        }
+
+        @Override
+        public String getTxt() {
+            return text(row);
+        }
+
+        @Override
+        public User getUser() {
+            return user(row);
+        }
+
+        @Override
+        public void setTweetId(Long tweetId) {
+            throw new UnsupportedOperationException("Tweet views are read-only");
+        }
+
+        @Override
+        public void setTxt(String txt) {
+            throw new UnsupportedOperationException("Tweet views are read-only");
+        }
+
+        @Override
+        public void setUser(User user) {
+            throw new UnsupportedOperationException("Tweet views are read-only");
+        }
+
+        @Override
+        public String toString() {
+            return materialize(row).toString();
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package ua.rd.repository;
 
 import ua.rd.domain.Tweet;
+import ua.rd.ioc.Component;
 
 import java.util.Arrays;
 import java.util.List;
 
+@Component("tweetRepository")
 public class InMemTweetRepository implements TweetRepository {
     private List<Tweet> tweets;
 
@@ -0,0 +1,364 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Mutable in-memory {@link TweetRepository} for read-heavy traffic. Tweets
+ * are spread over lock stripes, each holding a {@link LongTweetMap} keyed by
+ * the primitive tweet id. Lookups by id are optimistic reads of a
+ * {@link StampedLock} and only fall back to a read lock when they race with
+ * a write to the same stripe. A secondary index keeps the tweet ids of
+ * every {@link User}, a sorted id index serves pages, timelines and
+ * streams without scanning the stripes, and a {@link TweetSearchIndex}
+ * serves {@link #search(String, int)}.
+ */
+public class IndexedTweetRepository implements WritableTweetRepository {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final ConcurrentHashMap<User, UserTweets> tweetsByUser = new ConcurrentHashMap<>();
+    private final SortedLongIndex sortedTweetIds = new SortedLongIndex();
+    private final TweetSearchIndex searchIndex = new TweetSearchIndex();
+    private final AtomicLong lastTweetId = new AtomicLong();
+
+    public IndexedTweetRepository() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public IndexedTweetRepository(int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        int stripeCount = Integer.highestOneBit(concurrencyLevel - 1) << 1;
+        stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = stripes.length - 1;
+    }
+
+    private Stripe stripeFor(long tweetId) {
+        return stripes[(int) LongTweetMap.mix(tweetId) & stripeMask];
+    }
+
+    @Override
+    public Optional<Tweet> findById(long tweetId) {
+        return Optional.ofNullable(get(tweetId));
+    }
+
+    private Tweet get(long tweetId) {
+        Stripe stripe = stripeFor(tweetId);
+        StampedLock lock = stripe.lock;
+        long stamp = lock.tryOptimisticRead();
+        Tweet tweet = stripe.tweets.get(tweetId);
+        if (lock.validate(stamp)) {
+            return tweet;
+        }
+        stamp = lock.readLock();
+        try {
+            return stripe.tweets.get(tweetId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Tweet save(Tweet tweet) {
+        Objects.requireNonNull(tweet, "tweet");
+        long tweetId;
+        if (tweet.getTweetId() == null) {
+            tweetId = lastTweetId.incrementAndGet();
+            tweet.setTweetId(tweetId);
+        } else {
+            tweetId = tweet.getTweetId();
+            lastTweetId.accumulateAndGet(tweetId, Math::max);
+        }
+
+        Stripe stripe = stripeFor(tweetId);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Tweet previous = stripe.tweets.put(tweetId, tweet);
+            if (previous == null) {
+                sortedTweetIds.add(tweetId);
+            }
+            if (previous != null && !Objects.equals(previous.getUser(), tweet.getUser())) {
+                unindex(previous.getUser(), tweetId);
+            }
+            if (previous == null || !Objects.equals(previous.getUser(), tweet.getUser())) {
+                index(tweet.getUser(), tweetId);
+            }
+            if (previous == null || !Objects.equals(previous.getTxt(), tweet.getTxt())) {
+                if (previous != null) {
+                    searchIndex.remove(tweetId, previous.getTxt());
+                }
+                searchIndex.add(tweetId, tweet.getTxt());
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        return tweet;
+    }
+
+    @Override
+    public boolean delete(long tweetId) {
+        Stripe stripe = stripeFor(tweetId);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Tweet removed = stripe.tweets.remove(tweetId);
+            if (removed == null) {
+                return false;
+            }
+            sortedTweetIds.remove(tweetId);
+            unindex(removed.getUser(), tweetId);
+            searchIndex.remove(tweetId, removed.getTxt());
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void index(User user, long tweetId) {
+        if (user != null) {
+            tweetsByUser.computeIfAbsent(user, u -> new UserTweets()).add(tweetId);
+        }
+    }
+
+    private void unindex(User user, long tweetId) {
+        UserTweets userTweets = user == null ? null : tweetsByUser.get(user);
+        if (userTweets != null) {
+            userTweets.remove(tweetId);
+        }
+    }
+
+    @Override
+    public List<Tweet> findByUser(User user) {
+        UserTweets userTweets = user == null ? null : tweetsByUser.get(user);
+        if (userTweets == null) {
+            return Collections.emptyList();
+        }
+        long[] tweetIds = userTweets.toArray();
+        List<Tweet> tweets = new ArrayList<>(tweetIds.length);
+        for (long tweetId : tweetIds) {
+            Tweet tweet = get(tweetId);
+            if (tweet != null && user.equals(tweet.getUser())) {
+                tweets.add(tweet);
+            }
+        }
+        return tweets;
+    }
+
+    /**
+     * Looks the ids up in the search index, so only the returned tweets are
+     * read. The index is updated with the tweet text at save time; a
+     * tweet whose text is changed afterwards has to be saved again.
+     */
+    @Override
+    public List<Tweet> search(String query, int limit) {
+        long[] tweetIds = searchIndex.search(TweetQuery.parse(query), limit);
+        return resolve(tweetIds, tweetIds.length);
+    }
+
+    /**
+     * Streams tweets in id order, reading the id index in small batches, so
+     * memory stays bounded however many tweets there are. The
+     * stream is weakly consistent: tweets saved or deleted while it runs may
+     * or may not be seen.
+     */
+    @Override
+    public Stream<Tweet> stream() {
+        return StreamSupport.stream(new TweetSpliterator(Long.MIN_VALUE, Long.MAX_VALUE), false);
+    }
+
+    /**
+     * The id buffer is sized by the ids there are, not by {@code limit}, so
+     * a large limit costs no more than the tweets it returns.
+     */
+    @Override
+    public TweetPage findPage(long afterTweetId, int limit) {
+        checkLimit(limit);
+        long[] tweetIds = new long[(int) Math.min(limit + 1L, sortedTweetIds.size() + 1L)];
+        int count = sortedTweetIds.copyRange(afterTweetId, Long.MAX_VALUE, tweetIds);
+        boolean hasNext = count > limit;
+        count = Math.min(count, limit);
+        long nextCursor = count == 0 ? afterTweetId : tweetIds[count - 1];
+        return new TweetPage(resolve(tweetIds, count), nextCursor, hasNext);
+    }
+
+    @Override
+    public List<Tweet> findLatest(long afterTweetId, int count) {
+        checkLimit(count);
+        long[] tweetIds = new long[Math.min(count, sortedTweetIds.size())];
+        return resolve(tweetIds, sortedTweetIds.copyLatest(afterTweetId, tweetIds));
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+    }
+
+    /**
+     * Tweets for the first {@code count} ids, skipping the ones deleted since
+     * the ids were read.
+     */
+    private List<Tweet> resolve(long[] tweetIds, int count) {
+        List<Tweet> tweets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tweet tweet = get(tweetIds[i]);
+            if (tweet != null) {
+                tweets.add(tweet);
+            }
+        }
+        return tweets;
+    }
+
+    /**
+     * A snapshot of all tweets, stripe by stripe, in no particular order.
+     */
+    @Override
+    public Iterable<Tweet> allTweets() {
+        List<Tweet> tweets = new ArrayList<>(size());
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                stripe.tweets.forEach(tweets::add);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return tweets;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.tweets.size();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Walks the id range {@code (after, upTo]} in batches. Splitting halves
+     * the part of the range that has not been buffered yet.
+     */
+    private final class TweetSpliterator implements Spliterator<Tweet> {
+        private static final int BATCH_SIZE = 256;
+
+        private long after;
+        private final long upTo;
+        private long[] batch;
+        private int position;
+        private int count;
+
+        private TweetSpliterator(long after, long upTo) {
+            this.after = after;
+            this.upTo = upTo;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Tweet> action) {
+            while (true) {
+                if (position == count && !fill()) {
+                    return false;
+                }
+                Tweet tweet = get(batch[position++]);
+                if (tweet != null) {
+                    action.accept(tweet);
+                    return true;
+                }
+            }
+        }
+
+        private boolean fill() {
+            if (batch == null) {
+                batch = new long[BATCH_SIZE];
+            }
+            position = 0;
+            count = sortedTweetIds.copyRange(after, upTo, batch);
+            if (count == 0) {
+                return false;
+            }
+            after = batch[count - 1];
+            return true;
+        }
+
+        @Override
+        public Spliterator<Tweet> trySplit() {
+            if (position < count) {
+                return null;
+            }
+            long middle = sortedTweetIds.midpoint(after, upTo);
+            if (middle == after) {
+                return null;
+            }
+            Spliterator<Tweet> prefix = new TweetSpliterator(after, middle);
+            after = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (long) (count - position) + sortedTweetIds.countRange(after, upTo);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | CONCURRENT;
+        }
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final LongTweetMap tweets = new LongTweetMap();
+    }
+
+    /**
+     * Tweet ids of one user in insertion order, as a growable primitive array.
+     */
+    private static final class UserTweets {
+        private long[] tweetIds = new long[4];
+        private int size;
+
+        synchronized void add(long tweetId) {
+            if (size == tweetIds.length) {
+                tweetIds = Arrays.copyOf(tweetIds, size << 1);
+            }
+            tweetIds[size++] = tweetId;
+        }
+
+        synchronized void remove(long tweetId) {
+            for (int i = 0; i < size; i++) {
+                if (tweetIds[i] == tweetId) {
+                    System.arraycopy(tweetIds, i + 1, tweetIds, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        synchronized long[] toArray() {
+            return Arrays.copyOf(tweetIds, size);
+        }
+    }
+}
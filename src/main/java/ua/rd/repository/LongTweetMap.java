@@ -0,0 +1,156 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from a primitive tweet id to its {@link Tweet}, with
+ * linear probing and backward-shift deletion, so neither keys nor
+ * tombstones are boxed. Not thread-safe; {@link IndexedTweetRepository}
+ * guards every instance with a lock.
+ * <p>
+ * Keys and values live in one {@link Table} that is replaced as a whole on
+ * resize. An optimistic reader that races with a writer may therefore see a
+ * stale or half-updated table but never index out of its bounds.
+ */
+final class LongTweetMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private Table table;
+    private int size;
+
+    LongTweetMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongTweetMap(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    Tweet get(long key) {
+        Table t = table;
+        int mask = t.mask;
+        int i = t.slot(key);
+        for (int probes = 0; probes <= mask; probes++) {
+            Tweet value = t.values[i];
+            if (value == null) {
+                return null;
+            }
+            if (t.keys[i] == key) {
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    Tweet put(long key, Tweet value) {
+        if ((size + 1) * 2 > table.values.length) {
+            resize(table.values.length << 1);
+        }
+        Table t = table;
+        int i = t.slot(key);
+        while (t.values[i] != null) {
+            if (t.keys[i] == key) {
+                Tweet previous = t.values[i];
+                t.values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & t.mask;
+        }
+        t.keys[i] = key;
+        t.values[i] = value;
+        size++;
+        return null;
+    }
+
+    Tweet remove(long key) {
+        Table t = table;
+        int mask = t.mask;
+        int i = t.slot(key);
+        while (t.values[i] != null && t.keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        Tweet removed = t.values[i];
+        if (removed == null) {
+            return null;
+        }
+
+        int gap = i;
+        for (int j = (i + 1) & mask; t.values[j] != null; j = (j + 1) & mask) {
+            int home = t.slot(t.keys[j]);
+            boolean movable = gap < j ? home <= gap || home > j : home <= gap && home > j;
+            if (movable) {
+                t.keys[gap] = t.keys[j];
+                t.values[gap] = t.values[j];
+                gap = j;
+            }
+        }
+        t.keys[gap] = 0;
+        t.values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Consumer<Tweet> action) {
+        for (Tweet value : table.values) {
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table t = new Table(capacity);
+        for (int i = 0; i < old.values.length; i++) {
+            if (old.values[i] != null) {
+                int j = t.slot(old.keys[i]);
+                while (t.values[j] != null) {
+                    j = (j + 1) & t.mask;
+                }
+                t.keys[j] = old.keys[i];
+                t.values[j] = old.values[i];
+            }
+        }
+        table = t;
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Tweet[] values;
+        private final int mask;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            values = new Tweet[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * Uses the upper half of the mixed key; the stripe of a repository is
+         * picked from the lower half.
+         */
+        private int slot(long key) {
+            return (int) (mix(key) >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+import ua.rd.ioc.MyPreDestroy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Persistent {@link TweetRepository} over two memory-mapped files in one
+ * directory:
+ * <ul>
+ * <li>{@code tweets.log}, an append-only log of fixed-size records. Saving
+ * appends a record; replacing or deleting a tweet only clears the live flag
+ * of its old record.</li>
+ * <li>{@code tweets.idx}, an open-addressing id &rarr; record number table
+ * that lives off-heap in the mapped file.</li>
+ * </ul>
+ * Reopening a directory maps both files again; the log is only scanned
+ * when the index does not match it, e.g. after a crash. Records stay in the
+ * page cache until a {@link Tweet} is actually decoded from one.
+ * <p>
+ * Text is limited to {@value #MAX_TEXT_BYTES} bytes of UTF-8, enough for
+ * 280 characters, and user names to {@value #MAX_NAME_BYTES} bytes. Pages and
+ * timelines use the scanning defaults of {@link TweetRepository}.
+ */
+public class MappedTweetRepository implements WritableTweetRepository, Closeable, Flushable {
+    public static final String DIRECTORY_PROPERTY = "ua.rd.tweets.dir";
+
+    static final String LOG_FILE = "tweets.log";
+    static final String INDEX_FILE = "tweets.idx";
+
+    private static final int MAGIC = 0x54574C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_RECORD_SIZE = 8;
+    private static final int HEADER_INDEX_CAPACITY = 12;
+    private static final int HEADER_RECORD_COUNT = 16;
+    private static final int HEADER_LAST_TWEET_ID = 24;
+
+    static final int RECORD_SIZE = 1024;
+    private static final int ID_OFFSET = 0;
+    private static final int FLAGS_OFFSET = 8;
+    private static final int USER_ID_OFFSET = 12;
+    private static final int NAME_LENGTH_OFFSET = 16;
+    private static final int TEXT_LENGTH_OFFSET = 18;
+    private static final int NAME_OFFSET = 20;
+    public static final int MAX_NAME_BYTES = 64;
+    private static final int TEXT_OFFSET = NAME_OFFSET + MAX_NAME_BYTES;
+    public static final int MAX_TEXT_BYTES = RECORD_SIZE - TEXT_OFFSET;
+
+    private static final byte LIVE = 1;
+    private static final byte HAS_USER = 2;
+    private static final byte HAS_TEXT = 4;
+
+    private static final int DEFAULT_RECORDS_PER_SEGMENT = 8192;
+    private static final int DEFAULT_INDEX_CAPACITY = 1024;
+    private static final int SLOT_SIZE = 16;
+
+    private final int recordsPerSegment;
+    private final FileChannel log;
+    private final MappedByteBuffer logHeader;
+    private final FileChannel indexChannel;
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final boolean indexRebuilt;
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long recordCount;
+    private long lastTweetId;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+    private int indexSize;
+
+    /**
+     * Opens the directory named by the {@value #DIRECTORY_PROPERTY} system
+     * property, or {@code tweets} in the temporary directory.
+     */
+    public MappedTweetRepository() {
+        this(Paths.get(System.getProperty(DIRECTORY_PROPERTY,
+                new File(System.getProperty("java.io.tmpdir"), "tweets").getPath())));
+    }
+
+    public MappedTweetRepository(Path directory) {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_INDEX_CAPACITY);
+    }
+
+    MappedTweetRepository(Path directory, int recordsPerSegment, int initialIndexCapacity) {
+        this.recordsPerSegment = recordsPerSegment;
+        try {
+            Files.createDirectories(directory);
+            log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logHeader = log.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            openLog(directory);
+
+            indexChannel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            indexRebuilt = !openIndex(initialIndexCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not open tweets in " + directory, e);
+        }
+    }
+
+    private void openLog(Path directory) throws IOException {
+        if (logHeader.getInt(HEADER_MAGIC) == 0) {
+            logHeader.putInt(HEADER_MAGIC, MAGIC);
+            logHeader.putInt(HEADER_VERSION, VERSION);
+            logHeader.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        } else if (logHeader.getInt(HEADER_MAGIC) != MAGIC || logHeader.getInt(HEADER_VERSION) != VERSION
+                || logHeader.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+            throw new IllegalStateException(directory.resolve(LOG_FILE) + " is not a tweet log");
+        }
+        long count = logHeader.getLong(HEADER_RECORD_COUNT);
+        while ((long) segments.length * recordsPerSegment < count) {
+            addSegment();
+        }
+        recordCount = count;
+        lastTweetId = logHeader.getLong(HEADER_LAST_TWEET_ID);
+    }
+
+    private void addSegment() throws IOException {
+        long segmentSize = (long) recordsPerSegment * RECORD_SIZE;
+        MappedByteBuffer segment = mapSegment(HEADER_SIZE + segments.length * segmentSize, segmentSize);
+        MappedByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[segments.length] = segment;
+        segments = grown;
+    }
+
+    MappedByteBuffer mapSegment(long position, long size) throws IOException {
+        return log.map(FileChannel.MapMode.READ_WRITE, position, size);
+    }
+
+    /**
+     * Maps the index and returns whether it could be reused as it is.
+     */
+    private boolean openIndex(int initialIndexCapacity) throws IOException {
+        MappedByteBuffer header = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        boolean reusable = header.getInt(HEADER_MAGIC) == MAGIC
+                && header.getLong(HEADER_RECORD_COUNT) == recordCount;
+        if (reusable) {
+            mapIndex(header.getInt(HEADER_INDEX_CAPACITY));
+            indexSize = countIndexEntries();
+            return true;
+        }
+        int capacity = initialIndexCapacity;
+        while (capacity < recordCount * 2) {
+            capacity <<= 1;
+        }
+        mapIndex(capacity);
+        clearIndex();
+        for (long recordNumber = 0; recordNumber < recordCount; recordNumber++) {
+            long previous = putIndexEntry(record(recordNumber).getLong(recordOffset(recordNumber) + ID_OFFSET),
+                    recordNumber);
+            if (previous >= 0) {
+                markDeleted(previous);
+            }
+        }
+        index.putInt(HEADER_MAGIC, MAGIC);
+        index.putLong(HEADER_RECORD_COUNT, recordCount);
+        return false;
+    }
+
+    private void mapIndex(int capacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        index.putInt(HEADER_INDEX_CAPACITY, capacity);
+        indexCapacity = capacity;
+    }
+
+    private void clearIndex() {
+        for (int slot = 0; slot < indexCapacity; slot++) {
+            index.putLong(slotOffset(slot) + 8, 0);
+        }
+        indexSize = 0;
+    }
+
+    private int countIndexEntries() {
+        int count = 0;
+        for (int slot = 0; slot < indexCapacity; slot++) {
+            if (index.getLong(slotOffset(slot) + 8) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private int homeSlot(long tweetId) {
+        return (int) (LongTweetMap.mix(tweetId) >>> 32) & (indexCapacity - 1);
+    }
+
+    /**
+     * Record number of the latest record for {@code tweetId}, or -1.
+     */
+    private long lookup(long tweetId) {
+        int mask = indexCapacity - 1;
+        for (int slot = homeSlot(tweetId); ; slot = (slot + 1) & mask) {
+            long entry = index.getLong(slotOffset(slot) + 8);
+            if (entry == 0) {
+                return -1;
+            }
+            if (index.getLong(slotOffset(slot)) == tweetId) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Points {@code tweetId} at {@code recordNumber} and returns the record it
+     * pointed at before, or -1.
+     */
+    private long putIndexEntry(long tweetId, long recordNumber) {
+        int mask = indexCapacity - 1;
+        int slot = homeSlot(tweetId);
+        while (index.getLong(slotOffset(slot) + 8) != 0 && index.getLong(slotOffset(slot)) != tweetId) {
+            slot = (slot + 1) & mask;
+        }
+        long previous = index.getLong(slotOffset(slot) + 8) - 1;
+        if (previous < 0) {
+            indexSize++;
+        }
+        index.putLong(slotOffset(slot), tweetId);
+        index.putLong(slotOffset(slot) + 8, recordNumber + 1);
+        return previous;
+    }
+
+    /**
+     * Doubles the table in place: the entries are read onto the heap, the
+     * grown mapping is cleared and the entries are inserted again.
+     */
+    private void growIndex() throws IOException {
+        long[] tweetIds = new long[indexSize];
+        long[] entries = new long[indexSize];
+        int count = 0;
+        for (int slot = 0; slot < indexCapacity; slot++) {
+            long entry = index.getLong(slotOffset(slot) + 8);
+            if (entry != 0) {
+                tweetIds[count] = index.getLong(slotOffset(slot));
+                entries[count++] = entry;
+            }
+        }
+        mapIndex(indexCapacity << 1);
+        clearIndex();
+        for (int i = 0; i < count; i++) {
+            putIndexEntry(tweetIds[i], entries[i] - 1);
+        }
+    }
+
+    private MappedByteBuffer record(long recordNumber) {
+        return segments[(int) (recordNumber / recordsPerSegment)];
+    }
+
+    private int recordOffset(long recordNumber) {
+        return (int) (recordNumber % recordsPerSegment) * RECORD_SIZE;
+    }
+
+    @Override
+    public Optional<Tweet> findById(long tweetId) {
+        long recordNumber;
+        indexLock.readLock().lock();
+        try {
+            recordNumber = lookup(tweetId);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return Optional.ofNullable(recordNumber < 0 ? null : read(recordNumber));
+    }
+
+    /**
+     * Decodes a record, or returns {@code null} when it is no longer live.
+     */
+    private Tweet read(long recordNumber) {
+        MappedByteBuffer segment = record(recordNumber);
+        int offset = recordOffset(recordNumber);
+        byte flags = segment.get(offset + FLAGS_OFFSET);
+        if ((flags & LIVE) == 0) {
+            return null;
+        }
+        User user = null;
+        if ((flags & HAS_USER) != 0) {
+            user = new User(segment.getInt(offset + USER_ID_OFFSET),
+                    readString(segment, offset + NAME_OFFSET, segment.getShort(offset + NAME_LENGTH_OFFSET)));
+        }
+        String text = (flags & HAS_TEXT) == 0 ? null
+                : readString(segment, offset + TEXT_OFFSET, segment.getShort(offset + TEXT_LENGTH_OFFSET));
+        return new Tweet(segment.getLong(offset + ID_OFFSET), text, user);
+    }
+
+    private static String readString(MappedByteBuffer segment, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = segment.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(MappedByteBuffer segment, int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            segment.put(offset + i, bytes[i]);
+        }
+    }
+
+    @Override
+    public Tweet save(Tweet tweet) {
+        saveAll(Collections.singletonList(Objects.requireNonNull(tweet, "tweet")));
+        return tweet;
+    }
+
+    /**
+     * Appends the tweets under one lock acquisition and publishes them with
+     * a single commit, so a batch costs one header update rather than one
+     * per tweet. Either all tweets of a batch are saved or none is: the
+     * segments and the index are grown for the whole batch first, and the
+     * index only points at the new records, and tweets only get their ids,
+     * once every record is written.
+     */
+    @Override
+    public void saveAll(Iterable<Tweet> tweets) {
+        List<Tweet> batch = new ArrayList<>();
+        List<byte[]> names = new ArrayList<>();
+        List<byte[]> texts = new ArrayList<>();
+        for (Tweet tweet : tweets) {
+            Objects.requireNonNull(tweet, "tweet");
+            User user = tweet.getUser();
+            byte[] name = user == null || user.getName() == null ? new byte[0]
+                    : user.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] text = tweet.getTxt() == null ? new byte[0] : tweet.getTxt().getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_NAME_BYTES || text.length > MAX_TEXT_BYTES) {
+                throw new IllegalArgumentException("Tweet does not fit into a record of " + RECORD_SIZE + " bytes");
+            }
+            batch.add(tweet);
+            names.add(name);
+            texts.add(text);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        indexLock.writeLock().lock();
+        try {
+            long count = recordCount;
+            index.putLong(HEADER_RECORD_COUNT, -1);
+            try {
+                reserve(count + batch.size(), batch.size());
+            } catch (IOException e) {
+                index.putLong(HEADER_RECORD_COUNT, count);
+                throw new UncheckedIOException(e);
+            }
+            long nextTweetId = lastTweetId;
+            long[] tweetIds = new long[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                Tweet tweet = batch.get(i);
+                tweetIds[i] = tweet.getTweetId() == null ? nextTweetId + 1 : tweet.getTweetId();
+                nextTweetId = Math.max(nextTweetId, tweetIds[i]);
+                write(tweet, tweetIds[i], names.get(i), texts.get(i), count + i);
+            }
+            long[] previous = new long[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                previous[i] = putIndexEntry(tweetIds[i], count + i);
+            }
+            lastTweetId = nextTweetId;
+            commit(count + batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).getTweetId() == null) {
+                    batch.get(i).setTweetId(tweetIds[i]);
+                }
+                if (previous[i] >= 0) {
+                    markDeleted(previous[i]);
+                }
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Maps segments up to {@code recordCount} records and grows the index
+     * for {@code newEntries} more ids, so that nothing can fail once records
+     * are being written.
+     */
+    private void reserve(long recordCount, int newEntries) throws IOException {
+        while ((long) segments.length * recordsPerSegment < recordCount) {
+            addSegment();
+        }
+        while ((indexSize + newEntries) * 2L > indexCapacity) {
+            growIndex();
+        }
+    }
+
+    /**
+     * Writes one record past the committed ones; it is not indexed yet.
+     */
+    private void write(Tweet tweet, long tweetId, byte[] name, byte[] text, long recordNumber) {
+        User user = tweet.getUser();
+        MappedByteBuffer segment = record(recordNumber);
+        int offset = recordOffset(recordNumber);
+        segment.putLong(offset + ID_OFFSET, tweetId);
+        segment.putInt(offset + USER_ID_OFFSET, user == null ? 0 : user.getUserId());
+        segment.putShort(offset + NAME_LENGTH_OFFSET, (short) name.length);
+        segment.putShort(offset + TEXT_LENGTH_OFFSET, (short) text.length);
+        writeBytes(segment, offset + NAME_OFFSET, name);
+        writeBytes(segment, offset + TEXT_OFFSET, text);
+        segment.put(offset + FLAGS_OFFSET, (byte) (LIVE
+                | (user == null ? 0 : HAS_USER)
+                | (tweet.getTxt() == null ? 0 : HAS_TEXT)));
+    }
+
+    private boolean isLive(long recordNumber) {
+        return (record(recordNumber).get(recordOffset(recordNumber) + FLAGS_OFFSET) & LIVE) != 0;
+    }
+
+    private void markDeleted(long recordNumber) {
+        MappedByteBuffer segment = record(recordNumber);
+        int offset = recordOffset(recordNumber) + FLAGS_OFFSET;
+        segment.put(offset, (byte) (segment.get(offset) & ~LIVE));
+    }
+
+    /**
+     * Publishes a record. Until then the index header does not match the log,
+     * so an interrupted save makes the next open rebuild the index.
+     */
+    private void commit(long count) {
+        logHeader.putLong(HEADER_LAST_TWEET_ID, lastTweetId);
+        logHeader.putLong(HEADER_RECORD_COUNT, count);
+        index.putLong(HEADER_RECORD_COUNT, count);
+        recordCount = count;
+    }
+
+    @Override
+    public boolean delete(long tweetId) {
+        indexLock.writeLock().lock();
+        try {
+            long recordNumber = lookup(tweetId);
+            if (recordNumber < 0 || !isLive(recordNumber)) {
+                return false;
+            }
+            markDeleted(recordNumber);
+            return true;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Scans the user id column of the log and only decodes the matching
+     * records.
+     */
+    @Override
+    public List<Tweet> findByUser(User user) {
+        List<Tweet> tweets = new ArrayList<>();
+        if (user == null) {
+            return tweets;
+        }
+        long count = recordCount;
+        for (long recordNumber = 0; recordNumber < count; recordNumber++) {
+            MappedByteBuffer segment = record(recordNumber);
+            int offset = recordOffset(recordNumber);
+            if ((segment.get(offset + FLAGS_OFFSET) & (LIVE | HAS_USER)) == (LIVE | HAS_USER)
+                    && segment.getInt(offset + USER_ID_OFFSET) == user.getUserId()) {
+                Tweet tweet = read(recordNumber);
+                if (tweet != null) {
+                    tweets.add(tweet);
+                }
+            }
+        }
+        return tweets;
+    }
+
+    /**
+     * Live tweets in the order they were saved. Committed records are never
+     * moved, so the stream reads them without locking and splits by record
+     * number for parallel streams.
+     */
+    @Override
+    public Stream<Tweet> stream() {
+        return LongStream.range(0, recordCount)
+                .mapToObj(this::read)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Iterable<Tweet> allTweets() {
+        return stream().collect(Collectors.toList());
+    }
+
+    boolean wasIndexRebuilt() {
+        return indexRebuilt;
+    }
+
+    /**
+     * Forces the records and the index written so far to disk.
+     */
+    @Override
+    public void flush() {
+        indexLock.readLock().lock();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            index.force();
+            logHeader.force();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes both files to disk and closes them.
+     */
+    @Override
+    @MyPreDestroy
+    public void close() throws IOException {
+        indexLock.writeLock().lock();
+        try {
+            flush();
+            log.close();
+            indexChannel.close();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+}
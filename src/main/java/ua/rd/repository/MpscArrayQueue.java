@@ -0,0 +1,84 @@
+package ua.rd.repository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer, after
+ * the ring buffer of JCTools' {@code MpscArrayQueue}. Producers claim a
+ * slot by a CAS on the tail and publish the element with an ordered write
+ * into it; the consumer owns the head and frees each slot it takes. A slot
+ * that was claimed but not written yet reads as empty, so the consumer
+ * just sees that element on its next drain.
+ */
+final class MpscArrayQueue<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    MpscArrayQueue(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds {@code element} unless the queue is full.
+     */
+    boolean offer(E element) {
+        long capacity = mask + 1;
+        long headLimit = head.get() + capacity;
+        while (true) {
+            long position = tail.get();
+            if (position >= headLimit) {
+                headLimit = head.get() + capacity;
+                if (position >= headLimit) {
+                    return false;
+                }
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                buffer.lazySet((int) position & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code limit} elements into {@code target}, in the order
+     * they were claimed. Only the consumer thread may call this.
+     */
+    int drainTo(List<? super E> target, int limit) {
+        long position = head.get();
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) position & mask;
+            E element = buffer.get(index);
+            if (element == null) {
+                break;
+            }
+            buffer.lazySet(index, null);
+            target.add(element);
+            position++;
+            drained++;
+        }
+        head.lazySet(position);
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
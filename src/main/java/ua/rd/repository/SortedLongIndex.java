@@ -0,0 +1,137 @@
+package ua.rd.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Sorted set of primitive tweet ids backing keyset pagination. Ids handed
+ * out by a sequence arrive in ascending order, so adding one is an append;
+ * out-of-order inserts and removals shift the tail of the array. Every
+ * query is a binary search followed by a bounded copy.
+ */
+final class SortedLongIndex {
+    private final StampedLock lock = new StampedLock();
+    private long[] ids = new long[16];
+    private int size;
+
+    void add(long id) {
+        long stamp = lock.writeLock();
+        try {
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insert(-position - 1, id);
+            } else {
+                insert(size, id);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void insert(int position, long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size << 1);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copies the smallest ids in {@code (after, upTo]} into {@code buffer},
+     * ascending, and returns how many were copied.
+     */
+    int copyRange(long after, long upTo, long[] buffer) {
+        long stamp = lock.readLock();
+        try {
+            int from = firstGreater(after);
+            int to = Math.min(firstGreater(upTo), from + buffer.length);
+            System.arraycopy(ids, from, buffer, 0, to - from);
+            return to - from;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies up to {@code buffer.length} of the largest ids greater than
+     * {@code after} into {@code buffer}, descending, and returns how many
+     * were copied.
+     */
+    int copyLatest(long after, long[] buffer) {
+        long stamp = lock.readLock();
+        try {
+            int from = Math.max(firstGreater(after), size - buffer.length);
+            int count = size - from;
+            for (int i = 0; i < count; i++) {
+                buffer[i] = ids[size - 1 - i];
+            }
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int countRange(long after, long upTo) {
+        long stamp = lock.readLock();
+        try {
+            return firstGreater(upTo) - firstGreater(after);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * An id splitting {@code (after, upTo]} into two non-empty halves of
+     * about the same size, or {@code after} when there is nothing to split.
+     */
+    long midpoint(long after, long upTo) {
+        long stamp = lock.readLock();
+        try {
+            int from = firstGreater(after);
+            int to = firstGreater(upTo);
+            return to - from < 2 ? after : ids[from + (to - from) / 2 - 1];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int firstGreater(long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,48 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query. The next page starts after
+ * {@link #getNextCursor()}, so pages stay stable while tweets are added or
+ * deleted in between.
+ */
+public class TweetPage {
+    private final List<Tweet> tweets;
+    private final long nextCursor;
+    private final boolean hasNext;
+
+    public TweetPage(List<Tweet> tweets, long nextCursor, boolean hasNext) {
+        this.tweets = Collections.unmodifiableList(tweets);
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<Tweet> getTweets() {
+        return tweets;
+    }
+
+    /**
+     * Id of the last tweet on this page, to be passed as
+     * {@code afterTweetId} for the next one.
+     */
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public String toString() {
+        return "TweetPage{" +
+                "tweets=" + tweets +
+                ", nextCursor=" + nextCursor +
+                ", hasNext=" + hasNext +
+                '}';
+    }
+}
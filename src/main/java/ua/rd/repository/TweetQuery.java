@@ -0,0 +1,103 @@
+package ua.rd.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A keyword query over tweet text. Words are ANDed and {@code OR} separates
+ * alternatives, so {@code "java spring OR kotlin"} finds tweets with both
+ * {@code java} and {@code spring}, or with {@code kotlin}. Matching is on
+ * whole {@link #terms(String) terms} and ignores case.
+ */
+public final class TweetQuery {
+    static final int MAX_TERM_LENGTH = 64;
+
+    private final List<List<String>> clauses;
+
+    private TweetQuery(List<List<String>> clauses) {
+        this.clauses = clauses;
+    }
+
+    public static TweetQuery parse(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        List<String> clause = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals("OR")) {
+                addClause(clauses, clause);
+                clause = new ArrayList<>();
+            } else {
+                clause.addAll(terms(word));
+            }
+        }
+        addClause(clauses, clause);
+        return new TweetQuery(Collections.unmodifiableList(clauses));
+    }
+
+    private static void addClause(List<List<String>> clauses, List<String> clause) {
+        if (!clause.isEmpty()) {
+            clauses.add(Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(clause))));
+        }
+    }
+
+    /**
+     * The distinct terms of {@code text}: runs of letters and digits, lower
+     * cased. Runs longer than {@value #MAX_TERM_LENGTH} characters, such as
+     * pasted links, are not terms.
+     */
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+            i += i < text.length() ? Character.charCount(codePoint) : 1;
+        }
+        return terms;
+    }
+
+    /**
+     * The alternatives of this query, each a list of terms that all have to
+     * match. Empty for a query without terms, which matches nothing.
+     */
+    public List<List<String>> getClauses() {
+        return clauses;
+    }
+
+    public boolean matches(String text) {
+        Set<String> terms = terms(text);
+        for (List<String> clause : clauses) {
+            if (terms.containsAll(clause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder query = new StringBuilder();
+        for (List<String> clause : clauses) {
+            if (query.length() > 0) {
+                query.append(" OR ");
+            }
+            query.append(String.join(" ", clause));
+        }
+        return query.toString();
+    }
+}
@@ -1,8 +1,89 @@
 package ua.rd.repository;
 
 import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface TweetRepository {
     Iterable<Tweet> allTweets();
 
+    /**
+     * All tweets as a stream. Implementations backed by an index stream in
+     * id order, fetching tweets in bounded batches, and split for parallel
+     * streams.
+     */
+    default Stream<Tweet> stream() {
+        return StreamSupport.stream(allTweets().spliterator(), false);
+    }
+
+    /**
+     * Up to {@code limit} tweets with an id greater than
+     * {@code afterTweetId}, oldest first. Pass {@link Long#MIN_VALUE} for the
+     * first page and {@link TweetPage#getNextCursor()} for the following ones.
+     */
+    default TweetPage findPage(long afterTweetId, int limit) {
+        List<Tweet> tweets = stream()
+                .filter(tweet -> tweet.getTweetId() != null && tweet.getTweetId() > afterTweetId)
+                .sorted(Comparator.comparing(Tweet::getTweetId))
+                .limit(limit + 1L)
+                .collect(Collectors.toList());
+        boolean hasNext = tweets.size() > limit;
+        if (hasNext) {
+            tweets.remove(limit);
+        }
+        long nextCursor = tweets.isEmpty() ? afterTweetId : tweets.get(tweets.size() - 1).getTweetId();
+        return new TweetPage(tweets, nextCursor, hasNext);
+    }
+
+    /**
+     * The timeline query: the {@code count} newest tweets with an id greater
+     * than {@code afterTweetId}, newest first.
+     */
+    default List<Tweet> findLatest(long afterTweetId, int count) {
+        return stream()
+                .filter(tweet -> tweet.getTweetId() != null && tweet.getTweetId() > afterTweetId)
+                .sorted(Comparator.comparing(Tweet::getTweetId).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    default Optional<Tweet> findById(long tweetId) {
+        for (Tweet tweet : allTweets()) {
+            if (tweet.getTweetId() != null && tweet.getTweetId() == tweetId) {
+                return Optional.of(tweet);
+            }
+        }
+        return Optional.empty();
+    }
+
+    default List<Tweet> findByUser(User user) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (Tweet tweet : allTweets()) {
+            if (user != null && user.equals(tweet.getUser())) {
+                tweets.add(tweet);
+            }
+        }
+        return tweets;
+    }
+
+    /**
+     * The {@code limit} newest tweets matching {@code query}, newest first.
+     * See {@link TweetQuery} for the syntax. Implementations with a
+     * {@link TweetSearchIndex} answer without reading every tweet.
+     */
+    default List<Tweet> search(String query, int limit) {
+        TweetQuery tweetQuery = TweetQuery.parse(query);
+        return stream()
+                .filter(tweet -> tweet.getTweetId() != null && tweetQuery.matches(tweet.getTxt()))
+                .sorted(Comparator.comparing(Tweet::getTweetId).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
 }
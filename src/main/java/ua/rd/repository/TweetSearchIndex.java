@@ -0,0 +1,216 @@
+package ua.rd.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from {@link TweetQuery#terms(String) terms} to
+ * the ids of the tweets containing them. Every posting list is a sorted
+ * primitive {@code long[]}, eight bytes per occurrence, and sequential ids
+ * are appended. A query intersects its terms starting from the rarest one,
+ * galloping through the longer lists, so its cost follows the shortest
+ * list rather than the number of tweets; alternatives are merged.
+ * <p>
+ * Queries share a read lock and updates take the write lock for as long as
+ * it takes to touch the posting lists of one tweet.
+ */
+public final class TweetSearchIndex {
+    private static final long[] NO_IDS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    public void add(long tweetId, String text) {
+        Set<String> terms = TweetQuery.terms(text);
+        if (terms.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new PostingList()).add(tweetId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes {@code tweetId} from the posting lists of {@code text}, which
+     * has to be the text it was added with.
+     */
+    public void remove(long tweetId, String text) {
+        Set<String> terms = TweetQuery.terms(text);
+        if (terms.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (String term : terms) {
+                PostingList postingList = postings.get(term);
+                if (postingList != null && postingList.remove(tweetId) && postingList.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the {@code limit} newest tweets matching {@code query}, newest
+     * first.
+     */
+    public long[] search(TweetQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] matches = null;
+            int count = 0;
+            for (List<String> clause : query.getClauses()) {
+                long[] clauseMatches = matchAll(clause);
+                if (matches == null) {
+                    matches = clauseMatches;
+                    count = clauseMatches.length;
+                } else {
+                    long[] union = new long[count + clauseMatches.length];
+                    count = union(matches, count, clauseMatches, clauseMatches.length, union);
+                    matches = union;
+                }
+            }
+            if (matches == null) {
+                return NO_IDS;
+            }
+            int resultSize = Math.min(limit, count);
+            long[] newest = new long[resultSize];
+            for (int i = 0; i < resultSize; i++) {
+                newest[i] = matches[count - 1 - i];
+            }
+            return newest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids containing every term, ascending.
+     */
+    private long[] matchAll(List<String> terms) {
+        PostingList[] lists = new PostingList[terms.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(terms.get(i));
+            if (lists[i] == null) {
+                return NO_IDS;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        long[] matches = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int count = matches.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = intersect(matches, count, lists[i].ids, lists[i].size);
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Keeps the ids of {@code ids} that are also in {@code other}, in place,
+     * and returns how many there are. Each id is looked up by galloping from
+     * the previous match, which costs {@code log(gap)} rather than a scan.
+     */
+    static int intersect(long[] ids, int count, long[] other, int otherCount) {
+        int kept = 0;
+        int position = 0;
+        for (int i = 0; i < count && position < otherCount; i++) {
+            position = gallop(other, position, otherCount, ids[i]);
+            if (position < otherCount && other[position] == ids[i]) {
+                ids[kept++] = ids[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * The first index in {@code [from, to)} whose id is not less than
+     * {@code id}, or {@code to}.
+     */
+    static int gallop(long[] ids, int from, int to, long id) {
+        int bound = 1;
+        while (from + bound < to && ids[from + bound] < id) {
+            bound <<= 1;
+        }
+        int position = Arrays.binarySearch(ids, from + (bound >> 1), Math.min(from + bound + 1, to), id);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    static int union(long[] a, int aCount, long[] b, int bCount, long[] target) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < aCount && j < bCount) {
+            if (a[i] < b[j]) {
+                target[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                target[count++] = b[j++];
+            } else {
+                target[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < aCount) {
+            target[count++] = a[i++];
+        }
+        while (j < bCount) {
+            target[count++] = b[j++];
+        }
+        return count;
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sorted ids of one term. Ids arrive mostly in ascending order, so an add
+     * is usually an append.
+     */
+    private static final class PostingList {
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            int position = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
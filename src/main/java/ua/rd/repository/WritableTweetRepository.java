@@ -0,0 +1,22 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+
+/**
+ * A {@link TweetRepository} that tweets can be saved to and deleted from.
+ */
+public interface WritableTweetRepository extends TweetRepository {
+    /**
+     * Stores {@code tweet}, replacing any tweet with the same id. A tweet
+     * without an id gets the next free one.
+     */
+    Tweet save(Tweet tweet);
+
+    default void saveAll(Iterable<Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            save(tweet);
+        }
+    }
+
+    boolean delete(long tweetId);
+}
@@ -0,0 +1,321 @@
+package ua.rd.repository;
+
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+import ua.rd.ioc.MyPreDestroy;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * {@link WritableTweetRepository} that queues saves and writes them to
+ * another repository in batches. Saving assigns the id, puts the tweet on a
+ * lock-free {@link MpscArrayQueue} and returns; a single writer thread
+ * hands the queue to {@link WritableTweetRepository#saveAll} once a batch is
+ * full or the oldest queued tweet has waited {@code maxDelay}, and then
+ * flushes the delegate if it is {@link Flushable}. The writer is only woken
+ * when a batch fills up, not for every save. A tweet must not be changed
+ * after it was saved.
+ * <p>
+ * When the queue is full, saving parks until the writer has made room, so
+ * producers slow down to the speed of the store instead of filling the
+ * heap. Reads and deletes go to the delegate and see a tweet once its batch
+ * is written; {@link #flush()} waits for everything saved before it.
+ * Closing the context, or this repository, writes what is still queued.
+ * <p>
+ * If the delegate fails, with an exception or an error, the repository
+ * fails closed: that batch and everything queued after it are dropped, and
+ * every later save, flush or close throws the failure.
+ * <p>
+ * The only public constructor takes the delegate, so the container wires
+ * it unambiguously; subclasses can tune batching through the protected
+ * one.
+ */
+public class WriteBehindTweetRepository implements WritableTweetRepository, Closeable, Flushable {
+    private static final int DEFAULT_BATCH_SIZE = 512;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 10;
+    private static final int DEFAULT_QUEUE_CAPACITY = 16 * 1024;
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final WritableTweetRepository delegate;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final MpscArrayQueue<Object> queue;
+    private final AtomicLong lastTweetId;
+    private final AtomicInteger savesInProgress = new AtomicInteger();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile boolean stopped;
+    private volatile RuntimeException failure;
+
+    public WriteBehindTweetRepository(WritableTweetRepository delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    protected WriteBehindTweetRepository(WritableTweetRepository delegate, int batchSize, long maxDelay,
+                                         TimeUnit unit, int queueCapacity) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (queueCapacity < batchSize) {
+            throw new IllegalArgumentException("queueCapacity must hold a batch: " + queueCapacity);
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.batchSize = batchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.queue = new MpscArrayQueue<>(queueCapacity);
+        List<Tweet> latest = delegate.findLatest(Long.MIN_VALUE, 1);
+        this.lastTweetId = new AtomicLong(latest.isEmpty() ? 0 : latest.get(0).getTweetId());
+        this.writer = new Thread(this::writeLoop, "tweet-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public Tweet save(Tweet tweet) {
+        Objects.requireNonNull(tweet, "tweet");
+        savesInProgress.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Repository is closed");
+            }
+            checkFailure();
+            if (tweet.getTweetId() == null) {
+                tweet.setTweetId(lastTweetId.incrementAndGet());
+            } else {
+                lastTweetId.accumulateAndGet(tweet.getTweetId(), Math::max);
+            }
+            enqueue(tweet);
+            if (queue.size() == batchSize) {
+                LockSupport.unpark(writer);
+            }
+            return tweet;
+        } finally {
+            savesInProgress.decrementAndGet();
+        }
+    }
+
+    private void enqueue(Object item) {
+        while (!queue.offer(item)) {
+            backpressureWaits.increment();
+            checkFailure();
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, BACKOFF_NANOS);
+        }
+    }
+
+    private void checkFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until every tweet saved before this call has been written to
+     * the delegate. Returns at once on a closed repository.
+     */
+    @Override
+    public void flush() {
+        savesInProgress.incrementAndGet();
+        try {
+            if (!closed) {
+                awaitWritten();
+            }
+        } finally {
+            savesInProgress.decrementAndGet();
+        }
+    }
+
+    private void awaitWritten() {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        enqueue(written);
+        LockSupport.unpark(writer);
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Stops taking saves, writes the queued ones and stops the writer. The
+     * delegate is left open; the context closes it after this bean.
+     */
+    @Override
+    @MyPreDestroy
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (savesInProgress.get() > 0) {
+            Thread.yield();
+        }
+        try {
+            awaitWritten();
+        } finally {
+            stopped = true;
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Object> items = new ArrayList<>(batchSize);
+        long oldest = 0;
+        while (!stopped) {
+            boolean wasEmpty = items.isEmpty();
+            queue.drainTo(items, batchSize - items.size());
+            if (items.isEmpty()) {
+                LockSupport.parkNanos(this, maxDelayNanos);
+                continue;
+            }
+            long now = System.nanoTime();
+            if (wasEmpty) {
+                oldest = now;
+            }
+            long waited = now - oldest;
+            if (items.size() < batchSize && waited < maxDelayNanos && !closed && !hasFlushRequest(items)) {
+                LockSupport.parkNanos(this, maxDelayNanos - waited);
+                continue;
+            }
+            write(items);
+            items.clear();
+        }
+    }
+
+    private static boolean hasFlushRequest(List<Object> items) {
+        for (Object item : items) {
+            if (item instanceof CompletableFuture) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the tweets in {@code items} and completes the flush requests
+     * among them once everything queued before a request is written, or
+     * fails them when something was dropped.
+     */
+    @SuppressWarnings("unchecked")
+    private void write(List<Object> items) {
+        List<Tweet> batch = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof Tweet) {
+                batch.add((Tweet) item);
+            } else {
+                writeBatch(batch);
+                batch.clear();
+                RuntimeException e = failure;
+                if (e == null) {
+                    ((CompletableFuture<Void>) item).complete(null);
+                } else {
+                    ((CompletableFuture<Void>) item).completeExceptionally(e);
+                }
+            }
+        }
+        writeBatch(batch);
+    }
+
+    private void writeBatch(List<Tweet> batch) {
+        if (batch.isEmpty() || failure != null) {
+            return;
+        }
+        try {
+            delegate.saveAll(batch);
+            if (delegate instanceof Flushable) {
+                ((Flushable) delegate).flush();
+            }
+            writtenCount.addAndGet(batch.size());
+            batchCount.incrementAndGet();
+        } catch (Throwable e) {
+            failure = e instanceof RuntimeException ? (RuntimeException) e
+                    : new IllegalStateException("Can not write " + batch.size() + " tweets", e);
+        }
+    }
+
+    /**
+     * Flushes first, so that a queued save of the same id can not bring the
+     * tweet back.
+     */
+    @Override
+    public boolean delete(long tweetId) {
+        flush();
+        return delegate.delete(tweetId);
+    }
+
+    @Override
+    public Iterable<Tweet> allTweets() {
+        return delegate.allTweets();
+    }
+
+    @Override
+    public Stream<Tweet> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public TweetPage findPage(long afterTweetId, int limit) {
+        return delegate.findPage(afterTweetId, limit);
+    }
+
+    @Override
+    public List<Tweet> findLatest(long afterTweetId, int count) {
+        return delegate.findLatest(afterTweetId, count);
+    }
+
+    @Override
+    public Optional<Tweet> findById(long tweetId) {
+        return delegate.findById(tweetId);
+    }
+
+    @Override
+    public List<Tweet> findByUser(User user) {
+        return delegate.findByUser(user);
+    }
+
+    @Override
+    public List<Tweet> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * How often a save found the queue full and had to wait.
+     */
+    public long getBackpressureWaits() {
+        return backpressureWaits.sum();
+    }
+}
@@ -0,0 +1,36 @@
+package ua.rd.services;
+
+import ua.rd.domain.Tweet;
+import ua.rd.ioc.Cacheable;
+import ua.rd.repository.TweetPage;
+import ua.rd.repository.TweetRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link SimpleTweetService} whose pages and timelines are cached by the
+ * context for a second, so a burst of requests for the same page reaches the
+ * repository once. Tweets saved meanwhile show up when the entry expires.
+ */
+public class CachedTweetService extends SimpleTweetService {
+
+    public CachedTweetService(TweetRepository tweetRepository) {
+        super(tweetRepository);
+    }
+
+    @Override
+    @Cacheable(maximumSize = 4096, expireAfterWriteMillis = 1000)
+    public TweetPage tweetsPage(long afterTweetId, int limit) {
+        return super.tweetsPage(afterTweetId, limit);
+    }
+
+    /**
+     * Unmodifiable, as every caller gets the same list.
+     */
+    @Override
+    @Cacheable(maximumSize = 4096, expireAfterWriteMillis = 1000)
+    public List<Tweet> timeline(long afterTweetId, int count) {
+        return Collections.unmodifiableList(super.timeline(afterTweetId, count));
+    }
+}
@@ -1,9 +1,14 @@
 package ua.rd.services;
 
 import ua.rd.domain.Tweet;
+import ua.rd.ioc.Component;
 import ua.rd.ioc.Context;
+import ua.rd.repository.TweetPage;
 import ua.rd.repository.TweetRepository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 /*
 class PrototypeTweetProxy implements TweetService {
 
@@ -31,6 +36,7 @@ class PrototypeTweetProxy implements TweetService {
 }
 */
 
+@Component("tweetService")
 public class SimpleTweetService implements TweetService {
     private final TweetRepository tweetRepository;
 
@@ -45,6 +51,26 @@ public class SimpleTweetService implements TweetService {
         return tweetRepository.allTweets();
     }
 
+    @Override
+    public Stream<Tweet> streamTweets() {
+        return tweetRepository.stream();
+    }
+
+    @Override
+    public TweetPage tweetsPage(long afterTweetId, int limit) {
+        return tweetRepository.findPage(afterTweetId, limit);
+    }
+
+    @Override
+    public List<Tweet> timeline(long afterTweetId, int count) {
+        return tweetRepository.findLatest(afterTweetId, count);
+    }
+
+    @Override
+    public List<Tweet> search(String query, int limit) {
+        return tweetRepository.search(query, limit);
+    }
+
     @Override
     public TweetRepository getRepository() {
         return tweetRepository;
@@ -1,10 +1,28 @@
 package ua.rd.services;
 
 import ua.rd.domain.Tweet;
+import ua.rd.repository.TweetPage;
 import ua.rd.repository.TweetRepository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface TweetService {
     Iterable<Tweet> allTweets();
+    Stream<Tweet> streamTweets();
+    TweetPage tweetsPage(long afterTweetId, int limit);
+
+    /**
+     * The {@code count} newest tweets posted after {@code afterTweetId},
+     * newest first.
+     */
+    List<Tweet> timeline(long afterTweetId, int count);
+
+    /**
+     * The {@code limit} newest tweets matching the keyword {@code query},
+     * newest first; see {@link ua.rd.repository.TweetQuery}.
+     */
+    List<Tweet> search(String query, int limit);
     TweetRepository getRepository();
 
 }
@@ -2,7 +2,16 @@ package ua.rd.ioc;
 
 import org.junit.Test;
 
+import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -304,6 +313,1016 @@ public class ApplicationContextTest {
 
     }
 
+    @Test
+    public void getBeanByAliasReturnsSameSingleton() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("testBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                                put("aliases", new String[]{"firstAlias", "secondAlias"});
+                            }}
+                    );
+                }};
+
+        Config config = new JavaMapConfig(beanDescriptions);
+        Context context = new ApplicationContext(config);
+
+        Object bean = context.getBean("testBean");
+
+        assertSame(bean, context.getBean("firstAlias"));
+        assertSame(bean, context.getBean("secondAlias"));
+        assertArrayEquals(new String[]{"testBean"}, context.getBeanDefinitionNames());
+    }
+
+    @Test(expected = BeanDefinitionException.class)
+    public void aliasClashingWithBeanNameIsRejected() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("firstBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                            }}
+                    );
+                    put("secondBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                                put("aliases", "firstBean");
+                            }}
+                    );
+                }};
+
+        new ApplicationContext(new JavaMapConfig(beanDescriptions));
+    }
+
+    @Test
+    public void getBeanPrefersNoArgConstructorWhenSeveralExist() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("testBeanWithSeveralConstructors", new HashMap<String, Object>(){{
+                                put("type", TestBeanWithSeveralConstructors.class);
+                                put("isPrototype", true);
+                            }}
+                    );
+                }};
+
+        Config config = new JavaMapConfig(beanDescriptions);
+        Context context = new ApplicationContext(config);
+
+        TestBeanWithSeveralConstructors bean1 =
+                (TestBeanWithSeveralConstructors) context.getBean("testBeanWithSeveralConstructors");
+        TestBeanWithSeveralConstructors bean2 =
+                (TestBeanWithSeveralConstructors) context.getBean("testBeanWithSeveralConstructors");
+
+        assertEquals("default", bean1.value);
+        assertEquals(1, bean1.initCalls);
+        assertEquals(1, bean2.initCalls);
+        assertNotSame(bean1, bean2);
+    }
+
+    @Test
+    public void singletonIsCreatedOnceUnderConcurrentAccess() throws Exception {
+        SingletonRegistry registry = new SingletonRegistry();
+        AtomicInteger created = new AtomicInteger();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Future<Object>> beans = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            beans.add(executor.submit(() -> {
+                start.await();
+                return registry.getOrCreate("slowBean", () -> {
+                    created.incrementAndGet();
+                    sleep(50);
+                    return new TestBean();
+                });
+            }));
+        }
+        start.countDown();
+
+        Object first = beans.get(0).get();
+        for (Future<Object> bean : beans) {
+            assertSame(first, bean.get());
+        }
+        executor.shutdown();
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void circularDependencyEnteredFromBothEndsIsReportedNotDeadlocked() throws Exception {
+        SingletonRegistry registry = new SingletonRegistry();
+        CountDownLatch bothCreating = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Object> a = executor.submit(() -> registry.getOrCreate("a", () -> {
+            bothCreating.countDown();
+            awaitQuietly(bothCreating);
+            return registry.getOrCreate("b", () -> registry.getOrCreate("a", TestBean::new));
+        }));
+        Future<Object> b = executor.submit(() -> registry.getOrCreate("b", () -> {
+            bothCreating.countDown();
+            awaitQuietly(bothCreating);
+            return registry.getOrCreate("a", () -> registry.getOrCreate("b", TestBean::new));
+        }));
+
+        for (Future<Object> bean : Arrays.asList(a, b)) {
+            try {
+                bean.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof BeanCreationException);
+            }
+        }
+        executor.shutdown();
+        assertEquals(0, registry.size());
+    }
+
+    @Test(expected = BeanCreationException.class)
+    public void circularDependencyIsReported() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("circularTestBean", new HashMap<String, Object>(){{
+                                put("type", CircularTestBean.class);
+                            }}
+                    );
+                }};
+
+        new ApplicationContext(new JavaMapConfig(beanDescriptions));
+    }
+
+    @Test
+    public void parallelStartupReportsCriticalPath() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("dependsOnSlowTestBean", new HashMap<String, Object>(){{
+                                put("type", DependsOnSlowTestBean.class);
+                            }}
+                    );
+                    put("slowTestBean", new HashMap<String, Object>(){{
+                                put("type", SlowTestBean.class);
+                            }}
+                    );
+                    put("testBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                            }}
+                    );
+                }};
+
+        Config config = new JavaMapConfig(beanDescriptions);
+        ApplicationContext context = new ApplicationContext(config,
+                ContextOptions.builder().parallelStartup(true).parallelism(4).build());
+
+        DependsOnSlowTestBean bean = (DependsOnSlowTestBean) context.getBean("dependsOnSlowTestBean");
+        assertSame(context.getBean("slowTestBean"), bean.slowTestBean);
+
+        StartupReport report = context.getStartupReport();
+        assertTrue(report.isParallel());
+        assertEquals(Arrays.asList("slowTestBean", "dependsOnSlowTestBean"), report.getCriticalPath());
+        assertTrue(report.getCriticalPathNanos() >= TimeUnit.MILLISECONDS.toNanos(SlowTestBean.INIT_MILLIS));
+        assertEquals(Collections.singletonList("slowTestBean"), report.getSlowestBeans(1));
+        assertTrue(report.format().contains("slowTestBean -> dependsOnSlowTestBean"));
+    }
+
+    @Test
+    public void lazyBeanIsCreatedOnFirstGetBean() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("eagerBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                            }}
+                    );
+                    put("lazyBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                                put("lazy", true);
+                            }}
+                    );
+                }};
+
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        assertArrayEquals(new String[]{"lazyBean"}, context.getUntouchedBeanNames());
+
+        Object bean = context.getBean("lazyBean");
+
+        assertSame(bean, context.getBean("lazyBean"));
+        assertArrayEquals(new String[]{}, context.getUntouchedBeanNames());
+    }
+
+    @Test
+    public void defaultLazyContextCreatesOnlyRequestedGraph() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("dependsOnSlowTestBean", new HashMap<String, Object>(){{
+                                put("type", DependsOnSlowTestBean.class);
+                            }}
+                    );
+                    put("slowTestBean", new HashMap<String, Object>(){{
+                                put("type", SlowTestBean.class);
+                            }}
+                    );
+                    put("testBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                            }}
+                    );
+                }};
+
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                ContextOptions.builder().defaultLazy(true).build());
+        assertEquals(3, context.getUntouchedBeanNames().length);
+
+        context.getBean("dependsOnSlowTestBean");
+
+        assertArrayEquals(new String[]{"testBean"}, context.getUntouchedBeanNames());
+    }
+
+    @Test
+    public void benchmarkResultsRecordAnnotatedMethodsOnly() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("testBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        TestBeanInterface bean = (TestBeanInterface) context.getBean("testBean");
+
+        bean.methodToBenchmark("abc");
+        bean.methodToBenchmark("def");
+        bean.postConstruct();
+
+        Map<String, LatencySnapshot> results = context.getBenchmarkResults();
+        assertEquals(Collections.singleton("testBean.methodToBenchmark(String)"), results.keySet());
+        assertEquals(2, results.get("testBean.methodToBenchmark(String)").getCount());
+    }
+
+    @Test
+    public void generatedProxyImplementsInterfacesAndRecordsBenchmarks() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("testBean", new HashMap<String, Object>(){{
+                                put("type", TestBean.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                ContextOptions.builder().proxyEngine(ProxyEngine.GENERATED).build());
+        TestBeanInterface bean = (TestBeanInterface) context.getBean("testBean");
+
+        assertFalse(Proxy.isProxyClass(bean.getClass()));
+        assertEquals("yyr", bean.methodToBenchmark("ryy"));
+        assertEquals(1, context.getBenchmarkResults().get("testBean.methodToBenchmark(String)").getCount());
+    }
+
+    @Test
+    public void generatedEngineFallsBackToJdkProxyForPackagePrivateInterfaces() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("secretGreeter", new HashMap<String, Object>(){{
+                                put("type", SecretGreeter.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                ContextOptions.builder().proxyEngine(ProxyEngine.GENERATED).build());
+        PackagePrivateGreeter bean = (PackagePrivateGreeter) context.getBean("secretGreeter");
+
+        assertTrue(Proxy.isProxyClass(bean.getClass()));
+        assertEquals("psst", bean.greet());
+        assertEquals(1, context.getBenchmarkResults().get("secretGreeter.greet()").getCount());
+    }
+
+    @Test
+    public void generatedProxySubclassesBeansWithoutInterfaces() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("plainBean", new HashMap<String, Object>(){{
+                                put("type", PlainBenchmarkedBean.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                ContextOptions.builder().proxyEngine(ProxyEngine.GENERATED).build());
+        PlainBenchmarkedBean bean = (PlainBenchmarkedBean) context.getBean("plainBean");
+
+        assertNotSame(PlainBenchmarkedBean.class, bean.getClass());
+        assertEquals(5L, bean.add(2, 3L));
+        try {
+            bean.fail();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("fail", e.getMessage());
+        }
+        assertEquals(1, context.getBenchmarkResults().get("plainBean.add(int,long)").getCount());
+        assertEquals(1, context.getBenchmarkResults().get("plainBean.fail()").getCount());
+    }
+
+    @Test
+    public void generatedSubclassProxyDoesNotRunTheBeanConstructorAgain() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                            }}
+                    );
+                    put("constructedBean", new HashMap<String, Object>(){{
+                                put("type", ConstructedBenchmarkedBean.class);
+                            }}
+                    );
+                }};
+        ConstructedBenchmarkedBean.constructions.set(0);
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                ContextOptions.builder().proxyEngine(ProxyEngine.GENERATED).build());
+        ConstructedBenchmarkedBean bean = (ConstructedBenchmarkedBean) context.getBean("constructedBean");
+
+        assertNotSame(ConstructedBenchmarkedBean.class, bean.getClass());
+        assertEquals(1, ConstructedBenchmarkedBean.constructions.get());
+        assertEquals("Hello", bean.greeting());
+        assertEquals(1, context.getBenchmarkResults().get("constructedBean.greeting()").getCount());
+    }
+
+    @Test
+    public void beanWithAFinalMethodIsLeftUnproxiedByBothEngines() throws Exception {
+        for (ProxyEngine engine : ProxyEngine.values()) {
+            Map<String, Map<String, Object>> beanDescriptions =
+                    new HashMap<String, Map<String, Object>>(){{
+                        put("finalMethodBean", new HashMap<String, Object>(){{
+                                    put("type", FinalMethodBenchmarkedBean.class);
+                                }}
+                        );
+                    }};
+
+            Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                    ContextOptions.builder().proxyEngine(engine).build());
+            FinalMethodBenchmarkedBean bean = (FinalMethodBenchmarkedBean) context.getBean("finalMethodBean");
+
+            assertSame(FinalMethodBenchmarkedBean.class, bean.getClass());
+            assertEquals("final", bean.describe());
+        }
+    }
+
+    @Test
+    public void cacheableMethodsAreCachedBehindTheBenchmarkProxy() throws Exception {
+        for (ProxyEngine engine : ProxyEngine.values()) {
+            Map<String, Map<String, Object>> beanDescriptions =
+                    new HashMap<String, Map<String, Object>>(){{
+                        put("calculator", new HashMap<String, Object>(){{
+                                    put("type", CachedCalculator.class);
+                                }}
+                        );
+                    }};
+
+            Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                    ContextOptions.builder().proxyEngine(engine).build());
+            Calculator calculator = context.getBean(Calculator.class);
+
+            assertEquals(9, calculator.square(3));
+            assertEquals(9, calculator.square(3));
+            assertEquals(16, calculator.square(4));
+            assertEquals(2, calculator.calls());
+            CacheStats stats = context.getCacheStats().get("calculator.square(int)");
+            assertEquals(1, stats.getHitCount());
+            assertEquals(2, stats.getMissCount());
+            assertEquals(3, context.getBenchmarkResults().get("calculator.square(int)").getCount());
+        }
+    }
+
+    @Test(expected = BeanCreationException.class)
+    public void cacheableBeanNeedsAnInterface() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("calculator", new HashMap<String, Object>(){{
+                                put("type", PlainCachedBean.class);
+                            }}
+                    );
+                }};
+
+        new ApplicationContext(new JavaMapConfig(beanDescriptions));
+    }
+
+    @Test
+    public void closeDestroysSingletonsInReverseCreationOrder() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("destroyedClient", new HashMap<String, Object>(){{
+                                put("type", DestroyedClient.class);
+                            }}
+                    );
+                    put("destroyedDependency", new HashMap<String, Object>(){{
+                                put("type", DestroyedDependency.class);
+                            }}
+                    );
+                    put("prototype", new HashMap<String, Object>(){{
+                                put("type", DestroyedDependency.class);
+                                put("isPrototype", true);
+                            }}
+                    );
+                }};
+        destroyed.clear();
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        context.getBean("prototype");
+
+        context.close();
+        context.close();
+
+        assertEquals(Arrays.asList("client", "dependency"), destroyed);
+    }
+
+    @Test
+    public void failingPreDestroyMethodDoesNotStopTheOthers() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("destroyedDependency", new HashMap<String, Object>(){{
+                                put("type", DestroyedDependency.class);
+                            }}
+                    );
+                    put("failing", new HashMap<String, Object>(){{
+                                put("type", FailingDestroyBean.class);
+                            }}
+                    );
+                }};
+        destroyed.clear();
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+
+        try {
+            context.close();
+            fail();
+        } catch (BeanDestructionException e) {
+            assertEquals("Can not destroy bean 'failing'", e.getMessage());
+            assertTrue(e.getCause() instanceof java.io.IOException);
+        }
+        assertEquals(Collections.singletonList("dependency"), destroyed);
+    }
+
+    @Test
+    public void threadScopedBeanIsSharedWithinOneThreadOnly() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("greeter", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                                put("scope", "thread");
+                            }}
+                    );
+                }};
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+
+        Object greeter = context.getBean("greeter");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Object otherThreadGreeter = executor.submit(() -> context.getBean(Greeter.class)).get();
+        executor.shutdown();
+
+        assertSame(greeter, context.getBean(Greeter.class));
+        assertNotSame(greeter, otherThreadGreeter);
+    }
+
+    @Test
+    public void requestScopedBeansLiveAndDieWithTheirRequest() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("destroyedClient", new HashMap<String, Object>(){{
+                                put("type", DestroyedClient.class);
+                                put("scope", "request");
+                            }}
+                    );
+                    put("destroyedDependency", new HashMap<String, Object>(){{
+                                put("type", DestroyedDependency.class);
+                                put("scope", "request");
+                            }}
+                    );
+                }};
+        destroyed.clear();
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        List<Object> clients = new ArrayList<>();
+
+        RequestScope.run(() -> {
+            clients.add(context.getBean("destroyedClient"));
+            clients.add(context.getBean(DestroyedClient.class));
+            assertTrue(destroyed.isEmpty());
+        });
+        Object secondClient = RequestScope.call(() -> context.getBean("destroyedClient"));
+
+        assertSame(clients.get(0), clients.get(1));
+        assertNotSame(clients.get(0), secondClient);
+        assertEquals(Arrays.asList("client", "dependency", "client", "dependency"), destroyed);
+        assertFalse(RequestScope.isActive());
+        try {
+            context.getBean("destroyedClient");
+            fail();
+        } catch (BeanCreationException e) {
+            assertTrue(e.getMessage().contains("no active request"));
+        }
+    }
+
+    @Test
+    public void singletonCanNotDependOnScopedBean() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                                put("scope", "request");
+                            }}
+                    );
+                    put("client", new HashMap<String, Object>(){{
+                                put("type", GreeterClient.class);
+                            }}
+                    );
+                }};
+
+        try {
+            new ApplicationContext(new JavaMapConfig(beanDescriptions));
+            fail();
+        } catch (BeanCreationException e) {
+            assertEquals("Singleton 'client' can not depend on request scoped bean 'english'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void customScopesAreRegisteredThroughOptions() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("greeter", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                                put("scope", "tenant");
+                            }}
+                    );
+                }};
+        Map<String, Object> tenantBeans = new HashMap<>();
+        ContextOptions options = ContextOptions.builder()
+                .scope("tenant", (name, factory) -> tenantBeans.computeIfAbsent(name, n -> factory.get()))
+                .build();
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions), options);
+
+        assertSame(context.getBean("greeter"), tenantBeans.get("greeter"));
+        try {
+            new ApplicationContext(new JavaMapConfig(beanDescriptions));
+            fail();
+        } catch (BeanDefinitionException e) {
+            assertEquals("Unknown scope 'tenant' of bean 'greeter'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void pooledBeanIsResetAndReusedAfterRelease() throws Exception {
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(pooledBuffer()));
+
+        PooledBuffer buffer = (PooledBuffer) context.getBean("buffer");
+        buffer.text.append("dirty");
+        context.release("buffer", buffer);
+        PooledBuffer reused = (PooledBuffer) context.getBean("buffer");
+        PooledBuffer fresh = (PooledBuffer) context.getBean("buffer");
+
+        assertSame(buffer, reused);
+        assertNotSame(buffer, fresh);
+        assertEquals(0, reused.text.length());
+        assertTrue(fresh.initialized);
+        PoolStats stats = context.getPoolStats().get("buffer");
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(0, stats.getIdleCount());
+    }
+
+    @Test
+    public void poolKeepsAtMostItsCapacityIdle() throws Exception {
+        ContextOptions options = ContextOptions.builder().scope("pooled", new PooledScope(2)).build();
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(pooledBuffer()), options);
+        List<Object> buffers = Arrays.asList(context.getBean("buffer"), context.getBean("buffer"),
+                context.getBean("buffer"));
+
+        buffers.forEach(buffer -> context.release("buffer", buffer));
+
+        PoolStats stats = context.getPoolStats().get("buffer");
+        assertEquals(2, stats.getCapacity());
+        assertEquals(2, stats.getIdleCount());
+        assertEquals(3, stats.getReleaseCount());
+        assertEquals(1, stats.getDiscardCount());
+        assertEquals(0.0, stats.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void borrowingAndReleasingAllocateNothing() throws Exception {
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        org.junit.Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(pooledBuffer()));
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 20_000; i++) {
+            context.release("buffer", context.getBean("buffer"));
+        }
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            context.release("buffer", context.getBean("buffer"));
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < 100_000);
+    }
+
+    @Test
+    public void objectOfAnotherTypeCanNotBeReleasedIntoThePool() throws Exception {
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(pooledBuffer()));
+
+        try {
+            context.release("buffer", new Object());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertTrue(context.getBean("buffer") instanceof PooledBuffer);
+        assertEquals(0, context.getPoolStats().get("buffer").getReleaseCount());
+    }
+
+    @Test
+    public void proxiedPooledBeanCanBeReleased() throws Exception {
+        for (ProxyEngine engine : ProxyEngine.values()) {
+            Map<String, Map<String, Object>> beanDescriptions =
+                    new HashMap<String, Map<String, Object>>(){{
+                        put("calculator", new HashMap<String, Object>(){{
+                                    put("type", CachedCalculator.class);
+                                    put("scope", "pooled");
+                                }}
+                        );
+                    }};
+            ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions),
+                    ContextOptions.builder().proxyEngine(engine).build());
+            Object calculator = context.getBean("calculator");
+
+            context.release("calculator", calculator);
+
+            assertSame(calculator, context.getBean("calculator"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void singletonCanNotBeReleased() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("greeter", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                            }}
+                    );
+                }};
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+
+        context.release("greeter", context.getBean("greeter"));
+    }
+
+    @Test
+    public void threadScopedBeanCanNotBeReleased() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("buffer", new HashMap<String, Object>(){{
+                                put("type", PooledBuffer.class);
+                                put("scope", "thread");
+                            }}
+                    );
+                }};
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        PooledBuffer buffer = (PooledBuffer) context.getBean("buffer");
+        buffer.text.append("live");
+
+        try {
+            context.release("buffer", buffer);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertSame(buffer, context.getBean("buffer"));
+        assertEquals("live", buffer.text.toString());
+    }
+
+    private static Map<String, Map<String, Object>> pooledBuffer() {
+        return new HashMap<String, Map<String, Object>>(){{
+            put("buffer", new HashMap<String, Object>(){{
+                        put("type", PooledBuffer.class);
+                        put("scope", "pooled");
+                    }}
+            );
+        }};
+    }
+
+    @Test
+    public void dependenciesAreAutowiredByTypeWhateverTheirName() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                            }}
+                    );
+                    put("client", new HashMap<String, Object>(){{
+                                put("type", GreeterClient.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        GreeterClient client = context.getBean(GreeterClient.class);
+
+        assertSame(context.getBean("english"), client.greeter);
+        assertSame(client.greeter, context.getBean(Greeter.class));
+    }
+
+    @Test
+    public void primaryAndQualifierDisambiguateSeveralCandidates() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                                put("primary", true);
+                            }}
+                    );
+                    put("ukrainian", new HashMap<String, Object>(){{
+                                put("type", UkrainianGreeter.class);
+                            }}
+                    );
+                    put("client", new HashMap<String, Object>(){{
+                                put("type", GreeterClient.class);
+                            }}
+                    );
+                    put("qualifiedClient", new HashMap<String, Object>(){{
+                                put("type", QualifiedGreeterClient.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+
+        assertEquals("Hello", context.getBean(Greeter.class).greet());
+        assertEquals("Hello", context.getBean(GreeterClient.class).greeter.greet());
+        assertEquals("Pryvit", context.getBean(QualifiedGreeterClient.class).greeter.greet());
+        assertEquals(new HashSet<>(Arrays.asList("english", "ukrainian")),
+                context.getBeansOfType(Greeter.class).keySet());
+    }
+
+    @Test(expected = NoUniqueBeanException.class)
+    public void getBeanByTypeWithSeveralCandidatesAndNoPrimaryFails() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                            }}
+                    );
+                    put("ukrainian", new HashMap<String, Object>(){{
+                                put("type", UkrainianGreeter.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+
+        context.getBean(Greeter.class);
+    }
+
+    @Test
+    public void childContextSharesTheSingletonsOfItsParent() throws Exception {
+        Map<String, Map<String, Object>> parentDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                                put("lazy", true);
+                            }}
+                    );
+                }};
+        Map<String, Map<String, Object>> childDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("client", new HashMap<String, Object>(){{
+                                put("type", GreeterClient.class);
+                            }}
+                    );
+                }};
+
+        ApplicationContext parent = new ApplicationContext(new JavaMapConfig(parentDescriptions));
+        ApplicationContext first = new ApplicationContext(new JavaMapConfig(childDescriptions), parent);
+        ApplicationContext second = new ApplicationContext(new JavaMapConfig(childDescriptions), parent);
+
+        assertTrue(parent.isFrozen());
+        assertSame(parent, first.getParent());
+        assertSame(parent.getBean("english"), first.getBean(GreeterClient.class).greeter);
+        assertSame(parent.getBean("english"), second.getBean(GreeterClient.class).greeter);
+        assertNotSame(first.getBean("client"), second.getBean("client"));
+        assertSame(parent.getBean("english"), first.getBean(Greeter.class));
+        assertArrayEquals(new String[]{"client"}, first.getBeanDefinitionNames());
+    }
+
+    @Test
+    public void childContextBeansShadowTheParentOnes() throws Exception {
+        Map<String, Map<String, Object>> parentDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("english", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                            }}
+                    );
+                    put("greeter", new HashMap<String, Object>(){{
+                                put("type", EnglishGreeter.class);
+                            }}
+                    );
+                }};
+        Map<String, Map<String, Object>> childDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("greeter", new HashMap<String, Object>(){{
+                                put("type", UkrainianGreeter.class);
+                            }}
+                    );
+                    put("client", new HashMap<String, Object>(){{
+                                put("type", GreeterClient.class);
+                            }}
+                    );
+                }};
+
+        ApplicationContext parent = new ApplicationContext(new JavaMapConfig(parentDescriptions));
+        Context child = new ApplicationContext(new JavaMapConfig(childDescriptions), parent);
+
+        assertEquals("Pryvit", child.getBean(Greeter.class).greet());
+        assertEquals("Pryvit", child.getBean(GreeterClient.class).greeter.greet());
+        Map<String, Greeter> greeters = child.getBeansOfType(Greeter.class);
+        assertEquals(new HashSet<>(Arrays.asList("english", "greeter")), greeters.keySet());
+        assertEquals("Pryvit", greeters.get("greeter").greet());
+        assertEquals("Hello", ((Greeter) parent.getBean("greeter")).greet());
+    }
+
+    @Test
+    public void closingChildContextLeavesTheParentBeansAlone() throws Exception {
+        Map<String, Map<String, Object>> parentDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("destroyedDependency", new HashMap<String, Object>(){{
+                                put("type", DestroyedDependency.class);
+                            }}
+                    );
+                }};
+        Map<String, Map<String, Object>> childDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("destroyedClient", new HashMap<String, Object>(){{
+                                put("type", DestroyedClient.class);
+                            }}
+                    );
+                }};
+        destroyed.clear();
+        ApplicationContext parent = new ApplicationContext(new JavaMapConfig(parentDescriptions));
+        Context child = new ApplicationContext(new JavaMapConfig(childDescriptions), parent);
+
+        child.close();
+        assertEquals(Collections.singletonList("client"), destroyed);
+
+        parent.close();
+        assertEquals(Arrays.asList("client", "dependency"), destroyed);
+    }
+
+    @Test
+    public void contextImplementingOnlyTheOriginalMethodsGetsDefaults() throws Exception {
+        Context context = new Context() {
+            @Override
+            public Object getBean(String beanName) {
+                throw new NoSuchBeanException();
+            }
+
+            @Override
+            public String[] getBeanDefinitionNames() {
+                return new String[0];
+            }
+        };
+
+        try {
+            context.getBean(Greeter.class);
+            fail();
+        } catch (NoSuchBeanException expected) {
+        }
+        assertTrue(context.getBeansOfType(Greeter.class).isEmpty());
+        assertTrue(context.getBenchmarkResults().isEmpty());
+        assertTrue(context.getCacheStats().isEmpty());
+        context.close();
+    }
+
+    @Test
+    public void definitionImplementingOnlyTheOriginalMethodsIsAnEagerSingleton() throws Exception {
+        BeanDefinition definition = new BeanDefinition() {
+            @Override
+            public String getBeanName() {
+                return "english";
+            }
+
+            @Override
+            public Class<?> getBeanType() {
+                return EnglishGreeter.class;
+            }
+
+            @Override
+            public boolean isPrototype() {
+                return false;
+            }
+        };
+        ApplicationContext context = new ApplicationContext(() -> new BeanDefinition[]{definition});
+
+        assertEquals(0, context.getUntouchedBeanNames().length);
+        assertSame(context.getBean("english"), context.getBean(Greeter.class));
+    }
+
+    @Test
+    public void dependentsOfAnAsynchronouslyInitializedBeanWaitOnlyForIt() throws Exception {
+        warmUp = new CompletableFuture<>();
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(warmingBeans()));
+
+        WarmingRepository repository = (WarmingRepository) context.getBean("repository");
+        WarmingRepositoryClient client = (WarmingRepositoryClient) context.getBean("client");
+        CompletableFuture<Void> readiness = context.readiness();
+        assertTrue(repository.initialized);
+        assertFalse(repository.warm);
+        assertFalse(client.initialized);
+        assertTrue(((PooledBuffer) context.getBean("buffer")).initialized);
+        assertFalse(readiness.isDone());
+
+        warmUp.complete(null);
+        readiness.get(5, TimeUnit.SECONDS);
+        assertTrue(client.initialized);
+        assertTrue(client.sawWarmRepository);
+        assertTrue(context.readiness().isDone());
+    }
+
+    @Test
+    public void failedAsynchronousInitializationFailsReadiness() throws Exception {
+        warmUp = new CompletableFuture<>();
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(warmingBeans()));
+
+        warmUp.completeExceptionally(new IllegalStateException("index is missing"));
+        try {
+            context.readiness().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BeanCreationException);
+        }
+        assertFalse(((WarmingRepositoryClient) context.getBean("client")).initialized);
+        assertTrue(context.readiness().isCompletedExceptionally());
+    }
+
+    @Test
+    public void failedPrototypeInitializationsAreNotKept() throws Exception {
+        warmUp = new CompletableFuture<>();
+        warmUp.completeExceptionally(new IllegalStateException("index is missing"));
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("repository", new HashMap<String, Object>(){{
+                                put("type", WarmingRepository.class);
+                                put("isPrototype", true);
+                            }}
+                    );
+                }};
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+
+        java.lang.ref.WeakReference<Object> first = new java.lang.ref.WeakReference<>(context.getBean("repository"));
+        for (int i = 0; i < 1000; i++) {
+            context.getBean("repository");
+        }
+        for (int i = 0; i < 10 && first.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(first.get());
+        try {
+            context.readiness().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BeanCreationException);
+        }
+    }
+
+    @Test
+    public void closeWaitsForDeferredInitializationBeforeDestroying() throws Exception {
+        warmUp = new CompletableFuture<>();
+        Map<String, Map<String, Object>> beanDescriptions = warmingBeans();
+        beanDescriptions.put("destroyedClient", new HashMap<String, Object>(){{
+                    put("type", DestroyedWarmingClient.class);
+                }}
+        );
+        ApplicationContext context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        DestroyedWarmingClient client = (DestroyedWarmingClient) context.getBean("destroyedClient");
+
+        CompletableFuture<Void> closed = CompletableFuture.runAsync(context::close);
+        Thread.sleep(50);
+        assertFalse(closed.isDone());
+
+        warmUp.complete(null);
+        closed.get(5, TimeUnit.SECONDS);
+        assertTrue(client.destroyedInitialized);
+    }
+
+    private static Map<String, Map<String, Object>> warmingBeans() {
+        return new HashMap<String, Map<String, Object>>(){{
+            put("repository", new HashMap<String, Object>(){{
+                        put("type", WarmingRepository.class);
+                    }}
+            );
+            put("client", new HashMap<String, Object>(){{
+                        put("type", WarmingRepositoryClient.class);
+                    }}
+            );
+            put("buffer", new HashMap<String, Object>(){{
+                        put("type", PooledBuffer.class);
+                    }}
+            );
+        }};
+    }
+
     public interface TestBeanInterface{
         String methodToBenchmark(String str);
         void postConstruct();
@@ -368,8 +1387,262 @@ public class ApplicationContextTest {
         }
     }
 
+    public static class TestBeanWithSeveralConstructors {
+        private final String value;
+        private int initCalls;
+
+        public TestBeanWithSeveralConstructors(String value, TestBeanInterface testBean) {
+            this.value = value;
+        }
+
+        public TestBeanWithSeveralConstructors() {
+            this.value = "default";
+        }
+
+        public void init() {
+            initCalls++;
+        }
+    }
+
+    public static class CircularTestBean {
+        public CircularTestBean(CircularTestBean circularTestBean) {
+        }
+    }
+
+    public static class SlowTestBean {
+        public static final long INIT_MILLIS = 50;
+
+        public void init() {
+            sleep(INIT_MILLIS);
+        }
+    }
+
+    public static class DependsOnSlowTestBean {
+        private final SlowTestBean slowTestBean;
+
+        public DependsOnSlowTestBean(SlowTestBean slowTestBean) {
+            this.slowTestBean = slowTestBean;
+        }
+    }
+
+    public static class PlainBenchmarkedBean {
+        @Benchmark
+        public long add(int a, long b) {
+            return a + b;
+        }
+
+        @Benchmark
+        public void fail() {
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    public static class DestroyedWarmingClient {
+        private volatile boolean initialized;
+        private volatile boolean destroyedInitialized;
+
+        public DestroyedWarmingClient(WarmingRepository repository) {
+        }
+
+        public void init() {
+            initialized = true;
+        }
+
+        @MyPreDestroy
+        public void destroy() {
+            destroyedInitialized = initialized;
+        }
+    }
+
+    public static class ConstructedBenchmarkedBean {
+        static final AtomicInteger constructions = new AtomicInteger();
+        private final String greeting;
+
+        public ConstructedBenchmarkedBean(EnglishGreeter greeter) {
+            constructions.incrementAndGet();
+            greeting = greeter.greet();
+        }
+
+        @Benchmark
+        public String greeting() {
+            return greeting;
+        }
+    }
+
+    public static class FinalMethodBenchmarkedBean {
+        private final String name = "final";
+
+        @Benchmark
+        public String name() {
+            return name;
+        }
+
+        public final String describe() {
+            return name;
+        }
+    }
+
+    static final List<String> destroyed = Collections.synchronizedList(new ArrayList<>());
+
+    static volatile CompletableFuture<Void> warmUp;
+
+    public static class WarmingRepository {
+        private volatile boolean warm;
+        private boolean initialized;
+
+        @MyPostConstruct
+        public CompletableFuture<Void> warmUp() {
+            return warmUp.thenRun(() -> warm = true);
+        }
+
+        public void init() {
+            initialized = true;
+        }
+    }
+
+    public static class WarmingRepositoryClient {
+        private final WarmingRepository repository;
+        private volatile boolean initialized;
+        private boolean sawWarmRepository;
+
+        public WarmingRepositoryClient(WarmingRepository repository) {
+            this.repository = repository;
+        }
+
+        public void init() {
+            sawWarmRepository = repository.warm;
+            initialized = true;
+        }
+    }
+
+    public static class PooledBuffer {
+        private final StringBuilder text = new StringBuilder();
+        private boolean initialized;
+
+        public void init() {
+            initialized = true;
+        }
+
+        @MyReset
+        public void reset() {
+            text.setLength(0);
+        }
+    }
+
+    public static class DestroyedDependency {
+        @MyPreDestroy
+        public void destroy() {
+            destroyed.add("dependency");
+        }
+    }
+
+    public static class DestroyedClient {
+        public DestroyedClient(DestroyedDependency dependency) {
+        }
+
+        @MyPreDestroy
+        public void destroy() {
+            destroyed.add("client");
+        }
+    }
+
+    public static class FailingDestroyBean {
+        @MyPreDestroy
+        public void destroy() throws java.io.IOException {
+            throw new java.io.IOException("disk");
+        }
+    }
+
+    public interface Calculator {
+        long square(int x);
+
+        int calls();
+    }
+
+    public static class CachedCalculator implements Calculator {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        @Benchmark
+        @Cacheable(maximumSize = 16)
+        public long square(int x) {
+            calls.incrementAndGet();
+            return (long) x * x;
+        }
+
+        @Override
+        public int calls() {
+            return calls.get();
+        }
+    }
+
+    public static class PlainCachedBean {
+        @Cacheable
+        public String value() {
+            return "value";
+        }
+    }
+
+    public interface Greeter {
+        String greet();
+    }
+
+    interface PackagePrivateGreeter {
+        String greet();
+    }
+
+    public static class SecretGreeter implements PackagePrivateGreeter {
+        @Benchmark
+        @Override
+        public String greet() {
+            return "psst";
+        }
+    }
+
+    public static class EnglishGreeter implements Greeter {
+        @Override
+        public String greet() {
+            return "Hello";
+        }
+    }
+
+    public static class UkrainianGreeter implements Greeter {
+        @Override
+        public String greet() {
+            return "Pryvit";
+        }
+    }
+
+    public static class GreeterClient {
+        private final Greeter greeter;
+
+        public GreeterClient(Greeter greeter) {
+            this.greeter = greeter;
+        }
+    }
+
+    public static class QualifiedGreeterClient {
+        private final Greeter greeter;
 
+        public QualifiedGreeterClient(@Qualifier("ukrainian") Greeter greeter) {
+            this.greeter = greeter;
+        }
+    }
 
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-}
\ No newline at end of file
+}
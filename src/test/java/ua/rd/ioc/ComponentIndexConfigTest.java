@@ -0,0 +1,99 @@
+package ua.rd.ioc;
+
+import org.junit.Test;
+import ua.rd.domain.Tweet;
+import ua.rd.ioc.ApplicationContextTest.Greeter;
+import ua.rd.services.TweetService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+public class ComponentIndexConfigTest {
+
+    @Test
+    public void componentsAreFoundThroughTheIndex() throws Exception {
+        Context context = new ApplicationContext(new ComponentIndexConfig("ua.rd.ioc"));
+
+        assertEquals(Arrays.asList("indexedGreeter", "indexedGreeterClient", "ukrainian"),
+                Arrays.asList(context.getBeanDefinitionNames()));
+        assertEquals("Hello", context.getBean(Greeter.class).greet());
+        assertSame(context.getBean("hello"), context.getBean(IndexedGreeterClient.class).greeter);
+        assertNotSame(context.getBean("ukrainian"), context.getBean("ukrainian"));
+    }
+
+    @Test
+    public void basePackagesSelectComponents() throws Exception {
+        Context context = new ApplicationContext(new ComponentIndexConfig("ua.rd.services", "ua.rd.repository",
+                "ua.rd.domain"));
+
+        TweetService tweetService = context.getBean(TweetService.class);
+        assertSame(context.getBean("tweetRepository"), tweetService.getRepository());
+        assertTrue(context.getBean("tweet") instanceof Tweet);
+        assertEquals(0, new ComponentIndexConfig("ua.rd.io").beanDefinitions().length);
+    }
+
+    @Test
+    public void indexListsComponentsByClassName() throws Exception {
+        URL index = ComponentIndexConfigTest.class.getClassLoader().getResource(ComponentIndexConfig.INDEX_LOCATION);
+        String content;
+        try (InputStream in = index.openStream(); Scanner scanner = new Scanner(in, "UTF-8")) {
+            content = scanner.useDelimiter("\\A").next();
+        }
+
+        assertEquals(""
+                + "ua.rd.ioc.ComponentIndexConfigTest$IndexedGreeter\tindexedGreeter\tsingleton\tfalse\ttrue\thello\n"
+                + "ua.rd.ioc.ComponentIndexConfigTest$IndexedGreeterClient\tindexedGreeterClient\tsingleton"
+                + "\ttrue\tfalse\t\n"
+                + "ua.rd.ioc.ComponentIndexConfigTest$UkrainianIndexedGreeter\tukrainian\tprototype"
+                + "\tfalse\tfalse\t\n",
+                content);
+    }
+
+    @Test(expected = BeanDefinitionException.class)
+    public void staleIndexEntryFails() throws Exception {
+        Path directory = Files.createTempDirectory("stale-index");
+        Path index = directory.resolve(ComponentIndexConfig.INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.write(index, "ua.rd.ioc.Removed\tremoved\tsingleton\tfalse\tfalse\t\n".getBytes(StandardCharsets.UTF_8));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, null)) {
+            new ComponentIndexConfig(loader, "ua.rd.ioc").beanDefinitions();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Component(primary = true, aliases = "hello")
+    public static class IndexedGreeter implements Greeter {
+        @Override
+        public String greet() {
+            return "Hello";
+        }
+    }
+
+    @Component(value = "ukrainian", scope = Scope.PROTOTYPE)
+    public static class UkrainianIndexedGreeter implements Greeter {
+        @Override
+        public String greet() {
+            return "Pryvit";
+        }
+    }
+
+    @Component(lazy = true)
+    public static class IndexedGreeterClient {
+        private final Greeter greeter;
+
+        public IndexedGreeterClient(Greeter greeter) {
+            this.greeter = greeter;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ua.rd.ioc;
+
+import org.junit.Test;
+import ua.rd.ioc.ApplicationContextTest.Calculator;
+import ua.rd.ioc.ApplicationContextTest.CachedCalculator;
+import ua.rd.ioc.ApplicationContextTest.DestroyedClient;
+import ua.rd.ioc.ApplicationContextTest.DestroyedDependency;
+import ua.rd.ioc.ApplicationContextTest.EnglishGreeter;
+import ua.rd.ioc.ApplicationContextTest.Greeter;
+import ua.rd.ioc.ApplicationContextTest.PooledBuffer;
+import ua.rd.ioc.ApplicationContextTest.UkrainianGreeter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ContextSnapshotTest {
+
+    private static Config config() {
+        return new JavaMapConfig(new LinkedHashMap<String, Map<String, Object>>(){{
+            put("destroyedClient", new HashMap<String, Object>(){{
+                        put("type", DestroyedClient.class);
+                    }}
+            );
+            put("destroyedDependency", new HashMap<String, Object>(){{
+                        put("type", DestroyedDependency.class);
+                        put("aliases", "dependency");
+                    }}
+            );
+            put("english", new HashMap<String, Object>(){{
+                        put("type", EnglishGreeter.class);
+                        put("primary", true);
+                    }}
+            );
+            put("ukrainian", new HashMap<String, Object>(){{
+                        put("type", UkrainianGreeter.class);
+                        put("lazy", true);
+                    }}
+            );
+            put("calculator", new HashMap<String, Object>(){{
+                        put("type", CachedCalculator.class);
+                    }}
+            );
+            put("buffer", new HashMap<String, Object>(){{
+                        put("type", PooledBuffer.class);
+                        put("scope", "pooled");
+                    }}
+            );
+        }});
+    }
+
+    private static ContextSnapshot roundTrip(ContextSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.write(bytes);
+        return ContextSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void restoredContextBehavesLikeTheResolvedOne() throws Exception {
+        ApplicationContextTest.destroyed.clear();
+        ContextSnapshot snapshot = roundTrip(ContextSnapshot.of(config()));
+
+        ApplicationContext context = snapshot.restore();
+
+        assertArrayEquals(new String[]{"destroyedClient", "destroyedDependency", "english", "ukrainian",
+                "calculator", "buffer"}, context.getBeanDefinitionNames());
+        assertEquals("Hello", context.getBean(Greeter.class).greet());
+        assertSame(context.getBean("destroyedDependency"), context.getBean("dependency"));
+        assertArrayEquals(new String[]{"ukrainian", "buffer"}, context.getUntouchedBeanNames());
+        Calculator calculator = context.getBean(Calculator.class);
+        assertEquals(49L, calculator.square(7));
+        assertEquals(49L, calculator.square(7));
+        assertEquals(1, calculator.calls());
+        assertEquals(1, context.getCacheStats().get("calculator.square(int)").getHitCount());
+        assertTrue(context.getBenchmarkResults().containsKey("calculator.square(int)"));
+        Object buffer = context.getBean("buffer");
+        context.release("buffer", buffer);
+        assertSame(buffer, context.getBean("buffer"));
+
+        context.close();
+        assertEquals(Arrays.asList("client", "dependency"), ApplicationContextTest.destroyed);
+    }
+
+    @Test
+    public void takingASnapshotCreatesNoBeans() throws Exception {
+        Config config = new JavaMapConfig(new HashMap<String, Map<String, Object>>(){{
+            put("testBean", new HashMap<String, Object>(){{
+                        put("type", ApplicationContextTest.TestBean.class);
+                    }}
+            );
+        }});
+        ApplicationContextTest.TestBean.intiValue = null;
+
+        ContextSnapshot snapshot = ContextSnapshot.of(config);
+
+        assertNull(ApplicationContextTest.TestBean.intiValue);
+        snapshot.restore();
+        assertEquals("initialized", ApplicationContextTest.TestBean.intiValue);
+    }
+
+    @Test
+    public void classListNamesBeanClassesInInternalForm() throws Exception {
+        Path classList = Files.createTempFile("beans", ".classlist");
+        try {
+            ContextSnapshot.of(config()).writeClassList(classList);
+
+            List<String> lines = Files.readAllLines(classList, StandardCharsets.UTF_8);
+            assertTrue(lines.contains("ua/rd/ioc/ApplicationContextTest$CachedCalculator"));
+            assertTrue(lines.contains("ua/rd/ioc/ApplicationContextTest$Calculator"));
+            assertTrue(lines.contains("ua/rd/ioc/ApplicationContextTest$DestroyedDependency"));
+        } finally {
+            Files.delete(classList);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readRejectsOtherFiles() throws Exception {
+        ContextSnapshot.read(new ByteArrayInputStream("<beans/>".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,165 @@
+package ua.rd.ioc;
+
+import org.junit.Test;
+import ua.rd.ioc.processor.ContextProcessor;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+@GeneratedContext("TestGeneratedContext")
+@BeanDeclaration(name = "testBeanInterface", type = ApplicationContextTest.TestBean.class, aliases = "testBean")
+@BeanDeclaration(name = "testBeanWithConstructor", type = ApplicationContextTest.TestBeanWithConstructors.class,
+        lazy = true)
+@BeanDeclaration(name = "plainBean", type = ApplicationContextTest.PlainBenchmarkedBean.class, prototype = true)
+@BeanDeclaration(name = "english", type = ApplicationContextTest.EnglishGreeter.class, primary = true)
+@BeanDeclaration(name = "ukrainian", type = ApplicationContextTest.UkrainianGreeter.class)
+@BeanDeclaration(name = "client", type = ApplicationContextTest.GreeterClient.class)
+@BeanDeclaration(name = "qualifiedClient", type = ApplicationContextTest.QualifiedGreeterClient.class)
+@BeanDeclaration(name = "calculator", type = ApplicationContextTest.CachedCalculator.class)
+@BeanDeclaration(name = "destroyedClient", type = ApplicationContextTest.DestroyedClient.class)
+@BeanDeclaration(name = "destroyedDependency", type = ApplicationContextTest.DestroyedDependency.class)
+public class GeneratedContextTest {
+
+    @Test(expected = NoSuchBeanException.class)
+    public void getBeanWithUnknownName() throws Exception {
+        Context context = new TestGeneratedContext();
+
+        context.getBean("abc");
+    }
+
+    @Test
+    public void getBeanDefinitionNamesInDeclarationOrder() throws Exception {
+        Context context = new TestGeneratedContext();
+
+        String[] actual = context.getBeanDefinitionNames();
+
+        assertArrayEquals(new String[]{"testBeanInterface", "testBeanWithConstructor", "plainBean",
+                "english", "ukrainian", "client", "qualifiedClient", "calculator",
+                "destroyedClient", "destroyedDependency"}, actual);
+    }
+
+    @Test
+    public void getBeanWiresDependenciesAndCallsLifecycleMethods() throws Exception {
+        Context context = new TestGeneratedContext();
+
+        Object bean = context.getBean("testBeanWithConstructor");
+
+        assertTrue(bean instanceof ApplicationContextTest.TestBeanWithConstructors);
+        assertEquals("initialized", ApplicationContextTest.TestBean.intiValue);
+        assertEquals("initializedByPostConstructor", ApplicationContextTest.TestBean.postConstructValue);
+    }
+
+    @Test
+    public void getBeanHonoursScopesAndAliases() throws Exception {
+        Context context = new TestGeneratedContext();
+
+        assertSame(context.getBean("testBeanInterface"), context.getBean("testBean"));
+        assertSame(context.getBean("testBeanWithConstructor"), context.getBean("testBeanWithConstructor"));
+        assertNotSame(context.getBean("plainBean"), context.getBean("plainBean"));
+    }
+
+    @Test
+    public void benchmarkedBeanIsProxiedWithoutReflection() throws Exception {
+        Context context = new TestGeneratedContext();
+
+        ApplicationContextTest.TestBeanInterface bean =
+                (ApplicationContextTest.TestBeanInterface) context.getBean("testBean");
+
+        assertEquals("yyr", bean.methodToBenchmark("ryy"));
+        assertFalse(Proxy.isProxyClass(bean.getClass()));
+        assertEquals(1, context.getBenchmarkResults()
+                .get("testBeanInterface.methodToBenchmark(String)").getCount());
+    }
+
+    @Test
+    public void generatedContextIsAlsoAConfig() throws Exception {
+        Config config = new TestGeneratedContext();
+        Context context = new ApplicationContext(config);
+
+        assertArrayEquals(new TestGeneratedContext().getBeanDefinitionNames(), context.getBeanDefinitionNames());
+        assertSame(context.getBean("testBean"), context.getBean("testBeanInterface"));
+        assertNotNull(context.getBean("testBeanWithConstructor"));
+    }
+
+    @Test
+    public void getBeanByTypeUsesCompileTimeTypeIndex() throws Exception {
+        Context context = new TestGeneratedContext();
+
+        assertEquals("Hello", context.getBean(ApplicationContextTest.Greeter.class).greet());
+        assertSame(context.getBean("english"), context.getBean(ApplicationContextTest.EnglishGreeter.class));
+        assertEquals(2, context.getBeansOfType(ApplicationContextTest.Greeter.class).size());
+        assertNotNull(context.getBean(ApplicationContextTest.QualifiedGreeterClient.class));
+    }
+
+    @Test
+    public void cacheableMethodsAreCachedWithoutReflection() throws Exception {
+        Context context = new TestGeneratedContext();
+        ApplicationContextTest.Calculator calculator = context.getBean(ApplicationContextTest.Calculator.class);
+
+        assertEquals(9, calculator.square(3));
+        assertEquals(9, calculator.square(3));
+
+        assertFalse(Proxy.isProxyClass(calculator.getClass()));
+        assertEquals(1, calculator.calls());
+        assertEquals(1, context.getCacheStats().get("calculator.square(int)").getHitCount());
+        assertEquals(2, context.getBenchmarkResults().get("calculator.square(int)").getCount());
+    }
+
+    @Test
+    public void closeDestroysSingletonsInReverseDependencyOrder() throws Exception {
+        Context context = new TestGeneratedContext();
+        ApplicationContextTest.destroyed.clear();
+
+        context.close();
+        context.close();
+
+        assertEquals(Arrays.asList("client", "dependency"), ApplicationContextTest.destroyed);
+    }
+
+    @Test
+    public void initMethodReturningACompletionStageIsRejected() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+        String source = "package rejected;\n"
+                + "@ua.rd.ioc.GeneratedContext(\"RejectedContext\")\n"
+                + "@ua.rd.ioc.BeanDeclaration(name = \"repository\", type = Declarations.Repository.class)\n"
+                + "public class Declarations {\n"
+                + "    public static class Repository {\n"
+                + "        public java.util.concurrent.CompletableFuture<Void> init() {\n"
+                + "            return java.util.concurrent.CompletableFuture.completedFuture(null);\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n";
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///rejected/Declarations.java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        String classPath = new File(GeneratedContext.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                Arrays.asList("-proc:only", "-classpath", classPath), null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new ContextProcessor()));
+
+        assertFalse(task.call());
+        assertTrue(diagnostics.getDiagnostics().stream()
+                .anyMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR
+                        && diagnostic.getMessage(null).contains("returns a CompletionStage")));
+    }
+}
@@ -0,0 +1,115 @@
+package ua.rd.ioc;
+
+import com.sun.management.ThreadMXBean;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class JfrLifecycleEventsTest {
+    @Test
+    public void beanLifecycleIsRecordedByFlightRecorder() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("destroyedClient", new HashMap<String, Object>(){{
+                                put("type", ApplicationContextTest.DestroyedClient.class);
+                            }}
+                    );
+                    put("destroyedDependency", new HashMap<String, Object>(){{
+                                put("type", ApplicationContextTest.DestroyedDependency.class);
+                            }}
+                    );
+                    put("prototype", new HashMap<String, Object>(){{
+                                put("type", ApplicationContextTest.DestroyedDependency.class);
+                                put("isPrototype", true);
+                            }}
+                    );
+                }};
+
+        Path file = Files.createTempFile("context", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : new String[]{"ContextStartup", "BeanCreation", "BeanPhase", "BeanLookupMiss"}) {
+                recording.enable("ua.rd.ioc." + event);
+            }
+            recording.start();
+            Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+            context.getBean("prototype");
+            try {
+                context.getBean("missing");
+                fail();
+            } catch (NoSuchBeanException expected) {
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<String> phases = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        String criticalPath = null;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            switch (event.getEventType().getName()) {
+                case "ua.rd.ioc.BeanPhase":
+                    phases.add(event.getString("beanName") + ":" + event.getString("phase"));
+                    break;
+                case "ua.rd.ioc.BeanCreation":
+                    created.add(event.getString("beanName") + ":" + event.getString("scope"));
+                    break;
+                case "ua.rd.ioc.BeanLookupMiss":
+                    misses.add(event.getString("lookup"));
+                    break;
+                case "ua.rd.ioc.ContextStartup":
+                    criticalPath = event.getString("criticalPath");
+                    break;
+            }
+        }
+        Files.delete(file);
+
+        assertTrue(phases.containsAll(Arrays.asList("destroyedClient:resolve", "destroyedClient:instantiate",
+                "destroyedClient:postConstruct", "destroyedClient:init", "destroyedClient:proxy")));
+        assertEquals(new HashSet<>(Arrays.asList("destroyedDependency:singleton", "destroyedClient:singleton",
+                "prototype:prototype")), new HashSet<>(created));
+        assertEquals(Collections.singletonList("missing"), misses);
+        assertEquals("destroyedDependency -> destroyedClient", criticalPath);
+    }
+
+    @Test
+    public void nothingIsAllocatedWhileNoRecordingIsRunning() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean allocations = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // few enough calls that escape analysis of an optimizing compile
+        // can not hide an allocation
+        int calls = 1_000;
+        beginAll(1);
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        int begun = beginAll(calls);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, begun);
+        assertTrue("allocated " + allocated + " bytes", allocated < calls);
+    }
+
+    private static int beginAll(int calls) {
+        int begun = 0;
+        for (int i = 0; i < calls; i++) {
+            if (LifecycleEvents.beginCreation() != null) {
+                begun++;
+            }
+            if (LifecycleEvents.beginPhase() != null) {
+                begun++;
+            }
+            LifecycleEvents.lookupMiss("missing");
+        }
+        return begun;
+    }
+}
@@ -0,0 +1,58 @@
+package ua.rd.ioc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() throws Exception {
+        LatencySnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99());
+        assertEquals(0, snapshot.getMax());
+    }
+
+    @Test
+    public void smallValuesAreExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(50, snapshot.getCount());
+        assertEquals(25, snapshot.getP50());
+        assertEquals(50, snapshot.getP99());
+        assertEquals(50, snapshot.getMax());
+        assertEquals(25.5, snapshot.getMean(), 0.001);
+    }
+
+    @Test
+    public void largeValuesStayWithinRelativeError() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(50_000_000, snapshot.getP50(), 50_000_000 * 0.035);
+        assertEquals(99_000_000, snapshot.getP99(), 99_000_000 * 0.035);
+        assertEquals(99_900_000, snapshot.getP999(), 99_900_000 * 0.035);
+        assertEquals(100_000_000, snapshot.getMax());
+    }
+
+    @Test
+    public void everyIndexMapsBackToItsOwnRange() throws Exception {
+        long[] values = {0, 63, 64, 65, 127, 128, 1_000_000_007L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.highestEquivalentValue(index));
+            assertTrue(index == 0 || value > LatencyHistogram.highestEquivalentValue(index - 1));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ua.rd.ioc;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MethodCacheTest {
+
+    @Test
+    public void secondCallIsAHit() throws Exception {
+        MethodCache cache = new MethodCache(10, 0, CacheEviction.LRU);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a", cache.get("a", () -> { loads.incrementAndGet(); return "a"; }));
+        assertNull(cache.get(MethodCache.key("b", 1), () -> { loads.incrementAndGet(); return null; }));
+        assertEquals("a", cache.get("a", () -> "other"));
+        assertNull(cache.get(MethodCache.key("b", 1), () -> "other"));
+
+        assertEquals(2, loads.get());
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(0.5, stats.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void lruEvictsTheLeastRecentlyUsedEntry() throws Exception {
+        MethodCache cache = new MethodCache(2, 0, CacheEviction.LRU);
+        cache.get(1, () -> "one");
+        cache.get(2, () -> "two");
+        cache.get(1, () -> "one");
+
+        cache.get(3, () -> "three");
+
+        assertEquals("one", cache.get(1, () -> "reloaded"));
+        assertEquals("reloaded", cache.get(2, () -> "reloaded"));
+        assertEquals(2, cache.stats().getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void tinyLfuKeepsFrequentEntriesThroughAScan() throws Exception {
+        MethodCache cache = new MethodCache(100, 0, CacheEviction.TINY_LFU);
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 50; key++) {
+                cache.get(key, () -> "hot");
+            }
+        }
+
+        for (int key = 1_000; key < 11_000; key++) {
+            cache.get(key, () -> "cold");
+            if (key % 1_000 == 0) {
+                for (int hot = 0; hot < 50; hot++) {
+                    cache.get(hot, () -> "hot");
+                }
+            }
+        }
+
+        long hits = cache.stats().getHitCount();
+        for (int key = 0; key < 50; key++) {
+            cache.get(key, () -> "hot");
+        }
+        assertEquals(50, cache.stats().getHitCount() - hits);
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void entriesExpireAfterWrite() throws Exception {
+        AtomicLong now = new AtomicLong();
+        MethodCache cache = new MethodCache(10, TimeUnit.SECONDS.toNanos(1), CacheEviction.LRU, now::get);
+        cache.get("k", () -> "first");
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals("first", cache.get("k", () -> "second"));
+        now.set(TimeUnit.SECONDS.toNanos(1));
+        assertEquals("second", cache.get("k", () -> "second"));
+
+        assertEquals(1, cache.stats().getExpirationCount());
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        MethodCache cache = new MethodCache(10, 0, CacheEviction.TINY_LFU);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Object> first = executor.submit(() -> cache.get("k", () -> {
+                loading.countDown();
+                release.await();
+                return "value" + loads.incrementAndGet();
+            }));
+            loading.await();
+            Future<?>[] others = new Future<?>[3];
+            for (int i = 0; i < others.length; i++) {
+                others[i] = executor.submit(() -> cache.get("k", () -> "value" + loads.incrementAndGet()));
+            }
+            while (cache.stats().getMissCount() < 4) {
+                Thread.yield();
+            }
+            release.countDown();
+
+            assertEquals("value1", first.get());
+            for (Future<?> other : others) {
+                assertEquals("value1", other.get());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() throws Exception {
+        MethodCache cache = new MethodCache(10, 0, CacheEviction.LRU);
+        try {
+            cache.get("k", () -> {
+                throw new IOException("down");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("down", e.getMessage());
+        }
+
+        assertEquals("up", cache.get("k", () -> "up"));
+        assertEquals(0, cache.stats().getHitCount());
+    }
+}
@@ -0,0 +1,162 @@
+package ua.rd.ioc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.rd.domain.Tweet;
+import ua.rd.repository.TweetRepository;
+import ua.rd.services.TweetService;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class XmlConfigTest {
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<beans xmlns=\"http://www.springframework.org/schema/beans\"\n"
+            + "       xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+            + "       xsi:schemaLocation=\"http://www.springframework.org/schema/beans"
+            + " http://www.springframework.org/schema/beans/spring-beans.xsd\">\n";
+    private static final String FOOTER = "</beans>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private URL write(String fileName, String beans) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(fileName);
+        Files.write(file, (HEADER + beans + FOOTER).getBytes(StandardCharsets.UTF_8));
+        return file.toUri().toURL();
+    }
+
+    @Test
+    public void loadsTheSpringBeanFilesIntoParentAndChildContexts() throws Exception {
+        ApplicationContext repoContext = new ApplicationContext(new XmlConfig("repoContext.xml"));
+        ApplicationContext serviceContext = new ApplicationContext(new XmlConfig("serviceContext.xml"),
+                repoContext);
+
+        Tweet tweet = (Tweet) repoContext.getBean("tweet");
+        assertEquals("Tweet1", tweet.getTxt());
+        assertNull(tweet.getUser());
+        assertTrue(((TweetRepository) repoContext.getBean("tweetRepository")).allTweets().iterator().hasNext());
+
+        TweetService tweetService = (TweetService) serviceContext.getBean("tweetService");
+        assertSame(serviceContext.getBean("tweetRepository"), tweetService.getRepository());
+        assertNotSame(repoContext.getBean("tweetRepository"), tweetService.getRepository());
+        assertNotSame(serviceContext.getBean("tweetParent"), serviceContext.getBean("tweet"));
+        assertEquals(Arrays.asList("tweetService", "tweetRepository", "tweet"),
+                Arrays.asList(serviceContext.getBeanDefinitionNames()));
+    }
+
+    @Test
+    public void readsConstructorArgumentsInitMethodsImportsAndAliases() throws Exception {
+        write("salutations.xml", ""
+                + "<import resource=\"greetings.xml\"/>\n"
+                + "<bean id=\"salutation\" class=\"ua.rd.ioc.XmlConfigTest$Salutation\">\n"
+                + "    <constructor-arg type=\"String\" value=\"Pryvit\"/>\n"
+                + "</bean>\n");
+        URL greetings = write("greetings.xml", ""
+                + "<description>Greetings</description>\n"
+                + "<import resource=\"salutations.xml\"/>\n"
+                + "<bean id=\"greeting\" class=\"ua.rd.ioc.XmlConfigTest$Greeting\" init-method=\"start\">\n"
+                + "    <constructor-arg ref=\"salutation\"/>\n"
+                + "    <constructor-arg value=\"3\"/>\n"
+                + "    <constructor-arg><value>LOUD</value></constructor-arg>\n"
+                + "</bean>\n"
+                + "<bean name=\"english, hello\" class=\"ua.rd.ioc.XmlConfigTest$Salutation\" scope=\"prototype\">\n"
+                + "    <constructor-arg type=\"java.lang.String\" value=\"Hello\"/>\n"
+                + "</bean>\n"
+                + "<bean class=\"ua.rd.ioc.XmlConfigTest$Salutation\" lazy-init=\"true\">\n"
+                + "    <constructor-arg><null/></constructor-arg>\n"
+                + "</bean>\n"
+                + "<alias name=\"hello\" alias=\"greetingWord\"/>\n");
+
+        Context context = new ApplicationContext(new XmlConfig(greetings));
+
+        Greeting greeting = (Greeting) context.getBean("greeting");
+        assertEquals("Pryvit", greeting.salutation.word);
+        assertSame(context.getBean("salutation"), greeting.salutation);
+        assertEquals(3, greeting.times);
+        assertEquals(Volume.LOUD, greeting.volume);
+        assertTrue(greeting.started);
+        assertEquals("Hello", ((Salutation) context.getBean("greetingWord")).word);
+        assertNotSame(context.getBean("english"), context.getBean("greetingWord"));
+        assertNull(((Salutation) context.getBean("ua.rd.ioc.XmlConfigTest$Salutation#0")).word);
+        assertEquals(Arrays.asList("salutation", "greeting", "english", "ua.rd.ioc.XmlConfigTest$Salutation#0"),
+                Arrays.asList(context.getBeanDefinitionNames()));
+    }
+
+    @Test
+    public void laterBeanReplacesEarlierOneOfTheSameName() throws Exception {
+        URL first = write("first.xml", ""
+                + "<bean id=\"salutation\" class=\"ua.rd.ioc.XmlConfigTest$Salutation\">\n"
+                + "    <constructor-arg value=\"Hello\"/>\n"
+                + "</bean>\n");
+        URL second = write("second.xml", ""
+                + "<bean id=\"salutation\" class=\"ua.rd.ioc.XmlConfigTest$Salutation\">\n"
+                + "    <constructor-arg value=\"Pryvit\"/>\n"
+                + "</bean>\n");
+
+        Context context = new ApplicationContext(new XmlConfig(first, second));
+
+        assertEquals("Pryvit", ((Salutation) context.getBean("salutation")).word);
+    }
+
+    @Test(expected = BeanDefinitionException.class)
+    public void unsupportedElementFails() throws Exception {
+        URL beans = write("properties.xml", ""
+                + "<bean id=\"salutation\" class=\"ua.rd.ioc.XmlConfigTest$Salutation\">\n"
+                + "    <property name=\"word\" value=\"Hello\"/>\n"
+                + "</bean>\n");
+
+        new XmlConfig(beans).beanDefinitions();
+    }
+
+    @Test(expected = BeanDefinitionException.class)
+    public void constructorArgumentsMatchingNoConstructorFail() throws Exception {
+        URL beans = write("mismatch.xml", ""
+                + "<bean id=\"greeting\" class=\"ua.rd.ioc.XmlConfigTest$Greeting\">\n"
+                + "    <constructor-arg ref=\"salutation\"/>\n"
+                + "    <constructor-arg value=\"three\"/>\n"
+                + "</bean>\n");
+
+        new ApplicationContext(new XmlConfig(beans));
+    }
+
+    public enum Volume {
+        QUIET, LOUD
+    }
+
+    public static class Salutation {
+        private final String word;
+
+        public Salutation(String word) {
+            this.word = word;
+        }
+    }
+
+    public static class Greeting {
+        private final Salutation salutation;
+        private final int times;
+        private final Volume volume;
+        private boolean started;
+
+        public Greeting() {
+            this(null, 1, Volume.QUIET);
+        }
+
+        public Greeting(Salutation salutation, int times, Volume volume) {
+            this.salutation = salutation;
+            this.times = times;
+            this.volume = volume;
+        }
+
+        public void start() {
+            started = true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ua.rd.repository;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ColumnarTweetRepositoryTest {
+    private final User alice = new User(1, "alice");
+    private final User bob = new User(2, "bob");
+
+    @Test
+    public void savedTweetsAreMaterializedFromColumns() throws Exception {
+        ColumnarTweetRepository repository = new ColumnarTweetRepository();
+        repository.save(new Tweet("\u0421\u043b\u0430\u0432\u0430", alice));
+        repository.save(new Tweet(null, null));
+
+        Tweet tweet = repository.findById(1).get();
+        assertEquals("\u0421\u043b\u0430\u0432\u0430", tweet.getTxt());
+        assertSame(alice, tweet.getUser());
+        assertNull(repository.findById(2).get().getTxt());
+        assertNull(repository.findById(2).get().getUser());
+    }
+
+    @Test
+    public void rowsStaySortedByIdWhateverTheSaveOrder() throws Exception {
+        ColumnarTweetRepository repository = new ColumnarTweetRepository();
+        for (long id : new long[]{5, 1, 3, 2, 4}) {
+            repository.save(new Tweet(id, "tweet" + id, id % 2 == 0 ? bob : alice));
+        }
+        repository.save(new Tweet(3L, "edited", bob));
+        repository.delete(4);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 5L),
+                repository.stream().map(Tweet::getTweetId).collect(Collectors.toList()));
+        assertEquals("edited", repository.findById(3).get().getTxt());
+        assertEquals(Arrays.asList("tweet2", "edited"),
+                repository.findByUser(bob).stream().map(Tweet::getTxt).collect(Collectors.toList()));
+        assertEquals(4, repository.size());
+    }
+
+    @Test
+    public void pagesAndTimelineUseTheSortedIdColumn() throws Exception {
+        ColumnarTweetRepository repository = new ColumnarTweetRepository();
+        for (int i = 0; i < 2_000; i++) {
+            repository.save(new Tweet("tweet", alice));
+        }
+        repository.delete(4);
+
+        TweetPage page = repository.findPage(0, 3);
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(page.getTweets()));
+        assertEquals(Arrays.asList(5L, 6L, 7L), ids(repository.findPage(page.getNextCursor(), 3).getTweets()));
+        assertEquals(Arrays.asList(2_000L, 1_999L), ids(repository.findLatest(1_998, 5)));
+        assertEquals(Arrays.asList(2_000L, 1_999L), ids(repository.findLatest(1_998, Integer.MAX_VALUE)));
+        assertEquals(1_999, repository.stream().count());
+    }
+
+    @Test
+    public void scanMovesOneReadOnlyViewOverAllRows() throws Exception {
+        ColumnarTweetRepository repository = new ColumnarTweetRepository();
+        for (int i = 0; i < 10; i++) {
+            repository.save(new Tweet("tweet" + i, alice));
+        }
+        Set<Tweet> views = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<String> texts = new ArrayList<>();
+
+        repository.scan(tweet -> {
+            views.add(tweet);
+            texts.add(tweet.getTxt());
+        });
+
+        assertEquals(1, views.size());
+        assertEquals(10, texts.size());
+        assertEquals("tweet9", texts.get(9));
+        try {
+            views.iterator().next().setTxt("changed");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void scanReadingPrimitiveIdsAllocatesNothingPerRow() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean allocations = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ColumnarTweetRepository repository = new ColumnarTweetRepository();
+        int rows = 100_000;
+        for (long id = 1_000; id < 1_000 + rows; id++) {
+            repository.save(new Tweet(id, "tweet", alice));
+        }
+        long[] sum = new long[1];
+        repository.scan(tweet -> sum[0] += tweet.tweetId());
+
+        sum[0] = 0;
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        repository.scan(tweet -> sum[0] += tweet.tweetId());
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(rows * 1_000L + (long) rows * (rows - 1) / 2, sum[0]);
+        assertTrue("allocated " + allocated + " bytes", allocated < rows);
+    }
+
+    private static List<Long> ids(List<Tweet> tweets) {
+        return tweets.stream().map(Tweet::getTweetId).collect(Collectors.toList());
+    }
+}
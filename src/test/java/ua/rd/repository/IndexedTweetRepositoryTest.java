@@ -0,0 +1,239 @@
+package ua.rd.repository;
+
+import org.junit.Test;
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.Context;
+import ua.rd.ioc.JavaMapConfig;
+import ua.rd.services.SimpleTweetService;
+import ua.rd.services.TweetService;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class IndexedTweetRepositoryTest {
+    private final User alice = new User(1, "alice");
+    private final User bob = new User(2, "bob");
+
+    @Test
+    public void saveAssignsIdsAndFindByIdReturnsTweet() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+
+        Tweet first = repository.save(new Tweet("first", alice));
+        Tweet second = repository.save(new Tweet("second", alice));
+
+        assertEquals(Long.valueOf(1), first.getTweetId());
+        assertEquals(Long.valueOf(2), second.getTweetId());
+        assertSame(second, repository.findById(2).get());
+        assertFalse(repository.findById(3).isPresent());
+    }
+
+    @Test
+    public void deleteRemovesTweetFromAllIndexes() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        repository.save(new Tweet(10L, "first", alice));
+        repository.save(new Tweet(11L, "second", alice));
+
+        assertTrue(repository.delete(10));
+        assertFalse(repository.delete(10));
+
+        assertFalse(repository.findById(10).isPresent());
+        assertEquals(Collections.singletonList("second"), texts(repository.findByUser(alice)));
+        assertEquals(1, repository.size());
+    }
+
+    @Test
+    public void findByUserFollowsTweetsMovedToAnotherUser() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        repository.save(new Tweet(1L, "mine", alice));
+
+        repository.save(new Tweet(1L, "yours", bob));
+
+        assertTrue(repository.findByUser(alice).isEmpty());
+        assertEquals(Collections.singletonList("yours"), texts(repository.findByUser(new User(2, null))));
+    }
+
+    @Test
+    public void lookupsSurviveResizesAndBackwardShiftDeletion() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository(1);
+        for (long id = 1; id <= 10_000; id++) {
+            repository.save(new Tweet(id, "tweet" + id, null));
+        }
+        for (long id = 2; id <= 10_000; id += 2) {
+            repository.delete(id);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id % 2 == 1, repository.findById(id).isPresent());
+        }
+        assertEquals(5_000, repository.size());
+    }
+
+    @Test
+    public void concurrentSavesAreAllVisible() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            User user = thread % 2 == 0 ? alice : bob;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    Tweet tweet = repository.save(new Tweet("tweet", user));
+                    assertSame(tweet, repository.findById(tweet.getTweetId()).get());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(8_000, repository.size());
+        assertEquals(4_000, repository.findByUser(alice).size());
+        assertEquals(4_000, repository.findByUser(bob).size());
+    }
+
+    @Test
+    public void repositoryIsADropInTweetRepositoryBean() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("tweetRepository", new HashMap<String, Object>(){{
+                                put("type", IndexedTweetRepository.class);
+                            }}
+                    );
+                    put("tweetService", new HashMap<String, Object>(){{
+                                put("type", SimpleTweetService.class);
+                            }}
+                    );
+                }};
+
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        TweetService tweetService = context.getBean(TweetService.class);
+        ((WritableTweetRepository) tweetService.getRepository()).save(new Tweet("hello", alice));
+
+        assertEquals(Collections.singletonList("hello"), texts(tweetService.allTweets()));
+    }
+
+    @Test
+    public void pagesWalkAllTweetsInIdOrder() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        for (long id = 10; id >= 1; id--) {
+            repository.save(new Tweet(id, "tweet" + id, alice));
+        }
+
+        TweetPage first = repository.findPage(Long.MIN_VALUE, 4);
+        repository.delete(5);
+        TweetPage second = repository.findPage(first.getNextCursor(), 4);
+        TweetPage third = repository.findPage(second.getNextCursor(), 4);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), ids(first.getTweets()));
+        assertEquals(Arrays.asList(6L, 7L, 8L, 9L), ids(second.getTweets()));
+        assertEquals(Collections.singletonList(10L), ids(third.getTweets()));
+        assertTrue(second.hasNext());
+        assertFalse(third.hasNext());
+    }
+
+    @Test
+    public void findLatestReturnsNewestTweetsAfterCursor() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        for (int i = 0; i < 10; i++) {
+            repository.save(new Tweet("tweet", alice));
+        }
+
+        assertEquals(Arrays.asList(10L, 9L, 8L), ids(repository.findLatest(0, 3)));
+        assertEquals(Arrays.asList(10L, 9L), ids(repository.findLatest(8, 3)));
+    }
+
+    @Test
+    public void hugeLimitsAreBoundedByTheTweetsThereAre() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        repository.save(new Tweet("tweet", alice));
+
+        TweetPage page = repository.findPage(Long.MIN_VALUE, Integer.MAX_VALUE);
+
+        assertEquals(Collections.singletonList(1L), ids(page.getTweets()));
+        assertFalse(page.hasNext());
+        assertEquals(Collections.singletonList(1L), ids(repository.findLatest(Long.MIN_VALUE, Integer.MAX_VALUE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimitIsRejected() throws Exception {
+        new IndexedTweetRepository().findPage(Long.MIN_VALUE, -1);
+    }
+
+    @Test
+    public void parallelStreamSeesEveryTweetOnce() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        for (int i = 0; i < 10_000; i++) {
+            repository.save(new Tweet("tweet", null));
+        }
+
+        assertEquals(10_000L * 10_001 / 2,
+                repository.stream().parallel().mapToLong(Tweet::getTweetId).sum());
+        assertEquals(ids(repository.findPage(Long.MIN_VALUE, 10_000).getTweets()),
+                ids(repository.stream().collect(Collectors.toList())));
+    }
+
+    @Test
+    public void readOnlyRepositoryPagesThroughDefaultMethods() throws Exception {
+        InMemTweetRepository repository = new InMemTweetRepository();
+        repository.init();
+        TweetService tweetService = new SimpleTweetService(repository);
+
+        TweetPage page = tweetService.tweetsPage(Long.MIN_VALUE, 1);
+
+        assertEquals(Collections.singletonList(1L), ids(page.getTweets()));
+        assertTrue(page.hasNext());
+        assertEquals(Collections.singletonList(2L), ids(tweetService.timeline(page.getNextCursor(), 5)));
+    }
+
+    @Test
+    public void searchFollowsReplacedAndDeletedTweets() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        repository.save(new Tweet(1L, "Hello java", alice));
+        repository.save(new Tweet(2L, "hello spring", bob));
+        repository.save(new Tweet(3L, "java and spring", bob));
+
+        repository.save(new Tweet(1L, "hello kotlin", alice));
+        repository.delete(3);
+
+        assertEquals(Collections.emptyList(), ids(repository.search("java", 10)));
+        assertEquals(Arrays.asList(2L, 1L), ids(repository.search("hello", 10)));
+        assertEquals(Collections.singletonList(1L), ids(repository.search("hello kotlin OR scala", 10)));
+    }
+
+    @Test
+    public void indexedSearchAgreesWithTheScanningDefault() throws Exception {
+        IndexedTweetRepository repository = new IndexedTweetRepository();
+        List<Tweet> tweets = new ArrayList<>();
+        TweetRepository scanned = () -> tweets;
+        String[] words = {"java", "spring", "kotlin", "ioc", "bean"};
+        Random random = new Random(17);
+        for (int i = 0; i < 500; i++) {
+            String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            tweets.add(repository.save(new Tweet(text, alice)));
+        }
+
+        for (String query : Arrays.asList("java", "java spring", "ioc OR bean kotlin", "scala")) {
+            assertEquals(query, ids(scanned.search(query, 20)), ids(repository.search(query, 20)));
+        }
+        assertEquals(ids(repository.search("bean", 5)),
+                ids(new SimpleTweetService(repository).search("BEAN", 5)));
+    }
+
+    private static List<Long> ids(List<Tweet> tweets) {
+        return tweets.stream().map(Tweet::getTweetId).collect(Collectors.toList());
+    }
+
+    private static List<String> texts(Iterable<Tweet> tweets) {
+        List<String> texts = new ArrayList<>();
+        tweets.forEach(tweet -> texts.add(tweet.getTxt()));
+        return texts;
+    }
+}
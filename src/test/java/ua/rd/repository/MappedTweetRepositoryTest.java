@@ -0,0 +1,187 @@
+package ua.rd.repository;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.Context;
+import ua.rd.ioc.JavaMapConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class MappedTweetRepositoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final User alice = new User(1, "alice");
+
+    @Test
+    public void savedTweetsAreDecodedFromTheLog() throws Exception {
+        try (MappedTweetRepository repository = new MappedTweetRepository(folder.getRoot().toPath())) {
+            repository.save(new Tweet("\u041f\u0440\u0438\u0432\u0456\u0442, \u0441\u0432\u0456\u0442", alice));
+            repository.save(new Tweet("anonymous", null));
+
+            Tweet tweet = repository.findById(1).get();
+            assertEquals("\u041f\u0440\u0438\u0432\u0456\u0442, \u0441\u0432\u0456\u0442", tweet.getTxt());
+            assertEquals(alice, tweet.getUser());
+            assertEquals("alice", tweet.getUser().getName());
+            assertNull(repository.findById(2).get().getUser());
+            assertFalse(repository.findById(3).isPresent());
+        }
+    }
+
+    @Test
+    public void saveAllCommitsTheWholeBatchOrNothing() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 4, 4)) {
+            List<Tweet> batch = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                batch.add(new Tweet("tweet" + i, alice));
+            }
+            batch.add(new Tweet(3L, "edited", alice));
+            repository.saveAll(batch);
+
+            char[] tooLong = new char[MappedTweetRepository.MAX_TEXT_BYTES + 1];
+            try {
+                repository.saveAll(Arrays.asList(new Tweet("fits", alice), new Tweet(new String(tooLong), alice)));
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            assertEquals(10, repository.stream().count());
+        }
+
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 4, 4)) {
+            assertFalse(repository.wasIndexRebuilt());
+            assertEquals("edited", repository.findById(3).get().getTxt());
+            assertEquals(10, repository.stream().count());
+        }
+    }
+
+    @Test
+    public void batchFailingToMapASegmentLeavesNoTrace() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (FailingMappedTweetRepository repository = new FailingMappedTweetRepository(directory)) {
+            repository.saveAll(Collections.singletonList(new Tweet("first", alice)));
+            repository.failMapping = true;
+            List<Tweet> batch = Arrays.asList(new Tweet("second", alice), new Tweet("third", alice));
+            try {
+                repository.saveAll(batch);
+                fail();
+            } catch (UncheckedIOException expected) {
+            }
+            assertNull(batch.get(0).getTweetId());
+            assertFalse(repository.findById(2).isPresent());
+
+            repository.failMapping = false;
+            repository.saveAll(Arrays.asList(new Tweet("fourth", alice), new Tweet("fifth", alice)));
+            assertEquals("fourth", repository.findById(2).get().getTxt());
+            assertEquals("fifth", repository.findById(3).get().getTxt());
+            assertEquals(Arrays.asList("first", "fourth", "fifth"),
+                    repository.stream().map(Tweet::getTxt).collect(Collectors.toList()));
+        }
+
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 2, 4)) {
+            assertFalse(repository.wasIndexRebuilt());
+            assertEquals("fifth", repository.findById(3).get().getTxt());
+        }
+    }
+
+    private static class FailingMappedTweetRepository extends MappedTweetRepository {
+        private boolean failMapping;
+
+        FailingMappedTweetRepository(Path directory) {
+            super(directory, 2, 4);
+        }
+
+        @Override
+        MappedByteBuffer mapSegment(long position, long size) throws IOException {
+            if (failMapping) {
+                throw new IOException("disk full");
+            }
+            return super.mapSegment(position, size);
+        }
+    }
+
+    @Test
+    public void reopeningKeepsTweetsAndReusesTheIndex() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 4, 4)) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(new Tweet("tweet" + i, alice));
+            }
+            repository.save(new Tweet(7L, "edited", alice));
+            repository.delete(8);
+        }
+
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 4, 4)) {
+            assertFalse(repository.wasIndexRebuilt());
+            assertEquals("edited", repository.findById(7).get().getTxt());
+            assertFalse(repository.findById(8).isPresent());
+            assertEquals(99, repository.stream().count());
+            assertEquals(Long.valueOf(101), repository.save(new Tweet("next", null)).getTweetId());
+        }
+    }
+
+    @Test
+    public void missingIndexIsRebuiltFromTheLog() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 4, 4)) {
+            for (int i = 0; i < 20; i++) {
+                repository.save(new Tweet("tweet" + i, alice));
+            }
+            repository.save(new Tweet(3L, "edited", alice));
+        }
+        Files.delete(directory.resolve(MappedTweetRepository.INDEX_FILE));
+
+        try (MappedTweetRepository repository = new MappedTweetRepository(directory, 4, 4)) {
+            assertTrue(repository.wasIndexRebuilt());
+            assertEquals("edited", repository.findById(3).get().getTxt());
+            assertEquals(20, repository.findByUser(alice).size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void textLongerThanARecordIsRejected() throws Exception {
+        try (MappedTweetRepository repository = new MappedTweetRepository(folder.getRoot().toPath())) {
+            char[] text = new char[MappedTweetRepository.MAX_TEXT_BYTES + 1];
+            Arrays.fill(text, 'a');
+            repository.save(new Tweet(new String(text), null));
+        }
+    }
+
+    @Test
+    public void repositoryDirectoryComesFromSystemPropertyWhenUsedAsBean() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new HashMap<String, Map<String, Object>>(){{
+                    put("tweetRepository", new HashMap<String, Object>(){{
+                                put("type", MappedTweetRepository.class);
+                            }}
+                    );
+                }};
+
+        System.setProperty(MappedTweetRepository.DIRECTORY_PROPERTY, folder.getRoot().getPath());
+        try {
+            Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+            WritableTweetRepository repository = context.getBean(WritableTweetRepository.class);
+            repository.save(new Tweet("persisted", alice));
+            ((MappedTweetRepository) repository).close();
+        } finally {
+            System.clearProperty(MappedTweetRepository.DIRECTORY_PROPERTY);
+        }
+
+        try (MappedTweetRepository repository = new MappedTweetRepository(folder.getRoot().toPath())) {
+            assertEquals(Collections.singletonList("persisted"),
+                    repository.stream().map(Tweet::getTxt).collect(Collectors.toList()));
+        }
+    }
+}
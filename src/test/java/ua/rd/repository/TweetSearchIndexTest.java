@@ -0,0 +1,77 @@
+package ua.rd.repository;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TweetSearchIndexTest {
+
+    @Test
+    public void termsAreLowerCasedRunsOfLettersAndDigits() throws Exception {
+        assertEquals(Arrays.asList("java", "8", "is", "out", "jdk8u", "\u043f\u0440\u0438\u0432\u0435\u0442"),
+                Arrays.asList(TweetQuery.terms("#Java 8 is OUT!! (jdk8u) \u041f\u0440\u0438\u0432\u0435\u0442, java").toArray()));
+        assertTrue(TweetQuery.terms("http://" + String.join("", Collections.nCopies(65, "x"))).contains("http"));
+        assertEquals(1, TweetQuery.terms("http://" + String.join("", Collections.nCopies(65, "x"))).size());
+    }
+
+    @Test
+    public void queryAndsWordsAndOrsAlternatives() throws Exception {
+        TweetQuery query = TweetQuery.parse("Java spring OR kotlin");
+
+        assertEquals("java spring OR kotlin", query.toString());
+        assertTrue(query.matches("spring boot on java"));
+        assertTrue(query.matches("Kotlin!"));
+        assertFalse(query.matches("java only"));
+        assertFalse(TweetQuery.parse(" OR ").matches("anything"));
+    }
+
+    @Test
+    public void searchReturnsNewestMatchesFirst() throws Exception {
+        TweetSearchIndex index = new TweetSearchIndex();
+        index.add(1, "java spring");
+        index.add(2, "kotlin");
+        index.add(3, "java");
+        index.add(4, "Spring and Java");
+        index.add(5, "scala");
+
+        assertArrayEquals(new long[]{4, 3, 1}, index.search(TweetQuery.parse("java"), 10));
+        assertArrayEquals(new long[]{4, 1}, index.search(TweetQuery.parse("spring java"), 10));
+        assertArrayEquals(new long[]{4, 2}, index.search(TweetQuery.parse("java spring OR kotlin"), 2));
+        assertArrayEquals(new long[0], index.search(TweetQuery.parse("java haskell"), 10));
+    }
+
+    @Test
+    public void removeAndOutOfOrderAddsKeepPostingListsSorted() throws Exception {
+        TweetSearchIndex index = new TweetSearchIndex();
+        for (long id = 100; id >= 1; id--) {
+            index.add(id, id % 3 == 0 ? "fizz common" : "common");
+        }
+        index.remove(99, "fizz common");
+        index.remove(50, "common");
+
+        assertArrayEquals(new long[]{96, 93}, index.search(TweetQuery.parse("fizz"), 2));
+        assertEquals(98, index.search(TweetQuery.parse("common"), 1000).length);
+        index.remove(3, "fizz");
+        for (long id = 6; id < 99; id += 3) {
+            index.remove(id, "fizz");
+        }
+        assertEquals(1, index.termCount());
+    }
+
+    @Test
+    public void gallopingIntersectionMatchesTheNaiveOne() throws Exception {
+        long[] rare = {3, 500, 501, 9_999, 20_000};
+        long[] common = new long[10_000];
+        for (int i = 0; i < common.length; i++) {
+            common[i] = i * 2 + 1;
+        }
+
+        long[] ids = rare.clone();
+        int count = TweetSearchIndex.intersect(ids, ids.length, common, common.length);
+
+        assertArrayEquals(new long[]{3, 501, 9_999}, Arrays.copyOf(ids, count));
+    }
+}
@@ -0,0 +1,228 @@
+package ua.rd.repository;
+
+import org.junit.Test;
+import ua.rd.domain.Tweet;
+import ua.rd.domain.User;
+import ua.rd.ioc.ApplicationContext;
+import ua.rd.ioc.Context;
+import ua.rd.ioc.JavaMapConfig;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindTweetRepositoryTest {
+    private final User alice = new User(1, "alice");
+
+    @Test
+    public void savesAreWrittenInBatches() throws Exception {
+        CountingRepository store = new CountingRepository();
+        try (WriteBehindTweetRepository repository =
+                     new WriteBehindTweetRepository(store, 100, 1, TimeUnit.HOURS, 1024)) {
+            for (int i = 0; i < 1_000; i++) {
+                assertEquals(Long.valueOf(i + 1), repository.save(new Tweet("tweet" + i, alice)).getTweetId());
+            }
+            repository.flush();
+
+            assertEquals(1_000, store.size());
+            assertEquals(1_000, repository.getWrittenCount());
+            assertTrue(store.saveAllCalls.get() <= 21);
+            assertEquals(store.saveAllCalls.get(), repository.getBatchCount());
+        }
+    }
+
+    @Test
+    public void partialBatchIsWrittenAfterMaxDelay() throws Exception {
+        CountingRepository store = new CountingRepository();
+        try (WriteBehindTweetRepository repository =
+                     new WriteBehindTweetRepository(store, 1_000, 10, TimeUnit.MILLISECONDS, 1_024)) {
+            repository.save(new Tweet("tweet", alice));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (store.size() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void fullQueueMakesProducersWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingRepository store = new CountingRepository() {
+            @Override
+            public void saveAll(Iterable<Tweet> tweets) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.saveAll(tweets);
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (WriteBehindTweetRepository repository =
+                     new WriteBehindTweetRepository(store, 4, 1, TimeUnit.MILLISECONDS, 8)) {
+            Future<?> producer = executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    repository.save(new Tweet("tweet" + i, alice));
+                }
+            });
+            while (repository.getBackpressureWaits() == 0) {
+                Thread.sleep(1);
+            }
+            assertFalse(producer.isDone());
+            assertTrue(repository.getQueuedCount() <= 8);
+
+            release.countDown();
+            producer.get(5, TimeUnit.SECONDS);
+            repository.flush();
+            assertEquals(100, store.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deleteWritesQueuedSavesFirst() throws Exception {
+        CountingRepository store = new CountingRepository();
+        try (WriteBehindTweetRepository repository =
+                     new WriteBehindTweetRepository(store, 100, 1, TimeUnit.HOURS, 1024)) {
+            repository.save(new Tweet(5L, "tweet", alice));
+
+            assertTrue(repository.delete(5));
+            repository.flush();
+            assertFalse(repository.findById(5).isPresent());
+        }
+    }
+
+    @Test
+    public void flushFailsAfterADroppedBatchEvenWhenASaveSawTheFailureFirst() throws Exception {
+        CountingRepository store = new CountingRepository() {
+            @Override
+            public void saveAll(Iterable<Tweet> tweets) {
+                super.saveAll(Collections.emptyList());
+                throw new IllegalStateException("disk full");
+            }
+        };
+        WriteBehindTweetRepository repository =
+                new WriteBehindTweetRepository(store, 100, 1, TimeUnit.MILLISECONDS, 1024);
+        repository.save(new Tweet("dropped", alice));
+        while (store.saveAllCalls.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        for (Runnable call : Arrays.<Runnable>asList(() -> repository.save(new Tweet("late", alice)),
+                repository::flush, repository::close)) {
+            try {
+                call.run();
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals("disk full", e.getMessage());
+            }
+        }
+        assertEquals(1, store.saveAllCalls.get());
+    }
+
+    @Test
+    public void errorFromTheDelegateFailsFlushAndCloseInsteadOfHanging() throws Exception {
+        CountingRepository store = new CountingRepository() {
+            @Override
+            public void saveAll(Iterable<Tweet> tweets) {
+                throw new AssertionError("corrupt");
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            WriteBehindTweetRepository repository =
+                    new WriteBehindTweetRepository(store, 100, 1, TimeUnit.HOURS, 1024);
+            repository.save(new Tweet("tweet", alice));
+
+            for (Runnable call : Arrays.<Runnable>asList(repository::flush, repository::close)) {
+                try {
+                    executor.submit(call).get(5, TimeUnit.SECONDS);
+                    fail();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause().getCause() instanceof AssertionError);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void isWiredByItsOnlyPublicConstructor() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("store", new HashMap<String, Object>(){{
+                                put("type", IndexedTweetRepository.class);
+                            }}
+                    );
+                    put("tweetRepository", new HashMap<String, Object>(){{
+                                put("type", WriteBehindTweetRepository.class);
+                                put("primary", true);
+                            }}
+                    );
+                }};
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        WritableTweetRepository repository = context.getBean(WritableTweetRepository.class);
+        repository.save(new Tweet("wired", alice));
+        ((WriteBehindTweetRepository) repository).flush();
+
+        assertEquals("wired", ((IndexedTweetRepository) context.getBean("store")).findById(1).get().getTxt());
+        context.close();
+    }
+
+    @Test
+    public void closingTheContextWritesQueuedTweets() throws Exception {
+        Map<String, Map<String, Object>> beanDescriptions =
+                new LinkedHashMap<String, Map<String, Object>>(){{
+                    put("store", new HashMap<String, Object>(){{
+                                put("type", IndexedTweetRepository.class);
+                            }}
+                    );
+                    put("tweetRepository", new HashMap<String, Object>(){{
+                                put("type", SlowWriteBehindTweetRepository.class);
+                                put("primary", true);
+                            }}
+                    );
+                }};
+        Context context = new ApplicationContext(new JavaMapConfig(beanDescriptions));
+        WritableTweetRepository repository = context.getBean(WritableTweetRepository.class);
+        repository.save(new Tweet("queued", alice));
+        assertEquals(0, ((IndexedTweetRepository) context.getBean("store")).size());
+
+        context.close();
+
+        assertEquals("queued", ((IndexedTweetRepository) context.getBean("store")).findById(1).get().getTxt());
+        try {
+            repository.save(new Tweet("late", alice));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public static class SlowWriteBehindTweetRepository extends WriteBehindTweetRepository {
+        public SlowWriteBehindTweetRepository(WritableTweetRepository delegate) {
+            super(delegate, 100, 1, TimeUnit.HOURS, 1024);
+        }
+    }
+
+    private static class CountingRepository extends IndexedTweetRepository {
+        private final AtomicInteger saveAllCalls = new AtomicInteger();
+
+        @Override
+        public void saveAll(Iterable<Tweet> tweets) {
+            saveAllCalls.incrementAndGet();
+            super.saveAll(tweets);
+        }
+    }
+}